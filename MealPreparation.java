@@ -1,68 +1,104 @@
+import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
 import java.io.*;
 import java.util.*;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
 
 // ================= Main =================
 public class MealPreparation {
 
     public static void main(String[] args) {
         MealMotionSplashScreen splash = new MealMotionSplashScreen();
-        splash.waitForSplashToFinish();
 
-        SwingUtilities.invokeLater(() -> new WizardApp().show());
+        // The splash stays up only while the wizard is being built.
+        SwingUtilities.invokeLater(() -> {
+            new WizardApp().show();
+            splash.close();
+        });
+    }
+
+    static final int SPLASH_LOGO_WIDTH = 240;
+    static final int WINDOW_ICON_WIDTH = 256;
+
+    /** The logo at the splash and window-icon widths, decoded and scaled once on a background thread. */
+    private static final CompletableFuture<BufferedImage[]> LOGO = CompletableFuture.supplyAsync(MealPreparation::readLogo);
+
+    /** The logo for the splash, or null if there is none. */
+    static ImageIcon splashLogoIcon() {
+        BufferedImage[] logo = LOGO.join();
+        return logo == null ? null : new ImageIcon(logo[0]);
+    }
+
+    /** The logo for the window icon, or null if there is none. */
+    static Image windowIconImage() {
+        BufferedImage[] logo = LOGO.join();
+        return logo == null ? null : logo[1];
     }
 
     /**
      * Loads a logo from `resources/logo.png` (relative to the working directory),
      * falling back to classpath `/resources/logo.png` if packaged that way.
      */
-    static ImageIcon loadLogoIcon(int maxWidthPx) {
-        // 1) Easy dev workflow: drop a file into ./resources/logo.png
-        File disk = new File("resources/logo.png");
-        if (disk.exists() && disk.isFile()) {
-            return new ImageIcon(disk.getPath());
-        }
-
-        // 2) Packaged workflow: include it on the classpath at /resources/logo.png
+    private static BufferedImage[] readLogo() {
         try {
-            java.net.URL url = MealPreparation.class.getResource("/resources/logo.png");
-            if (url != null) return new ImageIcon(url);
-        } catch (Exception ignored) { }
-
-        return null;
+            BufferedImage source = null;
+            // 1) Easy dev workflow: drop a file into ./resources/logo.png
+            File disk = new File("resources/logo.png");
+            if (disk.isFile()) {
+                source = ImageIO.read(disk);
+            } else {
+                // 2) Packaged workflow: include it on the classpath at /resources/logo.png
+                java.net.URL url = MealPreparation.class.getResource("/resources/logo.png");
+                if (url != null) source = ImageIO.read(url);
+            }
+            if (source == null) return null;
+            return new BufferedImage[] { scale(source, SPLASH_LOGO_WIDTH), scale(source, WINDOW_ICON_WIDTH) };
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("Could not read the logo: " + ex);
+            return null;
+        }
     }
 
-    static ImageIcon scaleIcon(ImageIcon icon, int maxWidthPx) {
-        if (icon == null) return null;
-        int w0 = icon.getIconWidth();
-        int h0 = icon.getIconHeight();
-        if (w0 <= 0 || h0 <= 0) return icon;
-        int w = Math.min(maxWidthPx, w0);
-        int h = (int) ((double) h0 / (double) w0 * (double) w);
-        Image scaled = icon.getImage().getScaledInstance(w, h, Image.SCALE_SMOOTH);
-        return new ImageIcon(scaled);
+    /** {@code src} at most {@code maxWidthPx} wide, halving at most per bicubic step so detail isn't dropped. */
+    static BufferedImage scale(BufferedImage src, int maxWidthPx) {
+        BufferedImage out = src;
+        while (out.getWidth() > maxWidthPx) {
+            int w = Math.max(maxWidthPx, out.getWidth() / 2);
+            int h = Math.max(1, (int) ((double) src.getHeight() / src.getWidth() * w));
+            BufferedImage next = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(out, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            out = next;
+        }
+        return out;
     }
 }
 
 /* -------------------- Splash Screen -------------------- */
 class MealMotionSplashScreen {
-    private final CountDownLatch latch = new CountDownLatch(1);
+    private JWindow window;
 
     public MealMotionSplashScreen() {
         SwingUtilities.invokeLater(this::createAndShow);
     }
 
     private void createAndShow() {
-        JWindow window = new JWindow();
+        window = new JWindow();
         JPanel content = new JPanel(null);
         content.setBackground(new Color(250, 250, 250));
 
         try {
-            ImageIcon icon = MealPreparation.scaleIcon(MealPreparation.loadLogoIcon(240), 240);
+            ImageIcon icon = MealPreparation.splashLogoIcon();
             if (icon == null) throw new RuntimeException("Logo not found");
 
             JLabel logo = new JLabel(icon);
@@ -83,7 +119,8 @@ class MealMotionSplashScreen {
         loadingLabel.setBounds(0, 240, 400, 20);
         content.add(loadingLabel);
 
-        JProgressBar bar = new JProgressBar(0, 100);
+        JProgressBar bar = new JProgressBar();
+        bar.setIndeterminate(true);
         bar.setBounds(50, 270, 300, 20);
         bar.setStringPainted(false);
         bar.setForeground(new Color(60, 179, 113));
@@ -93,22 +130,11 @@ class MealMotionSplashScreen {
         window.setSize(400, 320);
         window.setLocationRelativeTo(null);
         window.setVisible(true);
-
-        javax.swing.Timer t = new javax.swing.Timer(25, null);
-        t.addActionListener(e -> {
-            int v = bar.getValue();
-            if (v < 100) bar.setValue(v + 1);
-            else {
-                ((javax.swing.Timer)e.getSource()).stop();
-                window.dispose();
-                latch.countDown();
-            }
-        });
-        t.start();
     }
 
-    public void waitForSplashToFinish() {
-        try { latch.await(); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    /** Call on the EDT. */
+    public void close() {
+        if (window != null) window.dispose();
     }
 }
 
@@ -130,8 +156,8 @@ class WizardApp {
         frame.setSize(500, 400);
         frame.setLocationRelativeTo(null);
         try {
-            ImageIcon icon = MealPreparation.loadLogoIcon(256);
-            if (icon != null) frame.setIconImage(icon.getImage());
+            Image icon = MealPreparation.windowIconImage();
+            if (icon != null) frame.setIconImage(icon);
         } catch (Exception ignored) { }
 
         cardLayout = new CardLayout();
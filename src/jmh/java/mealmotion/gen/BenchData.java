@@ -0,0 +1,91 @@
+package mealmotion.gen;
+
+import mealmotion.model.*;
+
+import java.util.*;
+
+/** Deterministic fixtures shared by the benchmarks: synthetic catalogs and profiles. */
+public final class BenchData {
+    private BenchData() {}
+
+    private static final String[] BASE_INGREDIENTS = {
+            "oats", "berries", "cinnamon", "chia", "greek yogurt", "honey", "granola", "bread", "avocado",
+            "tomato", "olive oil", "eggs", "spinach", "banana", "pea protein", "almond milk", "peanut butter",
+            "chicken", "lettuce", "cucumber", "halal chicken", "tortilla", "yogurt sauce", "quinoa", "chickpeas",
+            "lemon", "tuna", "rice", "soy sauce", "hummus", "carrot", "salmon", "broccoli", "beef", "pepper",
+            "onion", "tofu", "lentils", "coconut milk", "spices", "turkey", "beans", "apple", "nuts", "raisins",
+            "protein bar", "cottage cheese"
+    };
+
+    private static final Map<Integer, MealCatalog> CATALOGS = new HashMap<>();
+    private static final Map<Integer, ExerciseLibrary> LIBRARIES = new HashMap<>();
+
+    /** The built-in catalog for size 20, otherwise the built-in meals padded with synthetic ones. */
+    public static synchronized MealCatalog catalog(int size) {
+        if (size <= MealCatalog.builtIn().size()) return MealCatalog.builtIn();
+        return CATALOGS.computeIfAbsent(size, BenchData::synthesize);
+    }
+
+    private static MealCatalog synthesize(int size) {
+        Random r = new Random(42);
+        List<String> vocab = vocabulary();
+        MealSlot[] slots = MealSlot.values();
+        List<Meal> out = new ArrayList<>(MealCatalog.builtIn().meals());
+        while (out.size() < size) {
+            int i = out.size();
+            int n = 2 + r.nextInt(5);
+            List<String> ing = new ArrayList<>(n);
+            for (int k = 0; k < n; k++) ing.add(vocab.get(r.nextInt(vocab.size())));
+            boolean vegan = r.nextInt(4) == 0;
+            boolean vegetarian = vegan || r.nextInt(3) == 0;
+            out.add(new Meal("Synthetic Meal " + i, slots[r.nextInt(slots.length)], 150 + r.nextInt(650), 5 + r.nextInt(45),
+                    r.nextInt(5) != 0, vegetarian, vegan, r.nextBoolean(), ing));
+        }
+        return MealCatalog.of(out);
+    }
+
+    /** The built-in exercise library for sizes up to its own, otherwise padded with synthetic exercises. */
+    public static synchronized ExerciseLibrary exercises(int size) {
+        if (size <= ExerciseLibrary.builtIn().size()) return ExerciseLibrary.builtIn();
+        return LIBRARIES.computeIfAbsent(size, BenchData::synthesizeExercises);
+    }
+
+    private static ExerciseLibrary synthesizeExercises(int size) {
+        Random r = new Random(42);
+        Equipment[] equipment = Equipment.values();
+        MuscleGroup[] groups = MuscleGroup.values();
+        List<ExerciseLibrary.Exercise> out = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            WorkoutMoveType type = r.nextInt(10) == 0 ? WorkoutMoveType.CARDIO : WorkoutMoveType.STRENGTH;
+            Set<MuscleGroup> g = type == WorkoutMoveType.CARDIO
+                    ? Set.of(MuscleGroup.FULL_BODY)
+                    : Set.of(groups[r.nextInt(groups.length)]);
+            out.add(new ExerciseLibrary.Exercise("Synthetic Exercise " + i, type, Set.of(equipment[r.nextInt(equipment.length)]), g));
+        }
+        return ExerciseLibrary.of(out);
+    }
+
+    private static List<String> vocabulary() {
+        List<String> vocab = new ArrayList<>(List.of(BASE_INGREDIENTS));
+        for (int i = 0; i < 150; i++) vocab.add("ingredient " + i);
+        return vocab;
+    }
+
+    /** Half the terms hit real ingredients, the other half never match, like a typical clinic list. */
+    public static List<String> allergies(int count) {
+        List<String> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            out.add(i % 2 == 0 ? BASE_INGREDIENTS[(i * 7) % BASE_INGREDIENTS.length] : "exclusion " + i);
+        }
+        return out;
+    }
+
+    public static UserProfile profile(DietPreference diet, int allergyCount) {
+        return new UserProfile(
+                "Bench User", 32, 178, 82, 76,
+                Gender.MALE, ActivityLevel.MODERATE, BodyGoal.LEAN, diet,
+                true, Equipment.DUMBBELLS, 4, 45,
+                allergies(allergyCount), List.of("olives", "mushroom")
+        );
+    }
+}
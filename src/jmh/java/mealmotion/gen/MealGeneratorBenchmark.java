@@ -0,0 +1,75 @@
+package mealmotion.gen;
+
+import mealmotion.model.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MealGeneratorBenchmark {
+    @Param({"20", "1000", "100000"})
+    public int catalogSize;
+
+    @Param({"NONE", "VEGAN", "HALAL"})
+    public DietPreference diet;
+
+    @Param({"0", "5", "30"})
+    public int allergyCount;
+
+    private MealCatalog catalog;
+    private UserProfile profile;
+    private SplittableRandom random;
+    private SelectionKernel kernel;
+    private int probe;
+    private BitSet dinnerCandidates;
+    private ExclusionMatcher matcher;
+
+    @Setup
+    public void setup() {
+        catalog = BenchData.catalog(catalogSize);
+        profile = BenchData.profile(diet, allergyCount);
+        random = new SplittableRandom(7);
+        kernel = new SelectionKernel(catalog, MealGenerator.proteinWeight(profile));
+        probe = catalog.size() / 2;
+        matcher = ExclusionMatcher.forProfile(profile);
+        dinnerCandidates = MealGenerator.candidatesBySlot(catalog, profile)[MealSlot.DINNER.ordinal()];
+    }
+
+    @Benchmark
+    public Map<String, DayMeals> generateWeeklyMeals() {
+        return MealGenerator.generateWeeklyMeals(profile, catalog);
+    }
+
+    @Benchmark
+    public int selectMeal() {
+        return kernel.select(dinnerCandidates, 600, random);
+    }
+
+    @Benchmark
+    public double score() {
+        return kernel.score(probe, 600);
+    }
+
+    @Benchmark
+    public BitSet[] candidatesBySlot() {
+        return MealGenerator.candidatesBySlot(catalog, profile);
+    }
+
+    @Benchmark
+    public ExclusionMatcher compileExclusions() {
+        return ExclusionMatcher.forProfile(profile);
+    }
+
+    /** The uncached per-meal check over the whole catalog (what {@code blocked(catalog)} does on a miss). */
+    @Benchmark
+    public void blockedByPreferences(Blackhole bh) {
+        for (Meal m : catalog.meals()) bh.consume(matcher.blocks(m));
+    }
+}
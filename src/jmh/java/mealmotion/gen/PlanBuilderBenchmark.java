@@ -0,0 +1,37 @@
+package mealmotion.gen;
+
+import mealmotion.model.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlanBuilderBenchmark {
+    @Param({"20", "1000", "100000"})
+    public int catalogSize;
+
+    @Param({"NONE", "VEGAN", "HALAL"})
+    public DietPreference diet;
+
+    @Param({"0", "5", "30"})
+    public int allergyCount;
+
+    private MealCatalog catalog;
+    private UserProfile profile;
+
+    @Setup
+    public void setup() {
+        catalog = BenchData.catalog(catalogSize);
+        profile = BenchData.profile(diet, allergyCount);
+    }
+
+    @Benchmark
+    public WeeklyPlan build() {
+        return PlanBuilder.build(profile, catalog);
+    }
+}
@@ -0,0 +1,48 @@
+package mealmotion.gen;
+
+import mealmotion.model.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Workouts don't read the meal catalog, so this one is parameterized by equipment, goal and exercise
+ * library size instead; a week should cost the same with the built-in library and a synthetic one of 10k.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkoutGeneratorBenchmark {
+    @Param({"NONE", "DUMBBELLS", "FULL_GYM"})
+    public Equipment equipment;
+
+    @Param({"LEAN", "BULK", "TONE"})
+    public BodyGoal goal;
+
+    @Param({"0", "10000"})
+    public int librarySize;
+
+    private UserProfile profile;
+    private ExerciseLibrary library;
+    private SplittableRandom rng;
+
+    @Setup
+    public void setup() {
+        profile = new UserProfile("Bench User", 32, 178, 82, 76,
+                Gender.FEMALE, ActivityLevel.MODERATE, goal, DietPreference.NONE,
+                true, equipment, 5, 60, List.of(), List.of());
+        library = BenchData.exercises(librarySize);
+        rng = new SplittableRandom(42);
+    }
+
+    @Benchmark
+    public Map<String, WorkoutSession> generateWeeklyWorkouts() {
+        return WorkoutGenerator.generateWeeklyWorkouts(profile, library, rng);
+    }
+}
@@ -0,0 +1,64 @@
+package mealmotion.util;
+
+import mealmotion.gen.BenchData;
+import mealmotion.gen.PlanBuilder;
+import mealmotion.model.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportBenchmark {
+    @Param({"20", "1000", "100000"})
+    public int catalogSize;
+
+    @Param({"NONE", "VEGAN", "HALAL"})
+    public DietPreference diet;
+
+    @Param({"0", "5", "30"})
+    public int allergyCount;
+
+    private WeeklyPlan plan;
+    private File csv;
+    private CsvWriter sink;
+
+    @Setup
+    public void setup() throws IOException {
+        plan = PlanBuilder.build(BenchData.profile(diet, allergyCount), BenchData.catalog(catalogSize));
+        csv = File.createTempFile("mealmotion-bench", ".csv");
+        csv.deleteOnExit();
+        sink = new CsvWriter(Writer.nullWriter());
+    }
+
+    @TearDown
+    public void tearDown() {
+        csv.delete();
+    }
+
+    @Benchmark
+    public File writePlanCsv() throws IOException {
+        PlanExporter.writePlanCsv(csv, plan);
+        return csv;
+    }
+
+    /** Row formatting alone, as in a long batch export (no file open/close per plan). */
+    @Benchmark
+    public CsvWriter writePlanRows() throws IOException {
+        PlanExporter.writePlanRows(sink, plan, true);
+        return sink;
+    }
+
+    @Benchmark
+    public List<ShoppingListUtil.Item> buildShoppingList() {
+        return ShoppingListUtil.build(plan.mealsByDay().values());
+    }
+}
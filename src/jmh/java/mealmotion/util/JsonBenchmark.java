@@ -0,0 +1,115 @@
+package mealmotion.util;
+
+import mealmotion.gen.BenchData;
+import mealmotion.gen.MealCatalog;
+import mealmotion.gen.PlanBuilder;
+import mealmotion.model.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/** JSON against the equivalent CSV paths: plan export to bytes, and reading a file of profiles. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+    private static final int PROFILES = 10_000;
+
+    @Param({"20", "100000"})
+    public int catalogSize;
+
+    private MealCatalog catalog;
+    private WeeklyPlan plan;
+    private byte[] planJson;
+    private JsonWriter json;
+    private CsvWriter csv;
+    private File profilesJsonl;
+    private File profilesCsv;
+
+    @Setup
+    public void setup() throws IOException {
+        catalog = BenchData.catalog(catalogSize);
+        plan = PlanBuilder.build(BenchData.profile(DietPreference.NONE, 5), catalog);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JsonWriter w = new JsonWriter(bytes)) {
+            PlanJson.writePlan(w, plan);
+        }
+        planJson = bytes.toByteArray();
+        // Both sinks end in bytes, as when writing a file.
+        json = new JsonWriter(OutputStream.nullOutputStream());
+        csv = new CsvWriter(new OutputStreamWriter(OutputStream.nullOutputStream(), StandardCharsets.UTF_8));
+        writeProfiles();
+    }
+
+    private void writeProfiles() throws IOException {
+        profilesJsonl = File.createTempFile("mealmotion-bench", ".jsonl");
+        profilesCsv = File.createTempFile("mealmotion-bench", ".csv");
+        profilesJsonl.deleteOnExit();
+        profilesCsv.deleteOnExit();
+        try (JsonWriter j = new JsonWriter(Files.newOutputStream(profilesJsonl.toPath()));
+             CsvWriter c = CsvWriter.open(profilesCsv, false)) {
+            c.raw(String.join(",", ProfileReader.CSV_COLUMNS)).endRow();
+            for (int i = 0; i < PROFILES; i++) {
+                UserProfile p = BenchData.profile(DietPreference.values()[i % DietPreference.values().length], i % 4);
+                PlanJson.writeProfile(j, p);
+                j.newline();
+                c.field(p.name()).field(p.age()).field(p.heightCm()).field(p.weightKg()).field(p.targetWeightKg())
+                        .field(p.gender().name()).field(p.activityLevel().name()).field(p.bodyGoal().name())
+                        .field(p.dietPreference().name()).field(Boolean.toString(p.includeWorkouts()))
+                        .field(p.equipment().name()).field(p.workoutDaysPerWeek()).field(p.workoutMinutesPerSession())
+                        .field(String.join(";", p.allergies())).field(String.join(";", p.dislikedFoods())).endRow();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        profilesJsonl.delete();
+        profilesCsv.delete();
+    }
+
+    @Benchmark
+    public JsonWriter writePlanJson() throws IOException {
+        PlanJson.writePlan(json, plan);
+        json.newline();
+        return json;
+    }
+
+    /** The batch CSV export of the same plan, encoded to UTF-8. */
+    @Benchmark
+    public CsvWriter writePlanCsvRows() throws IOException {
+        PlanExporter.writePlanRows(csv, plan, true);
+        return csv;
+    }
+
+    @Benchmark
+    public WeeklyPlan readPlanJson() throws IOException {
+        return PlanJson.readPlan(new JsonReader(new ByteArrayInputStream(planJson)), catalog);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PROFILES)
+    public long readProfilesJsonl() throws IOException {
+        return readAll(profilesJsonl);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PROFILES)
+    public long readProfilesCsv() throws IOException {
+        return readAll(profilesCsv);
+    }
+
+    private static long readAll(File file) throws IOException {
+        long sum = 0;
+        try (ProfileReader r = ProfileReader.open(file)) {
+            while (r.hasNext()) sum += r.next().age();
+        }
+        return sum;
+    }
+}
@@ -1,21 +1,75 @@
 package mealmotion;
 
+import mealmotion.batch.BatchPlanRunner;
+import mealmotion.batch.ProcurementAggregator;
+import mealmotion.batch.ProgramExporter;
+import mealmotion.gen.MealCatalogFile;
+import mealmotion.service.PlanService;
+import mealmotion.store.PlanArchiveReader;
+import mealmotion.store.PlanStore;
 import mealmotion.ui.SplashScreenWindow;
+import mealmotion.ui.Startup;
 import mealmotion.ui.WizardFrame;
 
 import javax.swing.*;
+import java.util.Arrays;
 
 public final class MealMotionApp {
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            BatchPlanRunner.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--procure")) {
+            ProcurementAggregator.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--program")) {
+            ProgramExporter.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--archive-stats")) {
+            PlanArchiveReader.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--plan-history")) {
+            PlanStore.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--serve")) {
+            PlanService.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--convert-catalog")) {
+            MealCatalogFile.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--warm-up")) {
+            // Runs the startup tasks headless and exits; the build uses it to train the AppCDS archive.
+            runStartup((fraction, phase) -> { });
+            return;
+        }
+
         // Consistent native-ish look
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
         } catch (Exception ignored) { }
 
         SplashScreenWindow splash = new SplashScreenWindow();
-        splash.waitForClose();
+        runStartup(splash::progress);
+
+        SwingUtilities.invokeLater(() -> {
+            new WizardFrame().show();
+            splash.close();
+        });
+    }
 
-        SwingUtilities.invokeLater(() -> new WizardFrame().show());
+    private static void runStartup(Startup.Listener listener) {
+        try {
+            Startup.run(listener);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
     }
 }
 
@@ -0,0 +1,350 @@
+package mealmotion.batch;
+
+import mealmotion.gen.MealCatalog;
+import mealmotion.gen.PlanBuilder;
+import mealmotion.gen.PlanCache;
+import mealmotion.gen.ProfileKey;
+import mealmotion.model.UserProfile;
+import mealmotion.model.WeeklyPlan;
+import mealmotion.store.PlanArchiveWriter;
+import mealmotion.store.PlanStore;
+import mealmotion.util.CsvWriter;
+import mealmotion.util.JsonWriter;
+import mealmotion.util.PlanExporter;
+import mealmotion.util.PlanJson;
+import mealmotion.util.ProfileReader;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.IsoFields;
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+
+/**
+ * Headless batch mode: streams profiles from a CSV/JSONL file, builds plans on all cores and streams
+ * the CSV rows out as plans finish.
+ *
+ * Memory stays flat regardless of input size: the reader blocks once {@code threads * IN_FLIGHT_PER_THREAD}
+ * profiles are queued, building or waiting to be written, and each plan is formatted and dropped by the
+ * worker that built it. Rows from different profiles may come out in a different order than the input.
+ *
+ * Randomness is split per profile from one seeded root on the reader thread, in input order, so each
+ * profile's plan depends only on the seed and its position in the file, not on the thread count or
+ * scheduling, and workers never share a random source. With the plan cache on (the default), plans are
+ * seeded from the seed and the profile's {@link ProfileKey} instead, so duplicates share one plan and
+ * the output is still reproducible.
+ *
+ * An output name ending in {@code .mmpa} writes a binary {@link PlanArchiveWriter plan archive} instead of
+ * CSV; its plans must come from the configured catalog. One ending in {@code .jsonl} (or {@code .jsonl.gz})
+ * writes one {@link PlanJson plan JSON} object per line. With {@code --store DIR} every plan is also kept in
+ * a {@link PlanStore} under the profile name and week.
+ */
+public final class BatchPlanRunner {
+    private static final int IN_FLIGHT_PER_THREAD = 8;
+    private static final int DEFAULT_CACHE_ENTRIES = 4096;
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final Object END = new Object();
+    private static final ThreadLocal<JsonLine> JSON_LINES = ThreadLocal.withInitial(JsonLine::new);
+    private static final String USAGE = "Usage: --batch <profiles.csv|profiles.jsonl> <out.csv|out.jsonl|out.mmpa> [--threads N] [--optimize-ms N] [--seed N] [--cache N] [--store DIR [--week N]]";
+
+    private BatchPlanRunner() {}
+
+    public record Result(long profiles, long skippedLines, long failed, long elapsedNanos) {
+        public double profilesPerSecond() {
+            return elapsedNanos <= 0 ? 0.0 : profiles * 1e9 / elapsedNanos;
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) usageError(null);
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = new SplittableRandom().nextLong();
+        int cacheEntries = DEFAULT_CACHE_ENTRIES;
+        Path storeDir = null;
+        LocalDate today = LocalDate.now();
+        int week = today.get(IsoFields.WEEK_BASED_YEAR) * 100 + today.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
+        BiFunction<UserProfile, SplittableRandom, WeeklyPlan> builder = BatchPlanRunner::buildPlan;
+        for (int i = 2; i < args.length; i++) {
+            String flag = args[i];
+            if (i + 1 == args.length) usageError("Missing value for " + flag);
+            String value = args[++i];
+            try {
+                switch (flag) {
+                    case "--threads" -> threads = Integer.parseInt(value);
+                    case "--seed" -> seed = Long.parseLong(value);
+                    case "--cache" -> cacheEntries = Integer.parseInt(value);
+                    case "--store" -> storeDir = Path.of(value);
+                    case "--week" -> week = Integer.parseInt(value);
+                    case "--optimize-ms" -> {
+                        Duration budget = Duration.ofMillis(Long.parseLong(value));
+                        builder = (p, rng) -> PlanBuilder.buildOptimized(p, MealCatalog.configured(), budget, rng);
+                    }
+                    default -> usageError("Unknown option: " + flag);
+                }
+            } catch (NumberFormatException ex) {
+                usageError("Not a number for " + flag + ": " + value);
+            }
+        }
+        System.err.println("Seed: " + seed);
+        PlanCache cache = cacheEntries > 0 ? new PlanCache(cacheEntries) : null;
+        if (cache != null) builder = cached(builder, cache, seed);
+        // Closing syncs and checkpoints the store, so it must also happen when the run fails.
+        PlanStore closedStore = null;
+        try (PlanStore store = storeDir == null ? null : PlanStore.open(storeDir, MealCatalog.configured())) {
+            if (store != null) {
+                builder = stored(builder, store, week);
+                System.err.println("Storing plans as week " + week + " in " + storeDir);
+            }
+            Result r = run(new File(args[0]), new File(args[1]), threads, seed, builder);
+            System.err.printf("Done: %d profiles in %.1f s (%.0f profiles/sec), %d skipped lines, %d failed%n",
+                    r.profiles(), r.elapsedNanos() / 1e9, r.profilesPerSecond(), r.skippedLines(), r.failed());
+            if (cache != null) {
+                PlanCache.Stats cs = cache.stats();
+                System.err.printf("Plan cache: %d hits, %d misses (%.0f%% hit rate), %d evictions%n",
+                        cs.hits(), cs.misses(), cs.hitRate() * 100, cs.evictions());
+            }
+            closedStore = store;
+        } catch (IOException ex) {
+            System.err.println("Batch failed: " + ex.getMessage());
+            System.exit(1);
+        } catch (UncheckedIOException ex) {
+            // The profile reader reports read errors from hasNext()/next().
+            System.err.println("Batch failed: " + ex.getCause().getMessage());
+            System.exit(1);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            System.exit(1);
+        }
+        if (closedStore != null) {
+            PlanStore.Stats ss = closedStore.stats();
+            System.err.printf("Plan store: %d plans for %d users, %d MB%n", ss.plans(), ss.users(), ss.diskBytes() >> 20);
+        }
+    }
+
+    /** Prints {@code problem} (if any) and the usage line, and exits with status 2. */
+    private static void usageError(String problem) {
+        if (problem != null) System.err.println(problem);
+        System.err.println(USAGE);
+        System.exit(2);
+    }
+
+    public static Result run(File input, File output, int threads, long seed) throws IOException, InterruptedException {
+        return run(input, output, threads, seed, BatchPlanRunner::buildPlan);
+    }
+
+    /** {@code builder} gets a random source of its own for each profile; it must not keep it. */
+    public static Result run(File input, File output, int threads, long seed,
+                             BiFunction<UserProfile, SplittableRandom, WeeklyPlan> builder)
+            throws IOException, InterruptedException {
+        int n = Math.max(1, threads);
+        Semaphore inFlight = new Semaphore(n * IN_FLIGHT_PER_THREAD);
+        BlockingQueue<Object> rows = new LinkedBlockingQueue<>(); // CSV chunks, JSONL bytes, or plans for an archive
+        boolean jsonLines = isJsonLines(output);
+        boolean archive = isArchive(output);
+        AtomicLong written = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        AtomicReference<IOException> writeError = new AtomicReference<>();
+        long start = System.nanoTime();
+
+        ExecutorService workers = Executors.newFixedThreadPool(n, daemonThreads("mealmotion-batch-"));
+        Thread writer = new Thread(() -> drain(output, rows, inFlight, written, failed, writeError, start), "mealmotion-batch-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        long skipped;
+        SplittableRandom root = new SplittableRandom(seed);
+        try (ProfileReader reader = ProfileReader.open(input)) {
+            while (reader.hasNext() && writeError.get() == null) {
+                UserProfile profile = reader.next();
+                SplittableRandom rng = root.split();
+                inFlight.acquire();
+                workers.execute(() -> {
+                    boolean queued = false;
+                    try {
+                        WeeklyPlan plan = builder.apply(profile, rng);
+                        // Archives are encoded by the writer thread, which owns the archive's dictionaries.
+                        rows.add(archive ? plan : jsonLines ? formatJson(plan) : formatRows(plan));
+                        queued = true;
+                    } catch (RuntimeException | Error ex) {
+                        failed.incrementAndGet();
+                        System.err.println("Plan failed for " + profile.name() + ": " + ex);
+                    } finally {
+                        // The writer releases the permit for queued rows; anything else releases here.
+                        if (!queued) inFlight.release();
+                    }
+                });
+            }
+            skipped = reader.skippedLines();
+        } finally {
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            rows.add(END);
+            writer.join();
+        }
+
+        if (writeError.get() != null) throw writeError.get();
+        return new Result(written.get(), skipped, failed.get(), System.nanoTime() - start);
+    }
+
+    /**
+     * Puts {@code cache} in front of {@code builder}. The per-profile random source is replaced by one
+     * seeded from {@code seed} and the profile key, so a key's plan doesn't depend on which duplicate
+     * happened to be built first.
+     */
+    public static BiFunction<UserProfile, SplittableRandom, WeeklyPlan> cached(
+            BiFunction<UserProfile, SplittableRandom, WeeklyPlan> builder, PlanCache cache, long seed) {
+        return (profile, rng) -> {
+            ProfileKey key = ProfileKey.of(profile);
+            return cache.get(key, profile, () -> builder.apply(profile, new SplittableRandom(seed ^ key.fingerprint())));
+        };
+    }
+
+    /** Also puts every plan {@code builder} makes into {@code store}, keyed by profile name and {@code week}. */
+    public static BiFunction<UserProfile, SplittableRandom, WeeklyPlan> stored(
+            BiFunction<UserProfile, SplittableRandom, WeeklyPlan> builder, PlanStore store, int week) {
+        return (profile, rng) -> {
+            WeeklyPlan plan = builder.apply(profile, rng);
+            try {
+                store.put(profile.name(), week, plan);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            return plan;
+        };
+    }
+
+    private static WeeklyPlan buildPlan(UserProfile profile, SplittableRandom rng) {
+        return PlanBuilder.build(profile, MealCatalog.configured(), rng);
+    }
+
+    private static String formatRows(WeeklyPlan plan) {
+        StringWriter sw = new StringWriter(2048);
+        try (CsvWriter cw = new CsvWriter(sw)) {
+            PlanExporter.writePlanRows(cw, plan, true);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex); // StringWriter doesn't throw
+        }
+        return sw.toString();
+    }
+
+    private static byte[] formatJson(WeeklyPlan plan) {
+        JsonLine line = JSON_LINES.get();
+        line.bytes.reset();
+        try {
+            PlanJson.writePlan(line.writer, plan);
+            line.writer.newline().flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex); // ByteArrayOutputStream doesn't throw
+        }
+        return line.bytes.toByteArray();
+    }
+
+    /** A worker's JSON writer, kept so its buffers and string cache stay warm from plan to plan. */
+    private static final class JsonLine {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+        final JsonWriter writer = new JsonWriter(bytes);
+    }
+
+    private static boolean isJsonLines(File output) {
+        String n = output.getName().toLowerCase();
+        return n.endsWith(".jsonl") || n.endsWith(".jsonl.gz");
+    }
+
+    private static boolean isArchive(File output) {
+        return output.getName().toLowerCase().endsWith(".mmpa");
+    }
+
+    /** Where the writer thread puts finished plans: CSV chunks, JSONL bytes or archived plans. */
+    private interface Sink extends Closeable {
+        void write(Object chunk) throws IOException;
+    }
+
+    private static Sink openSink(File output) throws IOException {
+        if (isArchive(output)) {
+            PlanArchiveWriter w = PlanArchiveWriter.create(output.toPath(), MealCatalog.configured());
+            return new Sink() {
+                @Override public void write(Object plan) throws IOException { w.write((WeeklyPlan) plan); }
+                @Override public void close() throws IOException { w.close(); }
+            };
+        }
+        if (isJsonLines(output)) {
+            OutputStream os = new BufferedOutputStream(CsvWriter.openStream(output, false), 1 << 16);
+            return new Sink() {
+                @Override public void write(Object json) throws IOException { os.write((byte[]) json); }
+                @Override public void close() throws IOException { os.close(); }
+            };
+        }
+        Writer w = new BufferedWriter(CsvWriter.openWriter(output, false), 1 << 16);
+        try {
+            w.write(PlanExporter.BATCH_CSV_HEADER);
+            w.write(System.lineSeparator());
+        } catch (IOException ex) {
+            w.close();
+            throw ex;
+        }
+        return new Sink() {
+            @Override public void write(Object rows) throws IOException { w.write((String) rows); }
+            @Override public void close() throws IOException { w.close(); }
+        };
+    }
+
+    private static void drain(File output, BlockingQueue<Object> rows, Semaphore inFlight, AtomicLong written,
+                              AtomicLong failed, AtomicReference<IOException> writeError, long start) {
+        boolean ended = false;
+        try (Sink w = openSink(output)) {
+            long nextReport = start + PROGRESS_INTERVAL_NANOS;
+            while (true) {
+                Object chunk = rows.take();
+                if (chunk == END) { ended = true; break; }
+                inFlight.release();
+                try {
+                    w.write(chunk);
+                } catch (IllegalArgumentException ex) {
+                    // A plan with meals from another catalog can't be archived; skip it like a failed plan.
+                    failed.incrementAndGet();
+                    System.err.println("Plan failed for " + ((WeeklyPlan) chunk).profile().name() + ": " + ex);
+                    continue;
+                }
+                long done = written.incrementAndGet();
+
+                long now = System.nanoTime();
+                if (now >= nextReport) {
+                    System.err.printf("%d profiles, %.0f profiles/sec%n", done, done * 1e9 / (now - start));
+                    nextReport = now + PROGRESS_INTERVAL_NANOS;
+                }
+            }
+        } catch (IOException ex) {
+            writeError.compareAndSet(null, ex);
+            // Keep releasing permits so the reader never blocks on a dead writer.
+            if (!ended) drainAfterError(rows, inFlight);
+        } catch (RuntimeException ex) {
+            // A broken sink (a bug in an encoder, say) must stop the run the same way, not just this thread.
+            writeError.compareAndSet(null, new IOException("Writing " + output + " failed: " + ex, ex));
+            if (!ended) drainAfterError(rows, inFlight);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void drainAfterError(BlockingQueue<Object> rows, Semaphore inFlight) {
+        try {
+            while (rows.take() != END) inFlight.release();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicLong seq = new AtomicLong();
+        return r -> {
+            Thread t = new Thread(r, prefix + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,247 @@
+package mealmotion.batch;
+
+import mealmotion.gen.MealCatalog;
+import mealmotion.model.*;
+import mealmotion.util.CsvUtil;
+import mealmotion.util.CsvWriter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Ingredient totals for a whole cohort of plans, grouped by day and ingredient, for buying everything
+ * at once.
+ *
+ * Plans are reduced in parallel: each stream split fills its own {@link Totals} (primitive arrays
+ * indexed by day, interned ingredient ID and unit, like the single-plan shopping list) and the partial
+ * totals are merged at the end, so there is no shared state while adding and memory depends only on
+ * the number of distinct days and ingredients, not on the number of plans.
+ *
+ * Plans can come from memory or from exported plan CSVs (single or batch layout, optionally gzipped);
+ * for files, meal names are looked up in a catalog to find their ingredients.
+ */
+public final class ProcurementAggregator {
+    private static final Unit[] UNITS = Unit.values();
+    private static final List<String> WEEK = List.of("Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday", "Sunday");
+    private static final MealSlot[] SLOTS = MealSlot.values();
+
+    private ProcurementAggregator() {}
+
+    /** Total of one ingredient (in one unit) on one day, and how many meals used it. */
+    public record Line(String day, String ingredient, double amount, Unit unit, long uses) {}
+
+    public static Collector<WeeklyPlan, Totals, Totals> collector() {
+        return Collector.of(Totals::new, Totals::add, Totals::merge, Collector.Characteristics.UNORDERED,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /** Reduces {@code plans} in parallel. */
+    public static Totals aggregate(Stream<WeeklyPlan> plans) {
+        return plans.parallel().collect(collector());
+    }
+
+    /**
+     * Reads an exported plan CSV ({@code .gz} is unzipped) and totals its meals using {@code catalog}'s
+     * ingredients. Rows are parsed in parallel; rows whose meals aren't in the catalog are counted in
+     * {@link Totals#unknownMeals()}.
+     */
+    public static Totals aggregateCsv(File planCsv, MealCatalog catalog) throws IOException {
+        try (BufferedReader in = open(planCsv)) {
+            String header = in.readLine();
+            if (header == null) return new Totals();
+            List<String> cols = CsvUtil.splitLine(header);
+            int day = cols.indexOf("Day");
+            int[] mealCols = new int[SLOTS.length];
+            for (MealSlot slot : SLOTS) mealCols[slot.ordinal()] = cols.indexOf(slot.label());
+            if (day < 0 || Arrays.stream(mealCols).anyMatch(c -> c < 0)) {
+                throw new IOException(planCsv + " is not a plan CSV (missing Day or meal columns)");
+            }
+            return in.lines().parallel().collect(Collector.of(Totals::new,
+                    (t, line) -> t.addRow(line, day, mealCols, catalog), Totals::merge,
+                    Collector.Characteristics.UNORDERED, Collector.Characteristics.IDENTITY_FINISH));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /** Writes {@code Day,Ingredient,Amount,Unit,Uses} rows: per day, then "All days". */
+    public static void writeCsv(Totals totals, File out) throws IOException {
+        try (CsvWriter w = CsvWriter.open(out, false)) {
+            w.raw("Day,Ingredient,Amount,Unit,Uses").endRow();
+            List<Line> lines = new ArrayList<>(totals.lines());
+            lines.addAll(totals.weekTotals());
+            for (Line l : lines) {
+                w.field(l.day()).field(l.ingredient()).field(Unit.number(l.amount())).field(l.unit().name().toLowerCase())
+                        .field(Long.toString(l.uses())).endRow();
+            }
+        }
+    }
+
+    /** CLI entry: {@code --procure <plans.csv[.gz]> <out.csv>}, using the configured catalog. */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: --procure <plans.csv[.gz]> <procurement.csv>");
+            System.exit(2);
+        }
+        try {
+            long start = System.nanoTime();
+            Totals t = aggregateCsv(new File(args[0]), MealCatalog.configured());
+            writeCsv(t, new File(args[1]));
+            System.err.printf("Aggregated %d plan days in %.1f s (%d meals not in the catalog)%n",
+                    t.rows(), (System.nanoTime() - start) / 1e9, t.unknownMeals());
+        } catch (IOException ex) {
+            System.err.println("Procurement failed: " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static BufferedReader open(File f) throws IOException {
+        InputStream is = new FileInputStream(f);
+        try {
+            if (f.getName().toLowerCase().endsWith(".gz")) is = new GZIPInputStream(is, 1 << 16);
+        } catch (IOException ex) {
+            is.close();
+            throw ex;
+        }
+        return new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    /**
+     * Partial or final totals. Not thread-safe: each thread (stream split) fills its own, then they are
+     * {@link #merge merged}.
+     */
+    public static final class Totals {
+        private final List<String> days = new ArrayList<>();
+        private final Map<String, Integer> dayIndex = new HashMap<>();
+        private double[][] amounts = new double[0][];   // [day][ingredientId * UNITS + unit]
+        private long[][] uses = new long[0][];
+        private long plans;
+        private long rows;
+        private long unknownMeals;
+
+        public Totals add(WeeklyPlan plan) {
+            plans++;
+            for (Map.Entry<String, DayMeals> e : plan.mealsByDay().entrySet()) {
+                rows++;
+                int d = day(e.getKey());
+                for (MealSlot slot : SLOTS) {
+                    Meal m = e.getValue().get(slot);
+                    if (m != null) add(d, m);
+                }
+            }
+            return this;
+        }
+
+        void addRow(String line, int dayCol, int[] mealCols, MealCatalog catalog) {
+            if (line.isBlank()) return;
+            List<String> v = CsvUtil.splitLine(line);
+            if (v.size() <= dayCol) return;
+            rows++;
+            int d = day(v.get(dayCol));
+            for (int c : mealCols) {
+                int id = c < v.size() ? catalog.idOf(v.get(c)) : -1;
+                if (id < 0) unknownMeals++;
+                else add(d, catalog.meal(id));
+            }
+        }
+
+        private void add(int d, Meal meal) {
+            for (IngredientAmount a : meal.amounts()) {
+                int slot = a.id() * UNITS.length + a.unit().ordinal();
+                if (slot >= uses[d].length) grow(d, slot + 1);
+                amounts[d][slot] += a.amount();
+                uses[d][slot]++;
+            }
+        }
+
+        public Totals merge(Totals other) {
+            plans += other.plans;
+            rows += other.rows;
+            unknownMeals += other.unknownMeals;
+            for (int od = 0; od < other.days.size(); od++) {
+                int d = day(other.days.get(od));
+                double[] oa = other.amounts[od];
+                long[] ou = other.uses[od];
+                if (ou.length > uses[d].length) grow(d, ou.length);
+                for (int s = 0; s < ou.length; s++) {
+                    if (ou[s] == 0) continue;
+                    amounts[d][s] += oa[s];
+                    uses[d][s] += ou[s];
+                }
+            }
+            return this;
+        }
+
+        public long plans() { return plans; }
+        /** Plan days (CSV rows) added. */
+        public long rows() { return rows; }
+        public long unknownMeals() { return unknownMeals; }
+
+        /** Per-day lines: weekdays in week order, other day names alphabetically; ingredients alphabetically. */
+        public List<Line> lines() {
+            List<Line> out = new ArrayList<>();
+            for (String day : sortedDays()) {
+                int d = dayIndex.get(day);
+                collect(day, amounts[d], uses[d], out);
+            }
+            return out;
+        }
+
+        /** Totals over all days, with {@code day} = "All days". */
+        public List<Line> weekTotals() {
+            int width = 0;
+            for (long[] u : uses) width = Math.max(width, u.length);
+            double[] a = new double[width];
+            long[] u = new long[width];
+            for (int d = 0; d < days.size(); d++) {
+                for (int s = 0; s < uses[d].length; s++) {
+                    a[s] += amounts[d][s];
+                    u[s] += uses[d][s];
+                }
+            }
+            List<Line> out = new ArrayList<>();
+            collect("All days", a, u, out);
+            return out;
+        }
+
+        private static void collect(String day, double[] a, long[] u, List<Line> out) {
+            int from = out.size();
+            for (int s = 0; s < u.length; s++) {
+                if (u[s] > 0) out.add(new Line(day, IngredientAmount.nameOf(s / UNITS.length), a[s], UNITS[s % UNITS.length], u[s]));
+            }
+            out.subList(from, out.size()).sort(Comparator.comparing(Line::ingredient).thenComparing(Line::unit));
+        }
+
+        private List<String> sortedDays() {
+            List<String> sorted = new ArrayList<>(days);
+            sorted.sort(Comparator.comparingInt((String d) -> WEEK.indexOf(d) < 0 ? WEEK.size() : WEEK.indexOf(d))
+                    .thenComparing(Comparator.naturalOrder()));
+            return sorted;
+        }
+
+        private int day(String name) {
+            Integer d = dayIndex.get(name);
+            if (d != null) return d;
+            int n = days.size();
+            days.add(name);
+            dayIndex.put(name, n);
+            amounts = Arrays.copyOf(amounts, n + 1);
+            uses = Arrays.copyOf(uses, n + 1);
+            int width = Math.max(64, IngredientAmount.idCount() * UNITS.length);
+            amounts[n] = new double[width];
+            uses[n] = new long[width];
+            return n;
+        }
+
+        private void grow(int d, int min) {
+            int n = Math.max(min, uses[d].length * 2);
+            amounts[d] = Arrays.copyOf(amounts[d], n);
+            uses[d] = Arrays.copyOf(uses[d], n);
+        }
+    }
+}
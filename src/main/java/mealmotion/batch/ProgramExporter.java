@@ -0,0 +1,123 @@
+package mealmotion.batch;
+
+import mealmotion.gen.ExerciseLibrary;
+import mealmotion.gen.MealCatalog;
+import mealmotion.gen.MealProgram;
+import mealmotion.gen.WorkoutProgram;
+import mealmotion.model.DayMeals;
+import mealmotion.model.UserProfile;
+import mealmotion.model.WorkoutSession;
+import mealmotion.util.CsvWriter;
+import mealmotion.util.ProfileReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Streams multi-week programs for a file of profiles into one CSV, one row per profile, week and day:
+ * the day's meals from a {@link MealProgram} next to its workout from a {@link WorkoutProgram}.
+ *
+ * Profiles are read one at a time and each program's weeks are generated as they are written, so memory
+ * stays flat whatever the number of profiles or weeks. Like batch mode, each profile's random source is
+ * split from one seeded root in input order, so a seed reproduces every program.
+ */
+public final class ProgramExporter {
+    public static final String CSV_HEADER = "Profile,Week,Phase,TargetRPE,Day,Breakfast,Lunch,Dinner,Snack,DailyMealCalories,DailyMealProtein,Workout";
+    public static final int DEFAULT_WEEKS = 12;
+    private static final String USAGE = "Usage: --program <profiles.csv|profiles.jsonl> <out.csv[.gz]> [--weeks N] [--seed N]";
+
+    private ProgramExporter() {}
+
+    public record Result(long profiles, long weeks, long skippedLines, long elapsedNanos) {}
+
+    public static Result run(File input, File output, int weeks, long seed) throws IOException {
+        long start = System.nanoTime();
+        MealCatalog catalog = MealCatalog.configured();
+        ExerciseLibrary library = ExerciseLibrary.configured();
+        SplittableRandom root = new SplittableRandom(seed);
+        long profiles = 0;
+        long written = 0;
+        try (ProfileReader reader = ProfileReader.open(input);
+             CsvWriter w = CsvWriter.open(output, false)) {
+            w.raw(CSV_HEADER).endRow();
+            while (reader.hasNext()) {
+                UserProfile profile = reader.next();
+                SplittableRandom rng = root.split();
+                written += writeProgram(w, profile.name(), MealProgram.iterator(profile, catalog, weeks, rng.split()),
+                        WorkoutProgram.iterator(profile, library, weeks, rng));
+                profiles++;
+            }
+            return new Result(profiles, written, reader.skippedLines(), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Writes the remaining weeks of {@code meals} and {@code workouts} side by side under {@code profileName},
+     * stopping when either runs out; returns the number of weeks.
+     */
+    public static long writeProgram(CsvWriter w, String profileName, Iterator<Map<String, DayMeals>> meals,
+                                    Iterator<WorkoutProgram.Week> workouts) throws IOException {
+        long n = 0;
+        while (meals.hasNext() && workouts.hasNext()) {
+            Map<String, DayMeals> days = meals.next();
+            WorkoutProgram.Week week = workouts.next();
+            String phase = week.phase().name();
+            for (Map.Entry<String, DayMeals> e : days.entrySet()) {
+                DayMeals dm = e.getValue();
+                WorkoutSession ws = week.workouts().get(e.getKey());
+                w.field(profileName).field(week.number()).field(phase).field(week.targetRpe()).field(e.getKey())
+                        .field(dm.breakfast().name()).field(dm.lunch().name()).field(dm.dinner().name()).field(dm.snack().name())
+                        .field(dm.totalCalories()).field(dm.totalProteinGrams())
+                        .field(ws == null ? "" : ws.formatForCsv()).endRow();
+            }
+            n++;
+        }
+        return n;
+    }
+
+    /** CLI entry: {@code --program <profiles.csv|jsonl> <out.csv[.gz]> [--weeks N] [--seed N]}. */
+    public static void main(String[] args) {
+        if (args.length < 2) usageError(null);
+        int weeks = DEFAULT_WEEKS;
+        long seed = new SplittableRandom().nextLong();
+        for (int i = 2; i < args.length; i++) {
+            String flag = args[i];
+            if (i + 1 == args.length) usageError("Missing value for " + flag);
+            String value = args[++i];
+            try {
+                switch (flag) {
+                    case "--weeks" -> weeks = Integer.parseInt(value);
+                    case "--seed" -> seed = Long.parseLong(value);
+                    default -> usageError("Unknown option: " + flag);
+                }
+            } catch (NumberFormatException ex) {
+                usageError("Not a number for " + flag + ": " + value);
+            }
+        }
+        if (weeks < 0) usageError("--weeks must not be negative: " + weeks);
+        System.err.println("Seed: " + seed);
+        try {
+            Result r = run(new File(args[0]), new File(args[1]), weeks, seed);
+            System.err.printf("Done: %d programs, %d weeks in %.1f s, %d skipped lines%n",
+                    r.profiles(), r.weeks(), r.elapsedNanos() / 1e9, r.skippedLines());
+        } catch (IOException ex) {
+            System.err.println("Program export failed: " + ex.getMessage());
+            System.exit(1);
+        } catch (UncheckedIOException ex) {
+            // The profile reader reports read errors from hasNext()/next().
+            System.err.println("Program export failed: " + ex.getCause().getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** Prints {@code problem} (if any) and the usage line, and exits with status 2. */
+    private static void usageError(String problem) {
+        if (problem != null) System.err.println(problem);
+        System.err.println(USAGE);
+        System.exit(2);
+    }
+}
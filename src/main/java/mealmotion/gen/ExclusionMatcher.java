@@ -0,0 +1,194 @@
+package mealmotion.gen;
+
+import mealmotion.model.Meal;
+import mealmotion.model.UserProfile;
+
+import java.util.*;
+
+/**
+ * A profile's allergies and disliked foods compiled into one Aho–Corasick automaton.
+ *
+ * A meal is blocked when any term occurs (case-insensitively) in its name or in one of its
+ * ingredients, exactly like the old per-term {@code String.contains} scans, but each string is read
+ * once no matter how many terms the profile lists. {@link #forProfile} shares one matcher between all
+ * profiles with the same exclusion terms (the most recently used {@value #MAX_SHARED} sets are kept),
+ * and each matcher caches the "blocked" bitset of the catalog it last scanned, so an exclusion set pays
+ * for the scan once per catalog rather than once per generated week. That scan matches each distinct
+ * string of the catalog's string table once, straight from its UTF-8 bytes.
+ */
+public final class ExclusionMatcher {
+    private static final ExclusionMatcher NONE = new ExclusionMatcher(List.of());
+    private static final BitSet NOTHING_BLOCKED = new BitSet();
+    static final int MAX_SHARED = 256;
+    /** Lowercased, sorted, distinct terms to their matcher, least recently used first; guarded by itself. */
+    private static final Map<List<String>, ExclusionMatcher> SHARED = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final char[] alphabet;          // sorted distinct pattern chars; symbol = index + 1, 0 = any other char
+    private final int[] asciiSymbols;       // fast path for chars < 128
+    private final int[][] delta;            // full DFA: delta[state][symbol]
+    private final boolean[] accepting;
+
+    private MealCatalog cachedCatalog;      // guarded by this
+    private BitSet cachedBlocked;
+
+    private ExclusionMatcher(Collection<String> terms) {
+        Set<String> patterns = new LinkedHashSet<>();
+        for (String t : terms) {
+            if (t != null && !t.isEmpty()) patterns.add(t.toLowerCase());
+        }
+
+        TreeSet<Character> chars = new TreeSet<>();
+        for (String p : patterns) for (int i = 0; i < p.length(); i++) chars.add(p.charAt(i));
+        alphabet = new char[chars.size()];
+        int k = 0;
+        for (char c : chars) alphabet[k++] = c;
+        asciiSymbols = new int[128];
+        for (int i = 0; i < alphabet.length; i++) {
+            if (alphabet[i] < 128) asciiSymbols[alphabet[i]] = i + 1;
+        }
+
+        // Trie
+        int symbols = alphabet.length + 1;
+        List<int[]> next = new ArrayList<>();
+        List<Boolean> out = new ArrayList<>();
+        next.add(new int[symbols]);
+        out.add(false);
+        for (String p : patterns) {
+            int state = 0;
+            for (int i = 0; i < p.length(); i++) {
+                int a = symbol(p.charAt(i));
+                if (next.get(state)[a] == 0) {
+                    next.get(state)[a] = next.size();
+                    next.add(new int[symbols]);
+                    out.add(false);
+                }
+                state = next.get(state)[a];
+            }
+            out.set(state, true);
+        }
+
+        // Failure links folded into a full transition table (BFS order).
+        delta = next.toArray(new int[0][]);
+        accepting = new boolean[delta.length];
+        for (int s = 0; s < accepting.length; s++) accepting[s] = out.get(s);
+        int[] fail = new int[delta.length];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int a = 0; a < symbols; a++) {
+            if (delta[0][a] != 0) queue.add(delta[0][a]);
+        }
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            accepting[s] |= accepting[fail[s]];
+            for (int a = 0; a < symbols; a++) {
+                int t = delta[s][a];
+                if (t != 0) {
+                    fail[t] = delta[fail[s]][a];
+                    queue.add(t);
+                } else {
+                    delta[s][a] = delta[fail[s]][a];
+                }
+            }
+        }
+    }
+
+    public static ExclusionMatcher compile(Collection<String> terms) {
+        return terms.isEmpty() ? NONE : new ExclusionMatcher(terms);
+    }
+
+    /**
+     * The matcher for the profile's allergies and disliked foods, shared with every other profile that
+     * excludes the same terms (ignoring case and order).
+     */
+    public static ExclusionMatcher forProfile(UserProfile profile) {
+        TreeSet<String> terms = new TreeSet<>();
+        for (String t : profile.allergies()) if (t != null && !t.isEmpty()) terms.add(t.toLowerCase());
+        for (String t : profile.dislikedFoods()) if (t != null && !t.isEmpty()) terms.add(t.toLowerCase());
+        if (terms.isEmpty()) return NONE;
+        List<String> key = List.copyOf(terms);
+        synchronized (SHARED) {
+            ExclusionMatcher m = SHARED.get(key);
+            if (m != null) return m;
+        }
+        ExclusionMatcher compiled = new ExclusionMatcher(key);
+        synchronized (SHARED) {
+            ExclusionMatcher m = SHARED.putIfAbsent(key, compiled);
+            if (m != null) return m;
+            if (SHARED.size() > MAX_SHARED) {
+                Iterator<ExclusionMatcher> eldest = SHARED.values().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+            return compiled;
+        }
+    }
+
+    public boolean isEmpty() {
+        return delta.length == 1;
+    }
+
+    /** True if any term occurs in {@code text}, ignoring case. */
+    public boolean matches(CharSequence text) {
+        if (isEmpty() || text == null) return false;
+        int state = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            state = delta[state][symbol(Character.toLowerCase(text.charAt(i)))];
+            if (accepting[state]) return true;
+        }
+        return false;
+    }
+
+    /** True if any term occurs in {@code text[0..length)}, ignoring case. */
+    public boolean matches(char[] text, int length) {
+        if (isEmpty()) return false;
+        int state = 0;
+        for (int i = 0; i < length; i++) {
+            state = delta[state][symbol(Character.toLowerCase(text[i]))];
+            if (accepting[state]) return true;
+        }
+        return false;
+    }
+
+    /** True if any term occurs in the meal's name or in any of its ingredients. */
+    public boolean blocks(Meal meal) {
+        if (isEmpty()) return false;
+        if (matches(meal.name())) return true;
+        for (String ing : meal.ingredients()) if (matches(ing)) return true;
+        return false;
+    }
+
+    /**
+     * IDs of every meal in {@code catalog} this matcher blocks. Cached for the most recent catalog, and
+     * matchers are shared between threads; callers must not modify the returned set.
+     */
+    public synchronized BitSet blocked(MealCatalog catalog) {
+        if (isEmpty()) return NOTHING_BLOCKED;
+        if (cachedCatalog == catalog) return cachedBlocked;
+        BitSet blockedStrings = new BitSet(catalog.stringCount());
+        char[] buf = new char[64];
+        for (int sid = 0; sid < catalog.stringCount(); sid++) {
+            int len = catalog.decodeString(sid, buf);
+            if (len < 0) {
+                buf = new char[-len * 2];
+                len = catalog.decodeString(sid, buf);
+            }
+            if (matches(buf, len)) blockedStrings.set(sid);
+        }
+        BitSet blocked = new BitSet(catalog.size());
+        for (int id = 0; id < catalog.size(); id++) {
+            boolean hit = blockedStrings.get(catalog.nameRef(id));
+            for (int k = catalog.ingStart(id), end = catalog.ingEnd(id); !hit && k < end; k++) {
+                hit = blockedStrings.get(catalog.ingRef(k));
+            }
+            if (hit) blocked.set(id);
+        }
+        cachedCatalog = catalog;
+        cachedBlocked = blocked;
+        return blocked;
+    }
+
+    private int symbol(char c) {
+        if (c < 128) return asciiSymbols[c];
+        int i = Arrays.binarySearch(alphabet, c);
+        return i < 0 ? 0 : i + 1;
+    }
+}
@@ -0,0 +1,266 @@
+package mealmotion.gen;
+
+import mealmotion.model.*;
+import mealmotion.util.CsvUtil;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Immutable exercise library with a precomputed index per (equipment, move type, muscle group).
+ *
+ * Exercise IDs are positions in the library. Each index entry is an int array of the matching IDs,
+ * built once, so a session samples its exercises straight from the array ({@link #sample}) and costs
+ * the same whether the library holds thirty exercises or thirty thousand.
+ */
+public final class ExerciseLibrary {
+    private static final Equipment[] EQUIPMENT = Equipment.values();
+    private static final WorkoutMoveType[] TYPES = WorkoutMoveType.values();
+    private static final MuscleGroup[] GROUPS = MuscleGroup.values();
+    private static final int[] EMPTY = new int[0];
+
+    /** System property (or MEALMOTION_EXERCISES env var) naming an exercise CSV to use instead of the built-in library. */
+    public static final String LIBRARY_PROPERTY = "mealmotion.exercises";
+
+    /** One exercise: done with any of {@code equipment}, training every one of {@code groups}. */
+    public record Exercise(String name, WorkoutMoveType type, Set<Equipment> equipment, Set<MuscleGroup> groups) {
+        public Exercise {
+            Objects.requireNonNull(name, "name");
+            Objects.requireNonNull(type, "type");
+            equipment = Set.copyOf(equipment);
+            groups = Set.copyOf(groups);
+            if (equipment.isEmpty()) throw new IllegalArgumentException(name + ": no equipment");
+            if (groups.isEmpty()) throw new IllegalArgumentException(name + ": no muscle group");
+        }
+    }
+
+    private static final ExerciseLibrary BUILT_IN = of(List.of(
+            // Bodyweight
+            strength("Push-ups", eq(Equipment.NONE), MuscleGroup.UPPER, MuscleGroup.PUSH, MuscleGroup.FULL_BODY),
+            strength("Pike push-ups", eq(Equipment.NONE), MuscleGroup.UPPER, MuscleGroup.PUSH),
+            strength("Inverted rows (under table)", eq(Equipment.NONE), MuscleGroup.UPPER, MuscleGroup.PULL),
+            strength("Chair dips", eq(Equipment.NONE), MuscleGroup.UPPER, MuscleGroup.PUSH),
+            strength("Superman holds", eq(Equipment.NONE), MuscleGroup.UPPER, MuscleGroup.PULL),
+            strength("Diamond push-ups", eq(Equipment.NONE), MuscleGroup.PUSH),
+            strength("Towel rows", eq(Equipment.NONE), MuscleGroup.PULL),
+            strength("Biceps isometrics", eq(Equipment.NONE), MuscleGroup.PULL),
+            strength("Bodyweight squats", eq(Equipment.NONE), MuscleGroup.LOWER, MuscleGroup.FULL_BODY),
+            strength("Lunges", eq(Equipment.NONE), MuscleGroup.LOWER, MuscleGroup.FULL_BODY),
+            strength("Glute bridge", eq(Equipment.NONE), MuscleGroup.LOWER, MuscleGroup.FULL_BODY),
+            strength("Step-ups", eq(Equipment.NONE), MuscleGroup.LOWER),
+            strength("Calf raises", eq(Equipment.NONE, Equipment.DUMBBELLS), MuscleGroup.LOWER),
+            strength("Burpees", eq(Equipment.NONE), MuscleGroup.FULL_BODY),
+            strength("Mountain climbers", eq(Equipment.NONE), MuscleGroup.FULL_BODY),
+
+            // Dumbbells
+            strength("Dumbbell bench press", eq(Equipment.DUMBBELLS), MuscleGroup.UPPER, MuscleGroup.PUSH),
+            strength("One-arm dumbbell row", eq(Equipment.DUMBBELLS), MuscleGroup.UPPER, MuscleGroup.PULL),
+            strength("Dumbbell shoulder press", eq(Equipment.DUMBBELLS), MuscleGroup.UPPER, MuscleGroup.PUSH),
+            strength("Dumbbell curls", eq(Equipment.DUMBBELLS), MuscleGroup.UPPER, MuscleGroup.PULL),
+            strength("Triceps extensions", eq(Equipment.DUMBBELLS), MuscleGroup.UPPER, MuscleGroup.PUSH),
+            strength("Dumbbell fly", eq(Equipment.DUMBBELLS), MuscleGroup.PUSH),
+            strength("Rear delt raises", eq(Equipment.DUMBBELLS), MuscleGroup.PULL),
+            strength("Hammer curls", eq(Equipment.DUMBBELLS), MuscleGroup.PULL),
+            strength("Goblet squat", eq(Equipment.DUMBBELLS), MuscleGroup.LOWER, MuscleGroup.FULL_BODY),
+            strength("Romanian deadlift (DB)", eq(Equipment.DUMBBELLS), MuscleGroup.LOWER, MuscleGroup.FULL_BODY),
+            strength("Walking lunges", eq(Equipment.DUMBBELLS), MuscleGroup.LOWER),
+            strength("Hip thrust", eq(Equipment.DUMBBELLS, Equipment.FULL_GYM), MuscleGroup.LOWER),
+            strength("Dumbbell row", eq(Equipment.DUMBBELLS), MuscleGroup.FULL_BODY),
+            strength("Dumbbell press", eq(Equipment.DUMBBELLS), MuscleGroup.FULL_BODY),
+            strength("Dumbbell thrusters", eq(Equipment.DUMBBELLS), MuscleGroup.FULL_BODY),
+            strength("Farmer carry", eq(Equipment.DUMBBELLS), MuscleGroup.FULL_BODY),
+
+            // Gym
+            strength("Bench press", eq(Equipment.FULL_GYM), MuscleGroup.UPPER, MuscleGroup.PUSH, MuscleGroup.FULL_BODY),
+            strength("Lat pulldown", eq(Equipment.FULL_GYM), MuscleGroup.UPPER, MuscleGroup.PULL, MuscleGroup.FULL_BODY),
+            strength("Seated row", eq(Equipment.FULL_GYM), MuscleGroup.UPPER, MuscleGroup.PULL),
+            strength("Incline dumbbell press", eq(Equipment.FULL_GYM), MuscleGroup.UPPER),
+            strength("Cable fly", eq(Equipment.FULL_GYM), MuscleGroup.UPPER, MuscleGroup.PUSH),
+            strength("Triceps dips", eq(Equipment.FULL_GYM), MuscleGroup.UPPER),
+            strength("Biceps curls", eq(Equipment.FULL_GYM), MuscleGroup.UPPER, MuscleGroup.PULL),
+            strength("Incline bench press", eq(Equipment.FULL_GYM), MuscleGroup.PUSH),
+            strength("Overhead press", eq(Equipment.FULL_GYM), MuscleGroup.PUSH, MuscleGroup.FULL_BODY),
+            strength("Triceps pushdown", eq(Equipment.FULL_GYM), MuscleGroup.PUSH),
+            strength("Barbell row", eq(Equipment.FULL_GYM), MuscleGroup.PULL),
+            strength("Face pulls", eq(Equipment.FULL_GYM), MuscleGroup.PULL),
+            strength("Back squat", eq(Equipment.FULL_GYM), MuscleGroup.LOWER),
+            strength("Deadlift", eq(Equipment.FULL_GYM), MuscleGroup.LOWER, MuscleGroup.FULL_BODY),
+            strength("Leg press", eq(Equipment.FULL_GYM), MuscleGroup.LOWER),
+            strength("Hamstring curl", eq(Equipment.FULL_GYM), MuscleGroup.LOWER),
+            strength("Leg extension", eq(Equipment.FULL_GYM), MuscleGroup.LOWER),
+            strength("Squat", eq(Equipment.FULL_GYM), MuscleGroup.FULL_BODY),
+            strength("Row", eq(Equipment.FULL_GYM), MuscleGroup.FULL_BODY),
+
+            // Cardio
+            new Exercise("Brisk walk / Jog", WorkoutMoveType.CARDIO, eq(Equipment.NONE, Equipment.DUMBBELLS), Set.of(MuscleGroup.FULL_BODY)),
+            new Exercise("Treadmill / Bike", WorkoutMoveType.CARDIO, eq(Equipment.FULL_GYM), Set.of(MuscleGroup.FULL_BODY))
+    ));
+
+    private static volatile ExerciseLibrary configured;
+
+    private final String[] names;
+    private final int[][] index; // by key(equipment, type, group)
+
+    private ExerciseLibrary(List<Exercise> exercises) {
+        int n = exercises.size();
+        names = new String[n];
+        int[] counts = new int[EQUIPMENT.length * TYPES.length * GROUPS.length];
+        for (int id = 0; id < n; id++) {
+            Exercise e = exercises.get(id);
+            names[id] = e.name();
+            for (Equipment eq : e.equipment()) {
+                for (MuscleGroup g : e.groups()) counts[key(eq, e.type(), g)]++;
+            }
+        }
+        index = new int[counts.length][];
+        for (int k = 0; k < counts.length; k++) index[k] = counts[k] == 0 ? EMPTY : new int[counts[k]];
+        int[] fill = new int[counts.length];
+        for (int id = 0; id < n; id++) {
+            Exercise e = exercises.get(id);
+            for (Equipment eq : e.equipment()) {
+                for (MuscleGroup g : e.groups()) {
+                    int k = key(eq, e.type(), g);
+                    index[k][fill[k]++] = id;
+                }
+            }
+        }
+    }
+
+    private static int key(Equipment eq, WorkoutMoveType type, MuscleGroup group) {
+        return (eq.ordinal() * TYPES.length + type.ordinal()) * GROUPS.length + group.ordinal();
+    }
+
+    public static ExerciseLibrary of(List<Exercise> exercises) {
+        return new ExerciseLibrary(List.copyOf(exercises));
+    }
+
+    /** The built-in library. */
+    public static ExerciseLibrary builtIn() {
+        return BUILT_IN;
+    }
+
+    /**
+     * The library named by the {@value #LIBRARY_PROPERTY} system property or the MEALMOTION_EXERCISES
+     * environment variable, loaded once; the built-in library if neither is set or the file can't be read.
+     */
+    public static ExerciseLibrary configured() {
+        ExerciseLibrary l = configured;
+        if (l != null) return l;
+        synchronized (ExerciseLibrary.class) {
+            if (configured != null) return configured;
+            String path = System.getProperty(LIBRARY_PROPERTY, System.getenv("MEALMOTION_EXERCISES"));
+            l = BUILT_IN;
+            if (path != null && !path.isBlank()) {
+                try {
+                    l = load(Path.of(path));
+                } catch (IOException | RuntimeException ex) {
+                    System.err.println("Could not load exercise library " + path + " (" + ex.getMessage() + "); using the built-in library.");
+                }
+            }
+            configured = l;
+            return l;
+        }
+    }
+
+    /**
+     * Reads a library from CSV. The CSV needs a header row with {@code name,type,equipment,groups}; type is
+     * one of STRENGTH/CARDIO/CORE/MOBILITY, and equipment (NONE/DUMBBELLS/FULL_GYM) and muscle groups
+     * (UPPER/LOWER/PUSH/PULL/FULL_BODY) are separated by ';'.
+     */
+    public static ExerciseLibrary load(Path csv) throws IOException {
+        List<Exercise> exercises = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String line = in.readLine();
+            if (line == null) throw new IOException("empty exercise CSV");
+            Map<String, Integer> col = new HashMap<>();
+            List<String> header = CsvUtil.splitLine(line);
+            for (int i = 0; i < header.size(); i++) col.put(header.get(i), i);
+            for (String required : List.of("name", "type", "equipment", "groups")) {
+                if (!col.containsKey(required)) throw new IOException("exercise CSV is missing column '" + required + "'");
+            }
+            int lineNo = 1;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) continue;
+                List<String> v = CsvUtil.splitLine(line);
+                try {
+                    exercises.add(new Exercise(
+                            field(v, col, "name"),
+                            WorkoutMoveType.valueOf(field(v, col, "type").toUpperCase()),
+                            enums(Equipment.class, field(v, col, "equipment")),
+                            enums(MuscleGroup.class, field(v, col, "groups"))
+                    ));
+                } catch (RuntimeException ex) {
+                    throw new IOException("bad exercise row at line " + lineNo + ": " + ex.getMessage(), ex);
+                }
+            }
+        }
+        return of(exercises);
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    /** Number of exercises for (equipment, type, group). */
+    public int count(Equipment eq, WorkoutMoveType type, MuscleGroup group) {
+        return index[key(eq, type, group)].length;
+    }
+
+    /**
+     * Writes up to {@code k} distinct exercise IDs for (equipment, type, group), in random order, into
+     * {@code out} and returns how many it wrote. Equipment with nothing to offer falls back to bodyweight
+     * exercises. Uses Floyd's algorithm, so the cost is O(k²) in the sample size and independent of how
+     * many exercises match.
+     */
+    int sample(Equipment eq, WorkoutMoveType type, MuscleGroup group, int k, SplittableRandom rng, int[] out) {
+        int[] ids = index[key(eq, type, group)];
+        if (ids.length == 0) ids = index[key(Equipment.NONE, type, group)];
+        int n = ids.length;
+        k = Math.min(k, n);
+        for (int j = n - k, c = 0; j < n; j++, c++) {
+            int t = rng.nextInt(j + 1);
+            for (int i = 0; i < c; i++) {
+                if (out[i] == t) { t = j; break; }
+            }
+            out[c] = t;
+        }
+        // Floyd picks a uniform subset but not a uniform order.
+        for (int i = k - 1; i > 0; i--) {
+            int r = rng.nextInt(i + 1);
+            int tmp = out[i]; out[i] = out[r]; out[r] = tmp;
+        }
+        for (int i = 0; i < k; i++) out[i] = ids[out[i]];
+        return k;
+    }
+
+    private static Exercise strength(String name, Set<Equipment> equipment, MuscleGroup... groups) {
+        return new Exercise(name, WorkoutMoveType.STRENGTH, equipment, Set.of(groups));
+    }
+
+    private static Set<Equipment> eq(Equipment... equipment) {
+        return Set.of(equipment);
+    }
+
+    private static String field(List<String> values, Map<String, Integer> col, String name) {
+        Integer i = col.get(name);
+        return i == null || i >= values.size() ? "" : values.get(i);
+    }
+
+    private static <E extends Enum<E>> Set<E> enums(Class<E> type, String s) {
+        EnumSet<E> out = EnumSet.noneOf(type);
+        for (String part : s.split(";")) {
+            String t = part.trim();
+            if (!t.isEmpty()) out.add(Enum.valueOf(type, t.toUpperCase().replace('-', '_').replace(' ', '_')));
+        }
+        return out;
+    }
+}
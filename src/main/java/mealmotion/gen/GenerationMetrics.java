@@ -0,0 +1,230 @@
+package mealmotion.gen;
+
+import mealmotion.model.DayMeals;
+import mealmotion.model.MealSlot;
+import mealmotion.model.UserProfile;
+import mealmotion.util.Histogram;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide counters and histograms for the generators, published as a platform MXBean (see
+ * {@link GenerationMetricsMXBean}) for JConsole, VisualVM or any JMX client.
+ *
+ * Recording is cheap enough to leave on. Each generating thread records into its own {@link Recorder}
+ * with plain, unsynchronized increments, and per-selection counts are kept in the {@link SelectionKernel}
+ * and added once per week; the threads' recorders are only summed when a client reads an attribute, so
+ * what it sees may trail the generators by a moment. Counts are exact, but only one call in
+ * {@value #TIMING_SAMPLE} per thread is timed, as reading the clock costs more than the rest put together. Setting the {@value #PROPERTY} system property to
+ * {@code false} turns recording off altogether.
+ */
+public final class GenerationMetrics implements GenerationMetricsMXBean {
+    public static final String PROPERTY = "mealmotion.metrics";
+    public static final String OBJECT_NAME = "mealmotion:type=GenerationMetrics";
+    static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty(PROPERTY));
+
+    private static final MealSlot[] SLOTS = MealSlot.values();
+
+    // Counter indexes; the diet fallbacks for each slot follow FALLBACKS.
+    private static final int PLANS = 0, SELECTIONS = 1, SCORED = 2, REPEAT_HITS = 3, FALLBACKS = 4;
+    private static final int COUNTERS = FALLBACKS + SLOTS.length;
+    // Histogram indexes; the first three are also the timers passed to startTimer.
+    static final int PLAN_TIMER = 0, MEAL_TIMER = 1, WORKOUT_TIMER = 2;
+    private static final int POOL = 3, CALORIE_ERROR = 4, PROTEIN_ERROR = 5;
+    private static final int HISTOGRAMS = 6;
+    static final int TIMING_SAMPLE = 16;
+
+    private static final GenerationMetrics INSTANCE = new GenerationMetrics();
+    private static final ThreadLocal<Recorder> LOCAL = ThreadLocal.withInitial(INSTANCE::register);
+
+    private final List<Recorder> live = new ArrayList<>();
+    private final Recorder retired = new Recorder(null); // totals of threads that have ended
+    private Recorder baseline = new Recorder(null);       // totals at the last reset()
+
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+            } catch (JMException | SecurityException ex) {
+                // Already registered by another class loader, or JMX is locked down: record anyway.
+            }
+        }
+    }
+
+    private GenerationMetrics() {}
+
+    public static GenerationMetrics get() {
+        return INSTANCE;
+    }
+
+    /** One thread's counts. Only the owning thread writes; readers copy under the registry lock. */
+    private static final class Recorder {
+        final WeakReference<Thread> owner;
+        final long[] counters = new long[COUNTERS];
+        final long[] buckets = new long[HISTOGRAMS * Histogram.BUCKETS]; // histogram h at h * BUCKETS
+        final long[] totals = new long[HISTOGRAMS];
+        final long[] max = new long[HISTOGRAMS];
+        final int[] untilTimed = {1, 1, 1}; // calls until each timer's next sample
+
+        Recorder(Thread owner) {
+            this.owner = new WeakReference<>(owner);
+        }
+
+        void time(int timer, long start) {
+            if (start != 0) record(timer, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+
+        void record(int histogram, long value) {
+            long v = Math.max(0, value);
+            buckets[histogram * Histogram.BUCKETS + Histogram.bucket(v)]++;
+            totals[histogram] += v;
+            if (v > max[histogram]) max[histogram] = v;
+        }
+
+        void add(Recorder other, int sign) {
+            for (int i = 0; i < COUNTERS; i++) counters[i] += sign * other.counters[i];
+            for (int b = 0; b < buckets.length; b++) buckets[b] += sign * other.buckets[b];
+            for (int h = 0; h < HISTOGRAMS; h++) {
+                totals[h] += sign * other.totals[h];
+                max[h] = Math.max(max[h], other.max[h]);
+            }
+        }
+    }
+
+    /** Also retires finished threads, so pools that churn threads don't grow the list while nobody reads it. */
+    private synchronized Recorder register() {
+        retireFinished();
+        Recorder r = new Recorder(Thread.currentThread());
+        live.add(r);
+        return r;
+    }
+
+    /** Everything recorded since the last reset. */
+    private synchronized Recorder totals() {
+        retireFinished();
+        Recorder sum = new Recorder(null);
+        sum.add(retired, 1);
+        for (Recorder r : live) sum.add(r, 1);
+        sum.add(baseline, -1);
+        return sum;
+    }
+
+    /** Folds the recorders of finished threads into {@code retired} and drops them. */
+    private void retireFinished() {
+        for (Iterator<Recorder> it = live.iterator(); it.hasNext(); ) {
+            Recorder r = it.next();
+            Thread t = r.owner.get();
+            if (t == null || !t.isAlive()) {
+                retired.add(r, 1);
+                it.remove();
+            }
+        }
+    }
+
+    // ---------- Recording (called by the generators) ----------
+
+    /**
+     * {@link System#nanoTime()} if this call is one of the sampled ones for {@code timer}, else 0. Pass the
+     * result back to the matching recording method, which records the elapsed time when it's non-zero.
+     */
+    static long startTimer(int timer) {
+        Recorder r = LOCAL.get();
+        if (--r.untilTimed[timer] > 0) return 0;
+        r.untilTimed[timer] = TIMING_SAMPLE;
+        return System.nanoTime();
+    }
+
+    /** A finished plan, with each day's distance from the profile's calorie and protein targets. */
+    static void planBuilt(long start, UserProfile profile, Collection<DayMeals> days) {
+        Recorder r = LOCAL.get();
+        r.counters[PLANS]++;
+        r.time(PLAN_TIMER, start);
+        int calories = profile.targetCalories();
+        int protein = profile.proteinTargetGrams();
+        for (DayMeals day : days) {
+            r.record(CALORIE_ERROR, Math.abs(day.totalCalories() - calories));
+            r.record(PROTEIN_ERROR, Math.abs(day.totalProteinGrams() - protein));
+        }
+    }
+
+    /** One week of greedy meal selection, with the kernel's counts since its last flush. */
+    static void mealWeek(long start, SelectionKernel kernel) {
+        Recorder r = LOCAL.get();
+        r.time(MEAL_TIMER, start);
+        r.counters[SELECTIONS] += kernel.selections;
+        r.counters[SCORED] += kernel.scored;
+        r.counters[REPEAT_HITS] += kernel.repeatHits;
+        kernel.selections = kernel.scored = kernel.repeatHits = 0;
+    }
+
+    static void workoutWeek(long start) {
+        LOCAL.get().time(WORKOUT_TIMER, start);
+    }
+
+    /**
+     * A week's candidate sets, indexed by {@link MealSlot#ordinal()}; bit {@code 1 << ordinal} of
+     * {@code dietIgnored} is set for slots that needed the ignore-diet fallback.
+     */
+    static void candidatePools(BitSet[] bySlot, int dietIgnored) {
+        Recorder r = LOCAL.get();
+        for (int i = 0; i < bySlot.length; i++) {
+            r.record(POOL, bySlot[i].cardinality());
+            if ((dietIgnored & 1 << i) != 0) r.counters[FALLBACKS + i]++;
+        }
+    }
+
+    // ---------- MXBean ----------
+
+    @Override public long getPlansBuilt() { return totals().counters[PLANS]; }
+    @Override public Map<String, Long> getPlanBuildMicros() { return map(totals(), PLAN_TIMER); }
+    @Override public Map<String, Long> getMealWeekMicros() { return map(totals(), MEAL_TIMER); }
+    @Override public Map<String, Long> getWorkoutWeekMicros() { return map(totals(), WORKOUT_TIMER); }
+    @Override public long getMealSelections() { return totals().counters[SELECTIONS]; }
+    @Override public long getCandidatesScored() { return totals().counters[SCORED]; }
+    @Override public long getRepeatPenaltyHits() { return totals().counters[REPEAT_HITS]; }
+    @Override public Map<String, Long> getCandidatePoolSize() { return map(totals(), POOL); }
+    @Override public Map<String, Long> getDayCalorieError() { return map(totals(), CALORIE_ERROR); }
+    @Override public Map<String, Long> getDayProteinError() { return map(totals(), PROTEIN_ERROR); }
+
+    @Override
+    public Map<String, Long> getDietFallbacks() {
+        Recorder t = totals();
+        Map<String, Long> out = new LinkedHashMap<>();
+        for (MealSlot slot : SLOTS) out.put(slot.name(), t.counters[FALLBACKS + slot.ordinal()]);
+        return out;
+    }
+
+    /** Counts start again from zero. The generators' recorders aren't touched: later reads subtract these totals. */
+    @Override
+    public synchronized void reset() {
+        Recorder now = totals();
+        now.add(baseline, 1);
+        baseline = now;
+    }
+
+    private static Map<String, Long> map(Recorder t, int histogram) {
+        long[] counts = Arrays.copyOfRange(t.buckets, histogram * Histogram.BUCKETS, (histogram + 1) * Histogram.BUCKETS);
+        // The max since a reset isn't kept; the top non-empty bucket bounds it.
+        long max = 0;
+        for (int b = counts.length - 1; b >= 0; b--) {
+            if (counts[b] > 0) {
+                max = Math.min(Histogram.upperBound(b), t.max[histogram]);
+                break;
+            }
+        }
+        Histogram.Snapshot s = Histogram.summarize(counts, t.totals[histogram], max);
+        Map<String, Long> out = new LinkedHashMap<>();
+        out.put("count", s.count());
+        out.put("mean", Math.round(s.mean()));
+        out.put("p50", s.p50());
+        out.put("p90", s.p90());
+        out.put("p99", s.p99());
+        out.put("max", s.max());
+        return out;
+    }
+}
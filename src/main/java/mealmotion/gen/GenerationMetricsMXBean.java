@@ -0,0 +1,47 @@
+package mealmotion.gen;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link GenerationMetrics}, registered as {@value GenerationMetrics#OBJECT_NAME}.
+ *
+ * Distributions are maps with {@code count}, {@code mean}, {@code p50}, {@code p90}, {@code p99} and
+ * {@code max}; percentiles are within 25% of the true value. The {@code ...Micros} timings are sampled (one
+ * call in {@value GenerationMetrics#TIMING_SAMPLE} per thread), so their {@code count} is the number of
+ * samples; everything else is exact. Everything counts from startup or the last {@link #reset}.
+ */
+public interface GenerationMetricsMXBean {
+    long getPlansBuilt();
+
+    /** Whole-plan build time ({@code PlanBuilder.build}), in microseconds. */
+    Map<String, Long> getPlanBuildMicros();
+
+    /** Time to pick a week of meals ({@code MealGenerator.generateWeeklyMeals}), in microseconds. */
+    Map<String, Long> getMealWeekMicros();
+
+    /** Time to lay out a week of workouts ({@code WorkoutGenerator.generateWeeklyWorkouts}), in microseconds. */
+    Map<String, Long> getWorkoutWeekMicros();
+
+    /** Meals picked by the greedy generator. */
+    long getMealSelections();
+
+    /** Candidates scored across all selections; divided by selections, the work per pick. */
+    long getCandidatesScored();
+
+    /** Candidates that got the repeat penalty for having been picked within the recent window. */
+    long getRepeatPenaltyHits();
+
+    /** Candidate-pool size per slot and week, after diet, allergy and dislike filtering. */
+    Map<String, Long> getCandidatePoolSize();
+
+    /** Per slot: weeks where filtering left no candidates and diet was ignored to fill the slot. */
+    Map<String, Long> getDietFallbacks();
+
+    /** Per generated day, |day calories - target calories|. */
+    Map<String, Long> getDayCalorieError();
+
+    /** Per generated day, |day protein - target protein| in grams. */
+    Map<String, Long> getDayProteinError();
+
+    void reset();
+}
@@ -0,0 +1,293 @@
+package mealmotion.gen;
+
+import mealmotion.model.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable meal catalog with a precomputed candidate index per (diet, slot).
+ *
+ * Meal IDs are positions in the catalog. Each (diet, slot) pair maps to a bitset of matching IDs,
+ * so selection never has to rescan the whole catalog. Every catalog is a view over the columnar
+ * {@link MealCatalogFile} layout: built-in and {@link #of(List)} catalogs are encoded into a heap
+ * buffer, catalogs loaded with {@link #open(Path)} are memory-mapped, and {@link Meal} objects of a
+ * mapped catalog are only decoded when a plan actually uses them.
+ */
+public final class MealCatalog {
+    // Must be initialized before BUILT_IN, whose constructor uses them.
+    private static final DietPreference[] DIETS = DietPreference.values();
+    private static final MealSlot[] SLOTS = MealSlot.values();
+    private static final Unit[] UNITS = Unit.values();
+
+    /** System property (or MEALMOTION_CATALOG env var) naming a binary catalog file to use instead of the built-in list. */
+    public static final String CATALOG_PROPERTY = "mealmotion.catalog";
+
+    private static final MealCatalog BUILT_IN = of(List.of(
+            // Breakfast
+            meal("Oatmeal + Berries", MealSlot.BREAKFAST, 340, 12, true, true, true, true, "80 g oats", "100 g berries", "1 tsp cinnamon", "15 g chia"),
+            meal("Greek Yogurt Parfait", MealSlot.BREAKFAST, 360, 24, true, true, false, true, "200 g greek yogurt", "1 tbsp honey", "80 g berries", "40 g granola"),
+            meal("Avocado Toast", MealSlot.BREAKFAST, 380, 12, true, true, true, false, "2 bread", "1/2 avocado", "1 tomato", "1 tsp olive oil"),
+            meal("Eggs + Spinach", MealSlot.BREAKFAST, 330, 22, true, true, false, true, "3 eggs", "60 g spinach", "1 tsp olive oil"),
+            meal("Vegan Protein Smoothie", MealSlot.BREAKFAST, 420, 28, true, true, true, true, "1 banana", "30 g spinach", "30 g pea protein", "300 ml almond milk", "1 tbsp peanut butter"),
+
+            // Lunch
+            meal("Chicken Salad Bowl", MealSlot.LUNCH, 520, 42, true, false, false, true, "150 g chicken", "80 g lettuce", "1 tomato", "1/2 cucumber", "1 tbsp olive oil"),
+            meal("Halal Chicken Wrap", MealSlot.LUNCH, 560, 38, true, false, false, false, "140 g halal chicken", "1 tortilla", "40 g lettuce", "3 tbsp yogurt sauce"),
+            meal("Quinoa Chickpea Bowl", MealSlot.LUNCH, 540, 22, true, true, true, true, "80 g quinoa", "120 g chickpeas", "40 g spinach", "1/2 lemon"),
+            meal("Tuna + Rice Bowl", MealSlot.LUNCH, 590, 40, true, false, false, true, "120 g tuna", "90 g rice", "1/2 cucumber", "1 tbsp soy sauce"),
+            meal("Veggie Hummus Wrap", MealSlot.LUNCH, 480, 18, true, true, true, false, "1 tortilla", "60 g hummus", "1 carrot", "1/2 cucumber"),
+
+            // Dinner
+            meal("Salmon + Veggies", MealSlot.DINNER, 620, 42, true, false, false, true, "180 g salmon", "200 g broccoli", "1/2 lemon", "1 tbsp olive oil"),
+            meal("Beef Stir Fry", MealSlot.DINNER, 680, 45, true, false, false, true, "170 g beef", "1 pepper", "1/2 onion", "90 g rice", "1 tbsp soy sauce"),
+            meal("Tofu Stir Fry", MealSlot.DINNER, 560, 28, true, true, true, true, "200 g tofu", "150 g broccoli", "90 g rice", "1 tbsp soy sauce"),
+            meal("Vegan Lentil Curry", MealSlot.DINNER, 610, 26, true, true, true, true, "100 g lentils", "2 tomato", "120 ml coconut milk", "spices", "70 g rice"),
+            meal("Gluten-Free Turkey Chili", MealSlot.DINNER, 630, 44, true, false, false, true, "170 g turkey", "120 g beans", "2 tomato", "spices"),
+
+            // Snacks
+            meal("Apple + Peanut Butter", MealSlot.SNACK, 240, 7, true, true, true, true, "1 apple", "2 tbsp peanut butter"),
+            meal("Carrots + Hummus", MealSlot.SNACK, 200, 7, true, true, true, true, "2 carrot", "60 g hummus"),
+            meal("Trail Mix", MealSlot.SNACK, 260, 8, true, true, true, true, "30 g nuts", "20 g raisins"),
+            meal("Protein Bar", MealSlot.SNACK, 220, 20, true, true, false, false, "1 protein bar"),
+            meal("Cottage Cheese + Fruit", MealSlot.SNACK, 240, 18, true, true, false, true, "150 g cottage cheese", "80 g berries")
+    ));
+
+    private static volatile MealCatalog configured;
+
+    private final int size;
+    private final int stringCount;
+    private final long version;
+    private final IntBuffer calories;
+    private final IntBuffer protein;
+    private final ByteBuffer flags;
+    private final IntBuffer nameRef;
+    private final IntBuffer ingStart;
+    private final IntBuffer ingRefs;
+    private final IntBuffer strOffsets;
+    private final ByteBuffer strBytes;
+    private final LongBuffer index;
+    private final IntBuffer ingAmounts;                   // null for version 1 files
+    private final int words;
+
+    private final List<Meal> materialized;               // the source meals, for in-memory catalogs
+    private final Map<Integer, Meal> decoded;            // lazily decoded meals, for mapped catalogs
+    private volatile Map<String, Integer> idsByName;     // built on first idOf
+    private volatile Map<Meal, Integer> idsByMeal;       // identity map for in-memory catalogs, built on first use
+
+    MealCatalog(ByteBuffer file, List<Meal> materialized) {
+        ByteBuffer buf = file.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (buf.capacity() < MealCatalogFile.HEADER_BYTES || buf.getInt(0) != MealCatalogFile.MAGIC) {
+            throw new IllegalArgumentException("not a MealMotion catalog file");
+        }
+        int formatVersion = buf.getInt(4);
+        if (formatVersion < MealCatalogFile.MIN_FORMAT_VERSION || formatVersion > MealCatalogFile.FORMAT_VERSION) {
+            throw new IllegalArgumentException("unsupported catalog format version " + formatVersion);
+        }
+        this.size = buf.getInt(8);
+        this.stringCount = buf.getInt(12);
+        this.version = buf.getLong(16);
+        int[] off = new int[MealCatalogFile.SECTIONS];
+        for (int s = 0; s < MealCatalogFile.SECTIONS; s++) off[s] = buf.getInt(24 + 4 * s);
+        this.words = (size + 63) >>> 6;
+        this.calories = section(buf, off, MealCatalogFile.CALORIES, 4L * size).asIntBuffer();
+        this.protein = section(buf, off, MealCatalogFile.PROTEIN, 4L * size).asIntBuffer();
+        this.flags = section(buf, off, MealCatalogFile.FLAGS, size);
+        this.nameRef = section(buf, off, MealCatalogFile.NAME_REF, 4L * size).asIntBuffer();
+        this.ingStart = section(buf, off, MealCatalogFile.ING_START, 4L * (size + 1)).asIntBuffer();
+        int ingCount = ingStart.get(size);
+        this.ingRefs = section(buf, off, MealCatalogFile.ING_REFS, 4L * ingCount).asIntBuffer();
+        this.strOffsets = section(buf, off, MealCatalogFile.STR_OFFSETS, 4L * (stringCount + 1)).asIntBuffer();
+        this.strBytes = section(buf, off, MealCatalogFile.STR_BYTES, strOffsets.get(stringCount));
+        this.index = section(buf, off, MealCatalogFile.INDEX, 8L * words * (DIETS.length * SLOTS.length + SLOTS.length)).asLongBuffer();
+        this.ingAmounts = formatVersion >= 2 ? section(buf, off, MealCatalogFile.ING_AMOUNT, 4L * ingCount).asIntBuffer() : null;
+        this.materialized = materialized;
+        this.decoded = materialized == null ? new ConcurrentHashMap<>() : null;
+    }
+
+    private static ByteBuffer section(ByteBuffer buf, int[] off, int section, long length) {
+        if (off[section] + length > buf.capacity()) throw new IllegalArgumentException("truncated catalog file");
+        return buf.slice(off[section], (int) length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public static MealCatalog of(List<Meal> meals) {
+        List<Meal> copy = List.copyOf(meals);
+        return new MealCatalog(MealCatalogFile.encode(copy), copy);
+    }
+
+    /** Memory-maps a binary catalog written by {@link MealCatalogFile}. */
+    public static MealCatalog open(Path file) throws IOException {
+        return MealCatalogFile.open(file);
+    }
+
+    /** The built-in 20-meal catalog. */
+    public static MealCatalog builtIn() {
+        return BUILT_IN;
+    }
+
+    /**
+     * The catalog named by the {@value #CATALOG_PROPERTY} system property or the MEALMOTION_CATALOG
+     * environment variable, opened once; the built-in catalog if neither is set or the file can't be opened.
+     */
+    public static MealCatalog configured() {
+        MealCatalog c = configured;
+        if (c != null) return c;
+        synchronized (MealCatalog.class) {
+            if (configured != null) return configured;
+            String path = System.getProperty(CATALOG_PROPERTY, System.getenv("MEALMOTION_CATALOG"));
+            c = BUILT_IN;
+            if (path != null && !path.isBlank()) {
+                try {
+                    c = open(Path.of(path));
+                } catch (IOException | RuntimeException ex) {
+                    System.err.println("Could not open meal catalog " + path + " (" + ex.getMessage() + "); using the built-in catalog.");
+                }
+            }
+            configured = c;
+            return c;
+        }
+    }
+
+    private static Meal meal(String name, MealSlot slot, int calories, int protein, boolean halal, boolean vegetarian, boolean vegan, boolean glutenFree, String... ingredients) {
+        List<String> ing = new ArrayList<>();
+        for (String s : ingredients) ing.add(s.toLowerCase());
+        return new Meal(name, slot, calories, protein, halal, vegetarian, vegan, glutenFree, ing);
+    }
+
+    public int size() { return size; }
+    public int calories(int id) { return calories.get(id); }
+    public int protein(int id) { return protein.get(id); }
+
+    /** CRC32 of the catalog contents; identical catalogs have identical versions. */
+    public long version() { return version; }
+
+    public Meal meal(int id) {
+        if (materialized != null) return materialized.get(id);
+        Objects.checkIndex(id, size);
+        return decoded.computeIfAbsent(id, this::decode);
+    }
+
+    /**
+     * ID of the meal called {@code name} (the first one, if several share it), or -1. The name index is
+     * built from the string table on first use.
+     */
+    public int idOf(String name) {
+        Map<String, Integer> ids = idsByName;
+        if (ids == null) {
+            Map<String, Integer> built = new HashMap<>(size * 4 / 3 + 1);
+            for (int id = size - 1; id >= 0; id--) built.put(string(nameRef.get(id)), id);
+            idsByName = ids = built;
+        }
+        return ids.getOrDefault(name, -1);
+    }
+
+    /**
+     * ID of {@code meal} in this catalog, or -1. Exact for meals obtained from this catalog; other meals
+     * are matched by name.
+     */
+    public int idOf(Meal meal) {
+        if (materialized != null) {
+            Map<Meal, Integer> ids = idsByMeal;
+            if (ids == null) {
+                Map<Meal, Integer> built = new IdentityHashMap<>(size);
+                for (int id = 0; id < size; id++) built.put(materialized.get(id), id);
+                idsByMeal = ids = built;
+            }
+            Integer id = ids.get(meal);
+            if (id != null) return id;
+        }
+        return idOf(meal.name());
+    }
+
+    /** All meals, as a list view; meals of a mapped catalog are decoded as they are accessed. */
+    public List<Meal> meals() {
+        if (materialized != null) return materialized;
+        return new AbstractList<>() {
+            @Override public Meal get(int id) { return meal(id); }
+            @Override public int size() { return size; }
+        };
+    }
+
+    private Meal decode(int id) {
+        int f = flags.get(id);
+        List<IngredientAmount> ing = new ArrayList<>(ingEnd(id) - ingStart(id));
+        for (int k = ingStart(id); k < ingEnd(id); k++) {
+            String name = string(ingRefs.get(k));
+            if (ingAmounts == null) {
+                ing.add(new IngredientAmount(name, 1, Unit.SERVING));
+            } else {
+                int w = ingAmounts.get(k);
+                ing.add(new IngredientAmount(name, (w >>> 2) / 1000.0, UNITS[w & 3]));
+            }
+        }
+        return Meal.withAmounts(string(nameRef.get(id)), SLOTS[(f >>> MealCatalogFile.SLOT_SHIFT) & 3], calories.get(id), protein.get(id),
+                (f & MealCatalogFile.FLAG_HALAL) != 0, (f & MealCatalogFile.FLAG_VEGETARIAN) != 0,
+                (f & MealCatalogFile.FLAG_VEGAN) != 0, (f & MealCatalogFile.FLAG_GLUTEN_FREE) != 0, ing);
+    }
+
+    private String string(int sid) {
+        int start = strOffsets.get(sid);
+        byte[] b = new byte[strOffsets.get(sid + 1) - start];
+        strBytes.get(start, b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /** IDs of meals for {@code slot} matching {@code diet}. Returns a fresh copy the caller may modify. */
+    public BitSet candidates(DietPreference diet, MealSlot slot) {
+        DietPreference d = diet == null ? DietPreference.NONE : diet;
+        return bitset(d.ordinal() * SLOTS.length + slot.ordinal());
+    }
+
+    /** IDs of every meal for {@code slot}, regardless of diet. Returns a fresh copy the caller may modify. */
+    public BitSet slot(MealSlot slot) {
+        return bitset(DIETS.length * SLOTS.length + slot.ordinal());
+    }
+
+    private BitSet bitset(int n) {
+        return BitSet.valueOf(index.slice(n * words, words));
+    }
+
+    // ---------- Raw access for the selection kernel and exclusion matcher ----------
+    // Shared, not copied: callers must not modify them.
+
+    IntBuffer caloriesColumn() { return calories; }
+    IntBuffer proteinColumn() { return protein; }
+
+    int stringCount() { return stringCount; }
+    int nameRef(int id) { return nameRef.get(id); }
+    int ingStart(int id) { return ingStart.get(id); }
+    int ingEnd(int id) { return ingStart.get(id + 1); }
+    int ingRef(int k) { return ingRefs.get(k); }
+
+    /**
+     * Decodes string {@code sid} (UTF-8) into {@code out} without allocating, returning its length in
+     * chars, or the negated required length if {@code out} is too small.
+     */
+    int decodeString(int sid, char[] out) {
+        int p = strOffsets.get(sid), end = strOffsets.get(sid + 1);
+        int n = 0;
+        while (p < end) {
+            int b = strBytes.get(p++) & 0xFF;
+            int cp;
+            if (b < 0x80) cp = b;
+            else if (b < 0xE0) cp = ((b & 0x1F) << 6) | (strBytes.get(p++) & 0x3F);
+            else if (b < 0xF0) { cp = ((b & 0x0F) << 12) | ((strBytes.get(p) & 0x3F) << 6) | (strBytes.get(p + 1) & 0x3F); p += 2; }
+            else { cp = ((b & 0x07) << 18) | ((strBytes.get(p) & 0x3F) << 12) | ((strBytes.get(p + 1) & 0x3F) << 6) | (strBytes.get(p + 2) & 0x3F); p += 3; }
+            if (cp >= 0x10000) {
+                if (n + 2 <= out.length) { out[n] = Character.highSurrogate(cp); out[n + 1] = Character.lowSurrogate(cp); }
+                n += 2;
+            } else {
+                if (n < out.length) out[n] = (char) cp;
+                n++;
+            }
+        }
+        return n <= out.length ? n : -n;
+    }
+}
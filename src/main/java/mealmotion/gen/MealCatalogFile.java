@@ -0,0 +1,272 @@
+package mealmotion.gen;
+
+import mealmotion.model.*;
+import mealmotion.util.CsvUtil;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Binary, memory-mappable meal catalog format.
+ *
+ * All numbers are little-endian. After a 64-byte header come 8-byte aligned sections:
+ * <pre>
+ *   CALORIES    int[meals]
+ *   PROTEIN     int[meals]
+ *   FLAGS       byte[meals]     bit0 halal, bit1 vegetarian, bit2 vegan, bit3 gluten-free, bits4-5 slot
+ *   NAME_REF    int[meals]      string ID of the meal name
+ *   ING_START   int[meals + 1]  meal i's ingredient string IDs are ING_REFS[ING_START[i] .. ING_START[i+1])
+ *   ING_REFS    int[]
+ *   STR_OFFSETS int[strings + 1]
+ *   STR_BYTES   byte[]          UTF-8, deduplicated (names and ingredients share the table)
+ *   INDEX       long[words] per (diet, slot) pair, then per slot: the candidate bitsets
+ *   ING_AMOUNT  int[]           parallel to ING_REFS: thousandths of the base unit &lt;&lt; 2 | unit ordinal (since version 2)
+ * </pre>
+ * The header holds the magic, format version, counts, a CRC32 of everything after the header (used as
+ * the catalog version) and the section offsets. Opening a file only maps it; nothing is parsed or
+ * copied, so startup cost doesn't depend on catalog size and every JVM mapping the same file shares
+ * the OS page cache. Version 1 files (no ING_AMOUNT) are still readable; their ingredients count as one
+ * serving each.
+ */
+public final class MealCatalogFile {
+    static final int MAGIC = 0x54434D4D; // "MMCT" little-endian
+    static final int FORMAT_VERSION = 2;
+    static final int MIN_FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 64;
+
+    static final int CALORIES = 0, PROTEIN = 1, FLAGS = 2, NAME_REF = 3, ING_START = 4, ING_REFS = 5,
+            STR_OFFSETS = 6, STR_BYTES = 7, INDEX = 8, ING_AMOUNT = 9, SECTIONS = 10;
+
+    static final int FLAG_HALAL = 1, FLAG_VEGETARIAN = 2, FLAG_VEGAN = 4, FLAG_GLUTEN_FREE = 8, SLOT_SHIFT = 4;
+
+    private MealCatalogFile() {}
+
+    /** Maps a catalog file read-only. */
+    public static MealCatalog open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed.
+            ByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            MealCatalog catalog = new MealCatalog(buf, null);
+            // The generators need at least one candidate per slot, even after every fallback.
+            if (catalog.size() == 0) throw new IOException("catalog file has no meals: " + file);
+            return catalog;
+        }
+    }
+
+    public static void write(List<Meal> meals, Path file) throws IOException {
+        if (meals.isEmpty()) throw new IOException("a catalog needs at least one meal");
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = encode(meals);
+            while (buf.hasRemaining()) ch.write(buf);
+            ch.force(true);
+        }
+        Files.move(tmp, file, java.nio.file.StandardCopyOption.REPLACE_EXISTING, java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Converts a plain CSV catalog to the binary format. The CSV needs a header row with
+     * {@code name,slot,calories,protein,halal,vegetarian,vegan,glutenFree,ingredients}; ingredients are
+     * separated by ';' and may carry amounts ("80 g oats;1 banana;olive oil"). Returns the number of
+     * meals written.
+     */
+    public static int convertCsv(Path csv, Path out) throws IOException {
+        List<Meal> meals = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String line = in.readLine();
+            if (line == null) throw new IOException("empty catalog CSV");
+            Map<String, Integer> col = new HashMap<>();
+            List<String> header = CsvUtil.splitLine(line);
+            for (int i = 0; i < header.size(); i++) col.put(header.get(i), i);
+            for (String required : List.of("name", "slot", "calories", "protein")) {
+                if (!col.containsKey(required)) throw new IOException("catalog CSV is missing column '" + required + "'");
+            }
+            int lineNo = 1;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) continue;
+                List<String> v = CsvUtil.splitLine(line);
+                try {
+                    meals.add(new Meal(
+                            field(v, col, "name"),
+                            slot(field(v, col, "slot")),
+                            Integer.parseInt(field(v, col, "calories")),
+                            Integer.parseInt(field(v, col, "protein")),
+                            Boolean.parseBoolean(field(v, col, "halal")),
+                            Boolean.parseBoolean(field(v, col, "vegetarian")),
+                            Boolean.parseBoolean(field(v, col, "vegan")),
+                            Boolean.parseBoolean(field(v, col, "glutenFree")),
+                            ingredients(field(v, col, "ingredients"))
+                    ));
+                } catch (RuntimeException ex) {
+                    throw new IOException("bad catalog row at line " + lineNo + ": " + ex.getMessage(), ex);
+                }
+            }
+        }
+        if (meals.isEmpty()) throw new IOException("catalog CSV has no meals");
+        write(meals, out);
+        return meals.size();
+    }
+
+    /** CLI entry: {@code --convert-catalog <catalog.csv> <catalog.bin>}. */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: --convert-catalog <catalog.csv> <catalog.bin>");
+            System.exit(2);
+        }
+        try {
+            int n = convertCsv(Path.of(args[0]), Path.of(args[1]));
+            System.err.println("Wrote " + n + " meals to " + args[1]);
+        } catch (IOException ex) {
+            System.err.println("Conversion failed: " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static String field(List<String> values, Map<String, Integer> col, String name) {
+        Integer i = col.get(name);
+        return i == null || i >= values.size() ? "" : values.get(i);
+    }
+
+    private static MealSlot slot(String s) {
+        for (MealSlot slot : MealSlot.values()) {
+            if (slot.name().equalsIgnoreCase(s) || slot.label().equalsIgnoreCase(s)) return slot;
+        }
+        throw new IllegalArgumentException("unknown slot: " + s);
+    }
+
+    private static List<String> ingredients(String s) {
+        List<String> out = new ArrayList<>();
+        for (String part : s.split(";")) {
+            String t = part.trim().toLowerCase();
+            if (!t.isEmpty()) out.add(t);
+        }
+        return out;
+    }
+
+    // ---------- Encoding ----------
+
+    /** Encodes meals into the file layout (heap buffer, positioned at 0). */
+    static ByteBuffer encode(List<Meal> meals) {
+        int n = meals.size();
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int[] nameRef = new int[n];
+        int[] ingStart = new int[n + 1];
+        int ingCount = 0;
+        for (Meal m : meals) ingCount += m.ingredients().size();
+        int[] ingRefs = new int[ingCount];
+        int[] ingAmounts = new int[ingCount];
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            Meal m = meals.get(i);
+            nameRef[i] = intern(m.name(), stringIds, strings);
+            ingStart[i] = k;
+            for (IngredientAmount a : m.amounts()) {
+                ingAmounts[k] = amountWord(a);
+                ingRefs[k++] = intern(a.name(), stringIds, strings);
+            }
+        }
+        ingStart[n] = k;
+        int[] strOffsets = new int[strings.size() + 1];
+        int strBytes = 0;
+        for (int i = 0; i < strings.size(); i++) {
+            strOffsets[i] = strBytes;
+            strBytes += strings.get(i).length;
+        }
+        strOffsets[strings.size()] = strBytes;
+
+        int words = (n + 63) >>> 6;
+        int bitsets = DietPreference.values().length * MealSlot.values().length + MealSlot.values().length;
+        long[] sizes = new long[SECTIONS];
+        sizes[CALORIES] = 4L * n;
+        sizes[PROTEIN] = 4L * n;
+        sizes[FLAGS] = n;
+        sizes[NAME_REF] = 4L * n;
+        sizes[ING_START] = 4L * (n + 1);
+        sizes[ING_REFS] = 4L * ingCount;
+        sizes[STR_OFFSETS] = 4L * strOffsets.length;
+        sizes[STR_BYTES] = strBytes;
+        sizes[INDEX] = 8L * words * bitsets;
+        sizes[ING_AMOUNT] = 4L * ingCount;
+        int[] offsets = new int[SECTIONS];
+        long pos = HEADER_BYTES;
+        for (int s = 0; s < SECTIONS; s++) {
+            offsets[s] = Math.toIntExact(pos);
+            pos = align8(pos + sizes[s]);
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(Math.toIntExact(pos)).order(ByteOrder.LITTLE_ENDIAN);
+        MealSlot[] slots = MealSlot.values();
+        DietPreference[] diets = DietPreference.values();
+        long[][] index = new long[bitsets][words];
+        for (int i = 0; i < n; i++) {
+            Meal m = meals.get(i);
+            int slot = Objects.requireNonNull(m.slot(), "meal slot").ordinal();
+            buf.putInt(offsets[CALORIES] + 4 * i, m.calories());
+            buf.putInt(offsets[PROTEIN] + 4 * i, m.proteinGrams());
+            buf.put(offsets[FLAGS] + i, (byte) flags(m, slot));
+            buf.putInt(offsets[NAME_REF] + 4 * i, nameRef[i]);
+            for (DietPreference d : diets) {
+                if (m.matchesDiet(d)) index[d.ordinal() * slots.length + slot][i >>> 6] |= 1L << i;
+            }
+            index[diets.length * slots.length + slot][i >>> 6] |= 1L << i;
+        }
+        for (int i = 0; i <= n; i++) buf.putInt(offsets[ING_START] + 4 * i, ingStart[i]);
+        for (int i = 0; i < ingCount; i++) buf.putInt(offsets[ING_REFS] + 4 * i, ingRefs[i]);
+        for (int i = 0; i < ingCount; i++) buf.putInt(offsets[ING_AMOUNT] + 4 * i, ingAmounts[i]);
+        for (int i = 0; i < strOffsets.length; i++) buf.putInt(offsets[STR_OFFSETS] + 4 * i, strOffsets[i]);
+        for (int i = 0; i < strings.size(); i++) buf.put(offsets[STR_BYTES] + strOffsets[i], strings.get(i));
+        for (int b = 0; b < bitsets; b++) {
+            for (int w = 0; w < words; w++) buf.putLong(offsets[INDEX] + 8 * (b * words + w), index[b][w]);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buf.slice(HEADER_BYTES, buf.capacity() - HEADER_BYTES));
+        buf.putInt(0, MAGIC);
+        buf.putInt(4, FORMAT_VERSION);
+        buf.putInt(8, n);
+        buf.putInt(12, strings.size());
+        buf.putLong(16, crc.getValue());
+        for (int s = 0; s < SECTIONS; s++) buf.putInt(24 + 4 * s, offsets[s]);
+        return buf;
+    }
+
+    static final int MAX_MILLI_AMOUNT = (1 << 29) - 1;
+
+    /** Amount packed as thousandths of the base unit (capped) plus the unit ordinal in the low 2 bits. */
+    static int amountWord(IngredientAmount a) {
+        long milli = Math.min(MAX_MILLI_AMOUNT, Math.max(0, Math.round(a.amount() * 1000)));
+        return (int) milli << 2 | a.unit().ordinal();
+    }
+
+    private static int flags(Meal m, int slot) {
+        int f = slot << SLOT_SHIFT;
+        if (m.matchesDiet(DietPreference.HALAL)) f |= FLAG_HALAL;
+        if (m.matchesDiet(DietPreference.VEGETARIAN)) f |= FLAG_VEGETARIAN;
+        if (m.matchesDiet(DietPreference.VEGAN)) f |= FLAG_VEGAN;
+        if (m.matchesDiet(DietPreference.GLUTEN_FREE)) f |= FLAG_GLUTEN_FREE;
+        return f;
+    }
+
+    private static int intern(String s, Map<String, Integer> ids, List<byte[]> strings) {
+        Integer id = ids.get(s);
+        if (id != null) return id;
+        ids.put(s, strings.size());
+        strings.add(s.getBytes(StandardCharsets.UTF_8));
+        return strings.size() - 1;
+    }
+
+    private static long align8(long v) {
+        return (v + 7) & ~7L;
+    }
+}
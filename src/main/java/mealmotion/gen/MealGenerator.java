@@ -1,122 +1,101 @@
 package mealmotion.gen;
 
 import mealmotion.model.*;
+import mealmotion.util.PlanEvents;
 
 import java.util.*;
 
 public final class MealGenerator {
     private MealGenerator() {}
 
-    private static final List<Meal> CATALOG = List.of(
-            // Breakfast
-            meal("Oatmeal + Berries", 340, 12, true, true, true, true, "oats", "berries", "cinnamon", "chia"),
-            meal("Greek Yogurt Parfait", 360, 24, true, true, false, true, "greek yogurt", "honey", "berries", "granola"),
-            meal("Avocado Toast", 380, 12, true, true, true, false, "bread", "avocado", "tomato", "olive oil"),
-            meal("Eggs + Spinach", 330, 22, true, true, false, true, "eggs", "spinach", "olive oil"),
-            meal("Vegan Protein Smoothie", 420, 28, true, true, true, true, "banana", "spinach", "pea protein", "almond milk", "peanut butter"),
+    static final String[] DAYS = {"Monday","Tuesday","Wednesday","Thursday","Friday","Saturday","Sunday"};
 
-            // Lunch
-            meal("Chicken Salad Bowl", 520, 42, true, false, false, true, "chicken", "lettuce", "tomato", "cucumber", "olive oil"),
-            meal("Halal Chicken Wrap", 560, 38, true, false, false, false, "halal chicken", "tortilla", "lettuce", "yogurt sauce"),
-            meal("Quinoa Chickpea Bowl", 540, 22, true, true, true, true, "quinoa", "chickpeas", "spinach", "lemon"),
-            meal("Tuna + Rice Bowl", 590, 40, true, false, false, true, "tuna", "rice", "cucumber", "soy sauce"),
-            meal("Veggie Hummus Wrap", 480, 18, true, true, true, false, "tortilla", "hummus", "carrot", "cucumber"),
-
-            // Dinner
-            meal("Salmon + Veggies", 620, 42, true, false, false, true, "salmon", "broccoli", "lemon", "olive oil"),
-            meal("Beef Stir Fry", 680, 45, true, false, false, true, "beef", "pepper", "onion", "rice", "soy sauce"),
-            meal("Tofu Stir Fry", 560, 28, true, true, true, true, "tofu", "broccoli", "rice", "soy sauce"),
-            meal("Vegan Lentil Curry", 610, 26, true, true, true, true, "lentils", "tomato", "coconut milk", "spices", "rice"),
-            meal("Gluten-Free Turkey Chili", 630, 44, true, false, false, true, "turkey", "beans", "tomato", "spices"),
-
-            // Snacks
-            meal("Apple + Peanut Butter", 240, 7, true, true, true, true, "apple", "peanut butter"),
-            meal("Carrots + Hummus", 200, 7, true, true, true, true, "carrot", "hummus"),
-            meal("Trail Mix", 260, 8, true, true, true, true, "nuts", "raisins"),
-            meal("Protein Bar", 220, 20, true, true, false, false, "protein bar"),
-            meal("Cottage Cheese + Fruit", 240, 18, true, true, false, true, "cottage cheese", "berries")
-    );
+    public static Map<String, DayMeals> generateWeeklyMeals(UserProfile profile) {
+        return generateWeeklyMeals(profile, MealCatalog.configured());
+    }
 
-    private static Meal meal(String name, int calories, int protein, boolean halal, boolean vegetarian, boolean vegan, boolean glutenFree, String... ingredients) {
-        List<String> ing = new ArrayList<>();
-        for (String s : ingredients) ing.add(s.toLowerCase());
-        return new Meal(name, calories, protein, halal, vegetarian, vegan, glutenFree, ing);
+    public static Map<String, DayMeals> generateWeeklyMeals(UserProfile profile, MealCatalog catalog) {
+        return generateWeeklyMeals(profile, catalog, new SplittableRandom());
     }
 
-    public static Map<String, DayMeals> generateWeeklyMeals(UserProfile profile) {
+    /** Same profile, catalog and random state give the same week. {@code r} is consumed, not shared. */
+    public static Map<String, DayMeals> generateWeeklyMeals(UserProfile profile, MealCatalog catalog, SplittableRandom r) {
         Objects.requireNonNull(profile, "profile");
-        String[] days = {"Monday","Tuesday","Wednesday","Thursday","Friday","Saturday","Sunday"};
-        Random r = new Random();
+        Objects.requireNonNull(catalog, "catalog");
+        Objects.requireNonNull(r, "r");
+        long start = GenerationMetrics.ENABLED ? GenerationMetrics.startTimer(GenerationMetrics.MEAL_TIMER) : 0;
 
-        int target = profile.targetCalories();
-        // Simple day split
-        int breakfastTarget = (int) Math.round(target * 0.25);
-        int lunchTarget = (int) Math.round(target * 0.30);
-        int dinnerTarget = (int) Math.round(target * 0.30);
-        int snackTarget = target - breakfastTarget - lunchTarget - dinnerTarget;
+        SelectionKernel kernel = new SelectionKernel(catalog, proteinWeight(profile)); // also avoids repeats over the last N picks
+        Map<String, DayMeals> plan = week(catalog, kernel, candidatesBySlot(catalog, profile), slotTargets(profile), r);
+        if (GenerationMetrics.ENABLED) GenerationMetrics.mealWeek(start, kernel);
+        return plan;
+    }
 
-        Map<String, DayMeals> plan = new LinkedHashMap<>();
-        Deque<String> recent = new ArrayDeque<>(); // avoid repeats over last N selections
+    /** One week of picks through {@code kernel}, which keeps whatever it remembers for the next call. */
+    static Map<String, DayMeals> week(MealCatalog catalog, SelectionKernel kernel, BitSet[] candidates, int[] slotTargets, SplittableRandom r) {
+        int breakfastTarget = slotTargets[MealSlot.BREAKFAST.ordinal()];
+        int lunchTarget = slotTargets[MealSlot.LUNCH.ordinal()];
+        int dinnerTarget = slotTargets[MealSlot.DINNER.ordinal()];
+        int snackTarget = slotTargets[MealSlot.SNACK.ordinal()];
 
-        for (String day : days) {
-            Meal breakfast = selectMeal(breakfastTarget, profile, r, recent, Set.of("Breakfast"));
-            Meal lunch = selectMeal(lunchTarget, profile, r, recent, Set.of("Lunch"));
-            Meal dinner = selectMeal(dinnerTarget, profile, r, recent, Set.of("Dinner"));
-            Meal snack = selectMeal(snackTarget, profile, r, recent, Set.of("Snack"));
+        Map<String, DayMeals> plan = new LinkedHashMap<>();
+        for (String day : DAYS) {
+            Meal breakfast = catalog.meal(kernel.select(candidates[MealSlot.BREAKFAST.ordinal()], breakfastTarget, r));
+            Meal lunch = catalog.meal(kernel.select(candidates[MealSlot.LUNCH.ordinal()], lunchTarget, r));
+            Meal dinner = catalog.meal(kernel.select(candidates[MealSlot.DINNER.ordinal()], dinnerTarget, r));
+            Meal snack = catalog.meal(kernel.select(candidates[MealSlot.SNACK.ordinal()], snackTarget, r));
 
             plan.put(day, new DayMeals(breakfast, lunch, dinner, snack));
         }
-
         return plan;
     }
 
-    private static Meal selectMeal(int targetCalories, UserProfile profile, Random r, Deque<String> recent, Set<String> slotTags) {
-        List<Meal> candidates = new ArrayList<>();
-        for (Meal m : CATALOG) {
-            if (!m.matchesDiet(profile.dietPreference())) continue;
-            if (blockedByPreferences(m, profile)) continue;
-            candidates.add(m);
-        }
-        if (candidates.isEmpty()) {
-            // Fallback: ignore diet if we filtered too hard
-            candidates.addAll(CATALOG);
-        }
-
-        // Score and pick among top 5 for variety.
-        candidates.sort(Comparator.comparingDouble(m -> score(m, targetCalories, profile, recent)));
-        int pickPool = Math.min(5, candidates.size());
-        Meal chosen = candidates.get(r.nextInt(pickPool));
-
-        // Track recently used meals (name-based)
-        recent.addLast(chosen.name());
-        while (recent.size() > 8) recent.removeFirst();
-
-        return chosen;
+    /** Calorie target per slot (indexed by {@link MealSlot#ordinal()}): a simple 25/30/30/15 day split. */
+    static int[] slotTargets(UserProfile profile) {
+        int target = profile.targetCalories();
+        int breakfast = (int) Math.round(target * 0.25);
+        int lunch = (int) Math.round(target * 0.30);
+        int dinner = (int) Math.round(target * 0.30);
+        return new int[] {breakfast, lunch, dinner, target - breakfast - lunch - dinner};
     }
 
-    private static boolean blockedByPreferences(Meal meal, UserProfile profile) {
-        String name = meal.name().toLowerCase();
-        for (String bad : profile.dislikedFoods()) {
-            if (bad.isEmpty()) continue;
-            if (name.contains(bad)) return true;
-            for (String ing : meal.ingredients()) if (ing.contains(bad)) return true;
+    /**
+     * Candidate IDs per slot (indexed by {@link MealSlot#ordinal()}) for one profile: the catalog's
+     * diet/slot index minus anything the profile's allergies or dislikes block. Computed once per week
+     * and shared by every selection.
+     */
+    static BitSet[] candidatesBySlot(MealCatalog catalog, UserProfile profile) {
+        PlanEvents.CandidateFiltering event = new PlanEvents.CandidateFiltering();
+        event.begin();
+        BitSet blocked = ExclusionMatcher.forProfile(profile).blocked(catalog);
+        MealSlot[] slots = MealSlot.values();
+        BitSet[] out = new BitSet[slots.length];
+        int dietIgnored = 0;
+        for (MealSlot slot : slots) {
+            BitSet ids = catalog.candidates(profile.dietPreference(), slot);
+            ids.andNot(blocked);
+            if (ids.isEmpty()) {
+                dietIgnored |= 1 << slot.ordinal();
+                // Fallback: ignore diet if we filtered too hard
+                ids = catalog.slot(slot);
+                if (ids.isEmpty()) ids.set(0, catalog.size());
+            }
+            out[slot.ordinal()] = ids;
         }
-        for (String allergy : profile.allergies()) {
-            if (allergy.isEmpty()) continue;
-            if (name.contains(allergy)) return true;
-            for (String ing : meal.ingredients()) if (ing.contains(allergy)) return true;
+        if (GenerationMetrics.ENABLED) GenerationMetrics.candidatePools(out, dietIgnored);
+        event.end();
+        if (event.shouldCommit()) {
+            PlanEvents.describe(event, profile);
+            for (BitSet ids : out) event.candidates += ids.cardinality();
+            event.dietIgnoredSlots = Integer.bitCount(dietIgnored);
+            event.catalogSize = catalog.size();
+            event.commit();
         }
-        return false;
+        return out;
     }
 
-    private static double score(Meal meal, int targetCalories, UserProfile profile, Deque<String> recent) {
-        double caloriePenalty = Math.abs(meal.calories() - targetCalories);
-        // nudge protein up a bit, especially for bulk/lean
-        double proteinBonus = meal.proteinGrams() * (profile.bodyGoal() == BodyGoal.BULK ? 2.0 : 1.2);
-
-        double repeatPenalty = recent.contains(meal.name()) ? 250.0 : 0.0;
-
-        return caloriePenalty - proteinBonus + repeatPenalty;
+    /** Weight of protein grams in the selection score: nudged up a bit, especially for bulk. */
+    static double proteinWeight(UserProfile profile) {
+        return profile.bodyGoal() == BodyGoal.BULK ? 2.0 : 1.2;
     }
 }
-
@@ -0,0 +1,343 @@
+package mealmotion.gen;
+
+import mealmotion.model.*;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Optimizing meal generation: searches for the week whose daily totals come closest to both
+ * {@link UserProfile#targetCalories()} and {@link UserProfile#proteinTargetGrams()}, under the same
+ * variety rule as the greedy generator (a meal picked within the last {@link SelectionKernel#RECENT_WINDOW}
+ * picks is penalized).
+ *
+ * It is an anytime search. Each round widens the per-slot candidate pools (8, 16, 32, ... meals),
+ * finds the best whole days by meet-in-the-middle branch and bound on a fork-join pool, then assembles
+ * the week from those days by beam search. When the latency budget runs out, the best week from the
+ * last completed round is returned; the first round always completes so there is always a plan.
+ */
+public final class MealPlanOptimizer {
+    static final int FIRST_POOL = 8;
+    static final int MAX_POOL = 512;
+    static final int DAY_OPTIONS = 96;
+    static final int BEAM_WIDTH = 32;
+    /** Cost of repeating a recent meal, in the same units as the daily error (relative deviation). */
+    static final double REPEAT_COST = 0.5;
+
+    private static final int AB_CHUNK = 2048;
+    private static final int DEADLINE_CHECK_MASK = 255;
+
+    private MealPlanOptimizer() {}
+
+    /**
+     * @param meanDailyError mean over the week of |calories - target| / target + |protein - target| / target
+     * @param rounds         search rounds completed within the budget
+     * @param exhaustive     true if the last round considered every candidate meal, so more time wouldn't help
+     */
+    public record Result(Map<String, DayMeals> mealsByDay, double meanDailyError, int rounds, boolean exhaustive, long elapsedNanos) {}
+
+    public static Result optimize(UserProfile profile, MealCatalog catalog, Duration budget) {
+        return optimize(profile, catalog, budget, ForkJoinPool.commonPool());
+    }
+
+    public static Result optimize(UserProfile profile, MealCatalog catalog, Duration budget, ForkJoinPool pool) {
+        Objects.requireNonNull(profile, "profile");
+        Objects.requireNonNull(catalog, "catalog");
+        long start = System.nanoTime();
+        long deadline = start + Math.max(0, budget.toNanos());
+
+        Targets t = new Targets(Math.max(1, profile.targetCalories()), Math.max(1, profile.proteinTargetGrams()));
+        BitSet[] candidates = MealGenerator.candidatesBySlot(catalog, profile);
+        int[] slotTargets = MealGenerator.slotTargets(profile);
+
+        Week best = null;
+        int rounds = 0;
+        boolean exhaustive = false;
+        for (int size = FIRST_POOL; ; size *= 2) {
+            long roundDeadline = rounds == 0 ? Long.MAX_VALUE : deadline;
+            int[][] pools = new int[MealSlot.values().length][];
+            boolean all = true;
+            for (MealSlot slot : MealSlot.values()) {
+                int s = slot.ordinal();
+                pools[s] = slotPool(catalog, candidates[s], slotTargets[s], t, size);
+                all &= pools[s].length == candidates[s].cardinality();
+            }
+
+            DayOption[] days = pool.invoke(new BestDays(catalog, pools, t, roundDeadline));
+            if (days == null) break; // out of time mid-round
+            Week w = assembleWeek(days, roundDeadline);
+            if (w == null) break;
+            rounds++;
+            if (best == null || w.cost < best.cost) best = w;
+            exhaustive = all;
+            if (all || size >= MAX_POOL || System.nanoTime() - deadline >= 0) break;
+        }
+
+        Map<String, DayMeals> plan = new LinkedHashMap<>();
+        for (int d = 0; d < MealGenerator.DAYS.length; d++) {
+            int[] ids = best.days[d].ids;
+            plan.put(MealGenerator.DAYS[d], new DayMeals(catalog.meal(ids[0]), catalog.meal(ids[1]), catalog.meal(ids[2]), catalog.meal(ids[3])));
+        }
+        double error = 0;
+        for (DayOption d : best.days) error += d.cost;
+        return new Result(plan, error / best.days.length, rounds, exhaustive, System.nanoTime() - start);
+    }
+
+    private record Targets(int calories, int protein) {
+        double cost(int cal, int prot) {
+            return Math.abs(cal - calories) / (double) calories + Math.abs(prot - protein) / (double) protein;
+        }
+    }
+
+    private record DayOption(int[] ids, double cost) {}
+
+    private record Week(DayOption[] days, double cost) {}
+
+    // ---------- Candidate pools ----------
+
+    /**
+     * Up to {@code size} meals for one slot: half closest to the slot's calorie share, half with the
+     * best protein for their calories, so combinations can fix both totals.
+     */
+    private static int[] slotPool(MealCatalog catalog, BitSet candidates, int slotTarget, Targets t, int size) {
+        if (candidates.cardinality() <= size) return candidates.stream().toArray();
+        int half = size / 2;
+        int[] byCalories = topK(candidates, half, id -> Math.abs(catalog.calories(id) - slotTarget));
+        int[] byProtein = topK(candidates, size - half, id ->
+                Math.abs(catalog.calories(id) - slotTarget) / (double) t.calories - catalog.protein(id) / (double) t.protein);
+        BitSet picked = new BitSet();
+        for (int id : byCalories) picked.set(id);
+        for (int id : byProtein) picked.set(id);
+        return picked.stream().toArray();
+    }
+
+    /** IDs of the {@code k} lowest-scoring candidates (bounded max-heap, root = worst kept). */
+    private static int[] topK(BitSet candidates, int k, IntToDoubleFunction score) {
+        int[] ids = new int[k];
+        double[] scores = new double[k];
+        int n = 0;
+        for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+            double s = score.applyAsDouble(id);
+            if (n < k) {
+                ids[n] = id;
+                scores[n] = s;
+                for (int i = n++; i > 0 && scores[(i - 1) >>> 1] < scores[i]; i = (i - 1) >>> 1) swap(ids, scores, i, (i - 1) >>> 1);
+            } else if (s < scores[0]) {
+                ids[0] = id;
+                scores[0] = s;
+                for (int i = 0; ; ) {
+                    int l = 2 * i + 1;
+                    if (l >= n) break;
+                    int w = (l + 1 < n && scores[l + 1] > scores[l]) ? l + 1 : l;
+                    if (scores[i] >= scores[w]) break;
+                    swap(ids, scores, i, w);
+                    i = w;
+                }
+            }
+        }
+        return Arrays.copyOf(ids, n);
+    }
+
+    private static void swap(int[] ids, double[] scores, int a, int b) {
+        int id = ids[a]; ids[a] = ids[b]; ids[b] = id;
+        double s = scores[a]; scores[a] = scores[b]; scores[b] = s;
+    }
+
+    // ---------- Best days: meet in the middle ----------
+
+    /**
+     * Pairs breakfast+lunch on one side and dinner+snack (sorted by calories) on the other. For each
+     * breakfast+lunch pair the scan starts at the dinner+snack pair that closes the calorie gap and walks
+     * outwards until the calorie error alone can't beat the worst day kept (the bound). The breakfast+lunch
+     * pairs are split into fork-join subtasks, each with its own bounded heap, merged at the end.
+     * Returns null if the deadline passes.
+     */
+    private static final class BestDays extends RecursiveTask<DayOption[]> {
+        private static final long serialVersionUID = 1L;
+        private final MealCatalog catalog;
+        private final int[][] pools;
+        private final Targets t;
+        private final long deadline;
+        private final int[] cdCal, cdProt, cdC, cdD;
+        private final int from, to;
+
+        BestDays(MealCatalog catalog, int[][] pools, Targets t, long deadline) {
+            this.catalog = catalog;
+            this.pools = pools;
+            this.t = t;
+            this.deadline = deadline;
+            int[] dinners = pools[MealSlot.DINNER.ordinal()], snacks = pools[MealSlot.SNACK.ordinal()];
+            int n = dinners.length * snacks.length;
+            long[] packed = new long[n];
+            int k = 0;
+            for (int c = 0; c < dinners.length; c++) {
+                for (int d = 0; d < snacks.length; d++) {
+                    int cal = catalog.calories(dinners[c]) + catalog.calories(snacks[d]);
+                    packed[k] = ((long) cal << 32) | (k & 0xFFFFFFFFL);
+                    k++;
+                }
+            }
+            Arrays.sort(packed);
+            cdCal = new int[n];
+            cdProt = new int[n];
+            cdC = new int[n];
+            cdD = new int[n];
+            for (int i = 0; i < n; i++) {
+                int idx = (int) packed[i];
+                cdC[i] = dinners[idx / snacks.length];
+                cdD[i] = snacks[idx % snacks.length];
+                cdCal[i] = (int) (packed[i] >> 32);
+                cdProt[i] = catalog.protein(cdC[i]) + catalog.protein(cdD[i]);
+            }
+            this.from = 0;
+            this.to = pools[MealSlot.BREAKFAST.ordinal()].length * pools[MealSlot.LUNCH.ordinal()].length;
+        }
+
+        private BestDays(BestDays parent, int from, int to) {
+            this.catalog = parent.catalog;
+            this.pools = parent.pools;
+            this.t = parent.t;
+            this.deadline = parent.deadline;
+            this.cdCal = parent.cdCal;
+            this.cdProt = parent.cdProt;
+            this.cdC = parent.cdC;
+            this.cdD = parent.cdD;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected DayOption[] compute() {
+            if (to - from > AB_CHUNK) {
+                int mid = (from + to) >>> 1;
+                BestDays left = new BestDays(this, from, mid);
+                left.fork();
+                DayOption[] right = new BestDays(this, mid, to).compute();
+                DayOption[] l = left.join();
+                if (l == null || right == null) return null;
+                return merge(l, right);
+            }
+            int[] breakfasts = pools[MealSlot.BREAKFAST.ordinal()], lunches = pools[MealSlot.LUNCH.ordinal()];
+            DayHeap heap = new DayHeap(DAY_OPTIONS);
+            for (int ab = from; ab < to; ab++) {
+                if ((ab & DEADLINE_CHECK_MASK) == 0 && System.nanoTime() - deadline >= 0) return null;
+                int a = breakfasts[ab / lunches.length], b = lunches[ab % lunches.length];
+                int abCal = catalog.calories(a) + catalog.calories(b);
+                int abProt = catalog.protein(a) + catalog.protein(b);
+                int need = t.calories - abCal;
+                int pos = lowerBound(cdCal, need);
+                for (int i = pos; i < cdCal.length; i++) {
+                    double calErr = Math.abs(abCal + cdCal[i] - t.calories) / (double) t.calories;
+                    if (heap.full() && calErr >= heap.worst()) break;
+                    heap.offer(t.cost(abCal + cdCal[i], abProt + cdProt[i]), a, b, cdC[i], cdD[i]);
+                }
+                for (int i = pos - 1; i >= 0; i--) {
+                    double calErr = Math.abs(abCal + cdCal[i] - t.calories) / (double) t.calories;
+                    if (heap.full() && calErr >= heap.worst()) break;
+                    heap.offer(t.cost(abCal + cdCal[i], abProt + cdProt[i]), a, b, cdC[i], cdD[i]);
+                }
+            }
+            return heap.sorted();
+        }
+
+        private static DayOption[] merge(DayOption[] x, DayOption[] y) {
+            DayOption[] all = Arrays.copyOf(x, x.length + y.length);
+            System.arraycopy(y, 0, all, x.length, y.length);
+            Arrays.sort(all, Comparator.comparingDouble(DayOption::cost));
+            return all.length <= DAY_OPTIONS ? all : Arrays.copyOf(all, DAY_OPTIONS);
+        }
+
+        private static int lowerBound(int[] sorted, int key) {
+            int lo = 0, hi = sorted.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (sorted[mid] < key) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    /** Bounded max-heap of day combinations by cost (root = worst kept). */
+    private static final class DayHeap {
+        private final double[] cost;
+        private final int[][] ids;
+        private int n;
+
+        DayHeap(int capacity) {
+            cost = new double[capacity];
+            ids = new int[capacity][];
+        }
+
+        boolean full() { return n == cost.length; }
+        double worst() { return cost[0]; }
+
+        void offer(double c, int a, int b, int cc, int d) {
+            if (full()) {
+                if (c >= cost[0]) return;
+                cost[0] = c;
+                ids[0] = new int[] {a, b, cc, d};
+                for (int i = 0; ; ) {
+                    int l = 2 * i + 1;
+                    if (l >= n) break;
+                    int w = (l + 1 < n && cost[l + 1] > cost[l]) ? l + 1 : l;
+                    if (cost[i] >= cost[w]) break;
+                    swap(i, w);
+                    i = w;
+                }
+            } else {
+                cost[n] = c;
+                ids[n] = new int[] {a, b, cc, d};
+                for (int i = n++; i > 0 && cost[(i - 1) >>> 1] < cost[i]; i = (i - 1) >>> 1) swap(i, (i - 1) >>> 1);
+            }
+        }
+
+        DayOption[] sorted() {
+            DayOption[] out = new DayOption[n];
+            for (int i = 0; i < n; i++) out[i] = new DayOption(ids[i], cost[i]);
+            Arrays.sort(out, Comparator.comparingDouble(DayOption::cost));
+            return out;
+        }
+
+        private void swap(int a, int b) {
+            double c = cost[a]; cost[a] = cost[b]; cost[b] = c;
+            int[] x = ids[a]; ids[a] = ids[b]; ids[b] = x;
+        }
+    }
+
+    // ---------- Week assembly: beam search ----------
+
+    private static Week assembleWeek(DayOption[] options, long deadline) {
+        int days = MealGenerator.DAYS.length;
+        int lookback = SelectionKernel.RECENT_WINDOW / MealSlot.values().length;
+        List<Week> beam = List.of(new Week(new DayOption[0], 0.0));
+        for (int d = 0; d < days; d++) {
+            if (System.nanoTime() - deadline >= 0) return null;
+            PriorityQueue<Week> next = new PriorityQueue<>(Comparator.comparingDouble(Week::cost).reversed());
+            for (Week w : beam) {
+                for (DayOption o : options) {
+                    double cost = w.cost + o.cost + REPEAT_COST * repeats(w.days, o, lookback);
+                    if (next.size() == BEAM_WIDTH && cost >= next.peek().cost) continue;
+                    DayOption[] chosen = Arrays.copyOf(w.days, d + 1);
+                    chosen[d] = o;
+                    next.add(new Week(chosen, cost));
+                    if (next.size() > BEAM_WIDTH) next.poll();
+                }
+            }
+            beam = new ArrayList<>(next);
+        }
+        return Collections.min(beam, Comparator.comparingDouble(Week::cost));
+    }
+
+    private static int repeats(DayOption[] chosen, DayOption o, int lookback) {
+        int n = 0;
+        for (int d = Math.max(0, chosen.length - lookback); d < chosen.length; d++) {
+            for (int prev : chosen[d].ids) {
+                for (int id : o.ids) if (id == prev) n++;
+            }
+        }
+        return n;
+    }
+}
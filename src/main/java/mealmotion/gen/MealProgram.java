@@ -0,0 +1,80 @@
+package mealmotion.gen;
+
+import mealmotion.model.DayMeals;
+import mealmotion.model.UserProfile;
+
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Meals for a multi-week plan, generated one week at a time with memory of the weeks before.
+ *
+ * A single {@link MealGenerator#generateWeeklyMeals} call starts from nothing, so back-to-back weeks
+ * happily serve the same favourites. Here one {@link SelectionKernel} runs the whole horizon: its recent
+ * picks carry over the week boundary, and its {@link VarietyWindow} counts every meal and ingredient of
+ * the last {@value VarietyWindow#WEEKS} weeks so staples give way to alternatives until they roll out
+ * of the window. Candidate filtering happens once, up front.
+ *
+ * The iterator holds the kernel, the candidate sets and the window, and builds each week when it is
+ * asked for, so memory doesn't grow with the horizon.
+ */
+public final class MealProgram {
+    private MealProgram() {}
+
+    /** {@code weeks} weeks of meals for {@code profile}; the same seed gives the same weeks. */
+    public static Stream<Map<String, DayMeals>> stream(UserProfile profile, MealCatalog catalog, int weeks, long seed) {
+        return stream(profile, catalog, weeks, new SplittableRandom(seed));
+    }
+
+    /** A sequential, lazily generated stream of weeks. {@code rng} is consumed, not shared. */
+    public static Stream<Map<String, DayMeals>> stream(UserProfile profile, MealCatalog catalog, int weeks, SplittableRandom rng) {
+        Spliterator<Map<String, DayMeals>> split = Spliterators.spliterator(iterator(profile, catalog, weeks, rng), weeks,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        return StreamSupport.stream(split, false);
+    }
+
+    public static Iterator<Map<String, DayMeals>> iterator(UserProfile profile, MealCatalog catalog, int weeks, SplittableRandom rng) {
+        Objects.requireNonNull(profile, "profile");
+        Objects.requireNonNull(catalog, "catalog");
+        Objects.requireNonNull(rng, "rng");
+        if (weeks < 0) throw new IllegalArgumentException("weeks must not be negative: " + weeks);
+        return new Weeks(profile, catalog, weeks, rng);
+    }
+
+    private static final class Weeks implements Iterator<Map<String, DayMeals>> {
+        private final MealCatalog catalog;
+        private final int weeks;
+        private final SplittableRandom rng;
+        private final VarietyWindow variety;
+        private final SelectionKernel kernel;
+        private final BitSet[] candidates;
+        private final int[] slotTargets;
+        private int done;
+
+        Weeks(UserProfile profile, MealCatalog catalog, int weeks, SplittableRandom rng) {
+            this.catalog = catalog;
+            this.weeks = weeks;
+            this.rng = rng;
+            this.variety = new VarietyWindow(catalog);
+            this.kernel = new SelectionKernel(catalog, MealGenerator.proteinWeight(profile), variety);
+            this.candidates = MealGenerator.candidatesBySlot(catalog, profile);
+            this.slotTargets = MealGenerator.slotTargets(profile);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return done < weeks;
+        }
+
+        @Override
+        public Map<String, DayMeals> next() {
+            if (done >= weeks) throw new NoSuchElementException();
+            long start = GenerationMetrics.ENABLED ? GenerationMetrics.startTimer(GenerationMetrics.MEAL_TIMER) : 0;
+            if (done++ > 0) variety.nextWeek();
+            Map<String, DayMeals> week = MealGenerator.week(catalog, kernel, candidates, slotTargets, rng);
+            if (GenerationMetrics.ENABLED) GenerationMetrics.mealWeek(start, kernel);
+            return week;
+        }
+    }
+}
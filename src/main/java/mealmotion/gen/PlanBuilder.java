@@ -1,23 +1,102 @@
 package mealmotion.gen;
 
 import mealmotion.model.*;
+import mealmotion.util.PlanEvents;
 
+import java.time.Duration;
 import java.util.Map;
+import java.util.SplittableRandom;
 
 public final class PlanBuilder {
     private PlanBuilder() {}
 
     public static WeeklyPlan build(UserProfile profile) {
-        WeeklyPlan plan = new WeeklyPlan(profile);
-        Map<String, DayMeals> meals = MealGenerator.generateWeeklyMeals(profile);
-        Map<String, WorkoutSession> workouts = WorkoutGenerator.generateWeeklyWorkouts(profile);
+        return build(profile, MealCatalog.configured());
+    }
+
+    public static WeeklyPlan build(UserProfile profile, MealCatalog catalog) {
+        return build(profile, catalog, new SplittableRandom());
+    }
+
+    /** Reproducible plan: the same profile, catalog and seed always give the same plan. */
+    public static WeeklyPlan build(UserProfile profile, MealCatalog catalog, long seed) {
+        return build(profile, catalog, new SplittableRandom(seed));
+    }
+
+    /**
+     * Meals and workouts each get their own split of {@code rng}, so changing one generator doesn't
+     * shift the other's choices. {@code rng} is consumed; give each concurrent build its own split.
+     */
+    public static WeeklyPlan build(UserProfile profile, MealCatalog catalog, SplittableRandom rng) {
+        long start = GenerationMetrics.ENABLED ? GenerationMetrics.startTimer(GenerationMetrics.PLAN_TIMER) : 0;
+        SplittableRandom meals = rng.split();
+        SplittableRandom workouts = rng.split();
+        PlanEvents.MealGeneration event = new PlanEvents.MealGeneration();
+        event.begin();
+        Map<String, DayMeals> week = MealGenerator.generateWeeklyMeals(profile, catalog, meals);
+        event.end();
+        if (event.shouldCommit()) {
+            PlanEvents.describe(event, profile);
+            event.catalogSize = catalog.size();
+            event.commit();
+        }
+        return assemble(profile, catalog, week, workouts, start);
+    }
 
+    /**
+     * Like {@link #build(UserProfile, MealCatalog)}, but the meals come from {@link MealPlanOptimizer},
+     * which spends up to {@code budget} getting daily calories and protein close to the targets.
+     */
+    public static WeeklyPlan buildOptimized(UserProfile profile, MealCatalog catalog, Duration budget) {
+        return buildOptimized(profile, catalog, budget, new SplittableRandom());
+    }
+
+    /** The optimizer itself is deterministic; {@code rng} only drives the workouts. */
+    public static WeeklyPlan buildOptimized(UserProfile profile, MealCatalog catalog, Duration budget, SplittableRandom rng) {
+        long start = GenerationMetrics.ENABLED ? GenerationMetrics.startTimer(GenerationMetrics.PLAN_TIMER) : 0;
+        SplittableRandom workouts = rng.split();
+        PlanEvents.MealGeneration event = new PlanEvents.MealGeneration();
+        event.begin();
+        Map<String, DayMeals> week = MealPlanOptimizer.optimize(profile, catalog, budget).mealsByDay();
+        event.end();
+        if (event.shouldCommit()) {
+            PlanEvents.describe(event, profile);
+            event.catalogSize = catalog.size();
+            event.commit();
+        }
+        return assemble(profile, catalog, week, workouts, start);
+    }
+
+    /** {@code start} is from {@link GenerationMetrics#startTimer}. */
+    private static WeeklyPlan assemble(UserProfile profile, MealCatalog catalog, Map<String, DayMeals> meals,
+                                       SplittableRandom rng, long start) {
+        ExerciseLibrary library = ExerciseLibrary.configured();
+        PlanEvents.WorkoutGeneration workoutEvent = new PlanEvents.WorkoutGeneration();
+        workoutEvent.begin();
+        Map<String, WorkoutSession> workouts = WorkoutGenerator.generateWeeklyWorkouts(profile, library, rng);
+        workoutEvent.end();
+        if (workoutEvent.shouldCommit()) {
+            PlanEvents.describe(workoutEvent, profile);
+            workoutEvent.librarySize = library.size();
+            workoutEvent.commit();
+        }
+
+        PlanEvents.PlanAssembly assemblyEvent = new PlanEvents.PlanAssembly();
+        assemblyEvent.begin();
+        WeeklyPlan plan = new WeeklyPlan(profile);
         for (Map.Entry<String, DayMeals> e : meals.entrySet()) {
             plan.putMeals(e.getKey(), e.getValue());
         }
         for (Map.Entry<String, WorkoutSession> e : workouts.entrySet()) {
             plan.putWorkout(e.getKey(), e.getValue());
         }
+        assemblyEvent.end();
+        if (assemblyEvent.shouldCommit()) {
+            PlanEvents.describe(assemblyEvent, profile);
+            assemblyEvent.catalogSize = catalog.size();
+            assemblyEvent.commit();
+        }
+        if (GenerationMetrics.ENABLED) GenerationMetrics.planBuilt(start, profile, meals.values());
         return plan;
     }
 }
@@ -0,0 +1,107 @@
+package mealmotion.gen;
+
+import mealmotion.model.*;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, thread-safe LRU cache of generated plans keyed by {@link ProfileKey}, so duplicate profiles
+ * (common in batch loads) skip generation.
+ *
+ * Entries live in independently locked segments, each an access-ordered {@link LinkedHashMap} that drops
+ * its least recently used plan when full, so threads working on different keys rarely contend. Plans
+ * are built outside the lock; two threads missing on the same key at once may both build it. A cache
+ * holds plans for one catalog (and, for reproducible runs, one seed); use a new cache when either changes.
+ *
+ * Cached plans are never handed out directly: every call returns a new {@link WeeklyPlan} for the
+ * requesting profile sharing the cached (immutable) days and sessions, so callers may modify it.
+ */
+public final class PlanCache {
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public record Stats(long hits, long misses, long evictions, int size) {
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : hits / (double) total;
+        }
+    }
+
+    /** @param maxEntries total plans kept (spread evenly over the segments) */
+    public PlanCache(int maxEntries) {
+        if (maxEntries < 1) throw new IllegalArgumentException("maxEntries must be at least 1");
+        int perSegment = Math.max(1, (maxEntries + SEGMENTS - 1) / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) segments[i] = new Segment(perSegment);
+    }
+
+    /** Returns the cached plan for {@code profile}'s key, building it with {@code build} on a miss. */
+    public WeeklyPlan get(UserProfile profile, Supplier<WeeklyPlan> build) {
+        return get(ProfileKey.of(profile), profile, build);
+    }
+
+    public WeeklyPlan get(ProfileKey key, UserProfile profile, Supplier<WeeklyPlan> build) {
+        Segment seg = segments[(key.hashCode() ^ (key.hashCode() >>> 16)) & (SEGMENTS - 1)];
+        WeeklyPlan cached;
+        synchronized (seg) {
+            cached = seg.get(key);
+        }
+        if (cached != null) {
+            hits.increment();
+            return rewrap(cached, profile);
+        }
+        misses.increment();
+        WeeklyPlan plan = build.get();
+        synchronized (seg) {
+            seg.put(key, plan);
+        }
+        return rewrap(plan, profile);
+    }
+
+    public Stats stats() {
+        int size = 0;
+        for (Segment seg : segments) {
+            synchronized (seg) {
+                size += seg.size();
+            }
+        }
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), size);
+    }
+
+    public void clear() {
+        for (Segment seg : segments) {
+            synchronized (seg) {
+                seg.clear();
+            }
+        }
+    }
+
+    private static WeeklyPlan rewrap(WeeklyPlan cached, UserProfile profile) {
+        WeeklyPlan plan = new WeeklyPlan(profile);
+        for (Map.Entry<String, DayMeals> e : cached.mealsByDay().entrySet()) plan.putMeals(e.getKey(), e.getValue());
+        for (Map.Entry<String, WorkoutSession> e : cached.workoutsByDay().entrySet()) plan.putWorkout(e.getKey(), e.getValue());
+        return plan;
+    }
+
+    private final class Segment extends LinkedHashMap<ProfileKey, WeeklyPlan> {
+        private static final long serialVersionUID = 1L;
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(Math.min(capacity, 1 << 12) * 4 / 3 + 1, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ProfileKey, WeeklyPlan> eldest) {
+            if (size() <= capacity) return false;
+            evictions.increment();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package mealmotion.gen;
+
+import mealmotion.model.*;
+import mealmotion.util.ShoppingListUtil;
+
+import java.util.*;
+
+/**
+ * Edits a generated {@link WeeklyPlan} in place: swap one meal, replace a day, or lock the meals worth
+ * keeping and regenerate the rest, without rebuilding the week.
+ *
+ * Opening the editor filters the catalog for the plan's profile once and keeps, per slot, the
+ * {@value #ALTERNATIVES} best-scoring meals in rank order. Every edit after that only looks at those
+ * short lists: a swap takes the next ranked meal the week doesn't already serve in that slot, and
+ * regeneration runs the generator's {@link SelectionKernel} over the short list instead of the whole
+ * catalog. Day totals ({@link DayMeals#with}) and the shopping list ({@link ShoppingListUtil.Tally})
+ * are adjusted by the difference between the old and the new meal, so an edit costs microseconds
+ * whatever the catalog size. Not thread-safe; the wizard uses it on the event thread.
+ */
+public final class PlanEditor {
+    public static final int ALTERNATIVES = 12;
+
+    private static final MealSlot[] SLOTS = MealSlot.values();
+
+    private final WeeklyPlan plan;
+    private final MealCatalog catalog;
+    private final double proteinWeight;
+    private final String[] days;
+    private final int[][] ids;                // [day][slot] meal IDs, kept in step with the plan
+    private final int[][] ranked;             // [slot] best first
+    private final BitSet[] shortlists;        // [slot] the same IDs as a set, for the kernel
+    private final int[] slotTargets;
+    private final int[][] cursors;            // [day][slot] where the next swap starts in ranked[slot]
+    private final ShoppingListUtil.Tally shoppingList;
+    private long locked;                      // bit day * SLOTS.length + slot
+
+    private PlanEditor(WeeklyPlan plan, MealCatalog catalog) {
+        this.plan = plan;
+        this.catalog = catalog;
+        UserProfile profile = plan.profile();
+        this.proteinWeight = MealGenerator.proteinWeight(profile);
+        this.days = plan.mealsByDay().keySet().toArray(new String[0]);
+        if (days.length * SLOTS.length > Long.SIZE) throw new IllegalArgumentException("Too many days to edit: " + days.length);
+        this.ids = new int[days.length][SLOTS.length];
+        this.cursors = new int[days.length][SLOTS.length];
+        for (int d = 0; d < days.length; d++) {
+            DayMeals dm = plan.mealsByDay().get(days[d]);
+            for (MealSlot slot : SLOTS) {
+                int id = catalog.idOf(dm.get(slot));
+                if (id < 0) throw new IllegalArgumentException("Meal not in the catalog: " + dm.get(slot).name());
+                ids[d][slot.ordinal()] = id;
+            }
+        }
+
+        this.slotTargets = MealGenerator.slotTargets(profile);
+        BitSet[] candidates = MealGenerator.candidatesBySlot(catalog, profile);
+        SelectionKernel kernel = new SelectionKernel(catalog, proteinWeight);
+        this.ranked = new int[SLOTS.length][];
+        this.shortlists = new BitSet[SLOTS.length];
+        for (MealSlot slot : SLOTS) {
+            int s = slot.ordinal();
+            ranked[s] = rank(kernel, candidates[s], slotTargets[s]);
+            shortlists[s] = new BitSet();
+            for (int id : ranked[s]) shortlists[s].set(id);
+        }
+        this.shoppingList = ShoppingListUtil.tally(plan.mealsByDay().values());
+    }
+
+    /** An editor for {@code plan}, whose meals must come from {@code catalog}. Edits change {@code plan} itself. */
+    public static PlanEditor open(WeeklyPlan plan, MealCatalog catalog) {
+        Objects.requireNonNull(plan, "plan");
+        Objects.requireNonNull(catalog, "catalog");
+        return new PlanEditor(plan, catalog);
+    }
+
+    public WeeklyPlan plan() { return plan; }
+
+    /** The week's shopping list, kept current as meals change. */
+    public List<ShoppingListUtil.Item> shoppingList() { return shoppingList.items(); }
+
+    /** The ranked alternatives for one meal, best first, without the meal that is there now. */
+    public List<Meal> alternatives(String day, MealSlot slot) {
+        int current = ids[day(day)][slot.ordinal()];
+        List<Meal> out = new ArrayList<>(ALTERNATIVES);
+        for (int id : ranked[slot.ordinal()]) {
+            if (id != current) out.add(catalog.meal(id));
+        }
+        return out;
+    }
+
+    /**
+     * Replaces one meal with the next ranked alternative that the week doesn't already serve in that slot
+     * (any other alternative if they all are); repeated swaps cycle through the list. Returns the new meal,
+     * or the old one if there is no alternative.
+     */
+    public Meal swap(String day, MealSlot slot) {
+        int d = day(day), s = slot.ordinal();
+        int[] r = ranked[s];
+        int current = ids[d][s];
+        int fallback = -1;
+        for (int tries = 0; tries < r.length; tries++) {
+            int id = r[cursors[d][s]];
+            cursors[d][s] = (cursors[d][s] + 1) % r.length;
+            if (id == current) continue;
+            if (!servedInSlot(s, id)) return set(d, s, id);
+            if (fallback < 0) fallback = id;
+        }
+        return fallback < 0 ? catalog.meal(current) : set(d, s, fallback);
+    }
+
+    /** Puts a specific catalog meal in one slot. */
+    public void replace(String day, MealSlot slot, Meal meal) {
+        int id = catalog.idOf(meal);
+        if (id < 0) throw new IllegalArgumentException("Meal not in the catalog: " + meal.name());
+        set(day(day), slot.ordinal(), id);
+    }
+
+    /** New meals for every unlocked slot of {@code day}, avoiding what the days either side of it serve. */
+    public void replaceDay(String day, SplittableRandom rng) {
+        int d = day(day);
+        SelectionKernel kernel = new SelectionKernel(catalog, proteinWeight);
+        if (d > 0) for (int id : ids[d - 1]) kernel.remember(id);
+        if (d + 1 < days.length) for (int id : ids[d + 1]) kernel.remember(id);
+        regenerate(kernel, d, rng);
+    }
+
+    /** New meals for every unlocked slot of the week, picked in day order like the generator does. */
+    public void regenerateUnlocked(SplittableRandom rng) {
+        SelectionKernel kernel = new SelectionKernel(catalog, proteinWeight);
+        for (int d = 0; d < days.length; d++) regenerate(kernel, d, rng);
+    }
+
+    public void lock(String day, MealSlot slot) { locked |= bit(day(day), slot.ordinal()); }
+    public void unlock(String day, MealSlot slot) { locked &= ~bit(day(day), slot.ordinal()); }
+    public boolean isLocked(String day, MealSlot slot) { return (locked & bit(day(day), slot.ordinal())) != 0; }
+    public void unlockAll() { locked = 0; }
+
+    private void regenerate(SelectionKernel kernel, int d, SplittableRandom rng) {
+        for (int s = 0; s < SLOTS.length; s++) {
+            if ((locked & bit(d, s)) != 0) kernel.remember(ids[d][s]);
+            else set(d, s, kernel.select(shortlists[s], slotTargets[s], rng));
+        }
+    }
+
+    private Meal set(int d, int s, int id) {
+        Meal meal = catalog.meal(id);
+        if (ids[d][s] == id) return meal;
+        Meal old = plan.replaceMeal(days[d], SLOTS[s], meal);
+        shoppingList.replace(old, meal);
+        ids[d][s] = id;
+        return meal;
+    }
+
+    private boolean servedInSlot(int s, int id) {
+        for (int[] day : ids) {
+            if (day[s] == id) return true;
+        }
+        return false;
+    }
+
+    private int day(String day) {
+        for (int d = 0; d < days.length; d++) {
+            if (days[d].equals(day)) return d;
+        }
+        throw new IllegalArgumentException("No meals planned for " + day);
+    }
+
+    private static long bit(int d, int s) {
+        return 1L << (d * SLOTS.length + s);
+    }
+
+    /** The best {@link #ALTERNATIVES} candidates by base score (no repeat penalty), best first. */
+    private static int[] rank(SelectionKernel kernel, BitSet candidates, int targetCalories) {
+        int[] best = new int[ALTERNATIVES];
+        double[] scores = new double[ALTERNATIVES];
+        int size = 0;
+        for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+            double score = kernel.score(id, targetCalories);
+            if (size == ALTERNATIVES && score >= scores[size - 1]) continue;
+            int i = size < ALTERNATIVES ? size++ : size - 1;
+            while (i > 0 && scores[i - 1] > score) {
+                best[i] = best[i - 1];
+                scores[i] = scores[i - 1];
+                i--;
+            }
+            best[i] = id;
+            scores[i] = score;
+        }
+        return Arrays.copyOf(best, size);
+    }
+}
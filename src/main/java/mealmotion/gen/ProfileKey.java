@@ -0,0 +1,90 @@
+package mealmotion.gen;
+
+import mealmotion.model.UserProfile;
+
+import java.util.*;
+
+/**
+ * Canonical key for "profiles that get the same plan": only what the generators actually read, in a
+ * normalized form. Two profiles with the same key are interchangeable for {@link PlanBuilder}.
+ *
+ * <ul>
+ *   <li>Age, height, weight, target weight, gender and activity level only matter through the daily
+ *       calorie and protein targets, so the key stores those two numbers.</li>
+ *   <li>Allergies and dislikes are both just exclusion terms: they are merged, deduplicated and sorted,
+ *       and a term that contains another term is dropped (anything it would block is already blocked).</li>
+ *   <li>Workout fields are clamped the way {@link WorkoutGenerator} clamps them, and zeroed when
+ *       workouts are off. The name is ignored.</li>
+ * </ul>
+ * Numbers and enums are packed into two primitives and the hash is computed once, so lookups are cheap.
+ */
+public final class ProfileKey {
+    private final long targets;      // targetCalories << 32 | proteinTargetGrams
+    private final int options;       // goal | diet | workouts | equipment | days | minutes
+    private final String[] terms;
+    private final long fingerprint;
+
+    private ProfileKey(long targets, int options, String[] terms) {
+        this.targets = targets;
+        this.options = options;
+        this.terms = terms;
+        long h = mix(targets) ^ mix(options + 0x9E3779B97F4A7C15L);
+        for (String t : terms) h = mix(h * 31 + t.hashCode());
+        this.fingerprint = h;
+    }
+
+    public static ProfileKey of(UserProfile p) {
+        long targets = (long) p.targetCalories() << 32 | (p.proteinTargetGrams() & 0xFFFFFFFFL);
+        int options = p.bodyGoal().ordinal()
+                | p.dietPreference().ordinal() << 4;
+        if (p.includeWorkouts()) {
+            options |= 1 << 8
+                    | p.equipment().ordinal() << 9
+                    | WorkoutGenerator.clampDays(p.workoutDaysPerWeek()) << 12
+                    | WorkoutGenerator.clampMinutes(p.workoutMinutesPerSession()) << 16;
+        }
+        return new ProfileKey(targets, options, canonicalTerms(p.allergies(), p.dislikedFoods()));
+    }
+
+    /** 64-bit hash of the key; stable across runs, so it can also seed generation for this key. */
+    public long fingerprint() { return fingerprint; }
+
+    private static String[] canonicalTerms(List<String> allergies, List<String> dislikes) {
+        if (allergies.isEmpty() && dislikes.isEmpty()) return new String[0];
+        TreeSet<String> all = new TreeSet<>(allergies);
+        all.addAll(dislikes);
+        List<String> kept = new ArrayList<>(all.size());
+        for (String t : all) {
+            boolean redundant = false;
+            for (String other : all) {
+                if (other.length() < t.length() && t.contains(other)) { redundant = true; break; }
+            }
+            if (!redundant) kept.add(t);
+        }
+        return kept.toArray(new String[0]);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ProfileKey k)) return false;
+        return fingerprint == k.fingerprint && targets == k.targets && options == k.options && Arrays.equals(terms, k.terms);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (fingerprint ^ (fingerprint >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return "ProfileKey[" + (targets >>> 32) + " kcal, " + (int) targets + " g, options=" + Integer.toHexString(options)
+                + ", terms=" + Arrays.toString(terms) + "]";
+    }
+}
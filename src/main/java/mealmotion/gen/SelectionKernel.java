@@ -0,0 +1,124 @@
+package mealmotion.gen;
+
+import java.nio.IntBuffer;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+/**
+ * Scores one slot's candidates and picks randomly among the best {@link #TOP_K}, without allocating.
+ *
+ * Calories and protein are read from the catalog's primitive int columns, each candidate is scored exactly
+ * once, the best K are kept in a fixed-size max-heap (root = worst kept), and recent picks are tracked
+ * as meal IDs in a ring buffer. One kernel is created per generation run and reused for every
+ * selection in it; it is not thread-safe. A multi-week run keeps its kernel from week to week and adds
+ * a {@link VarietyWindow} for what the previous weeks served.
+ */
+final class SelectionKernel {
+    static final int TOP_K = 5;
+    static final int RECENT_WINDOW = 8;
+    static final double REPEAT_PENALTY = 250.0;
+
+    private final IntBuffer calories;
+    private final IntBuffer protein;
+    private final double proteinWeight;
+    private final VarietyWindow variety; // null for single weeks
+
+    private final int[] heapIds = new int[TOP_K];
+    private final double[] heapScores = new double[TOP_K];
+    private final int[] recent = new int[RECENT_WINDOW];
+    private int recentCount;
+    private int recentNext;
+
+    // Counts since the last flush to GenerationMetrics; plain fields, as the kernel is single-threaded.
+    long selections;
+    long scored;
+    long repeatHits;
+
+    SelectionKernel(MealCatalog catalog, double proteinWeight) {
+        this(catalog, proteinWeight, null);
+    }
+
+    SelectionKernel(MealCatalog catalog, double proteinWeight, VarietyWindow variety) {
+        this.calories = catalog.caloriesColumn();
+        this.protein = catalog.proteinColumn();
+        this.proteinWeight = proteinWeight;
+        this.variety = variety;
+    }
+
+    /** Picks a meal ID from {@code candidates} and records it as a recent pick. */
+    int select(BitSet candidates, int targetCalories, SplittableRandom r) {
+        int size = 0;
+        int n = 0;
+        for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1), n++) {
+            double s = score(id, targetCalories);
+            if (size < TOP_K) {
+                heapIds[size] = id;
+                heapScores[size] = s;
+                siftUp(size++);
+            } else if (s < heapScores[0]) {
+                heapIds[0] = id;
+                heapScores[0] = s;
+                siftDown(size);
+            }
+        }
+        selections++;
+        scored += n;
+        // Every kept meal is equally likely, so the heap's internal order doesn't matter.
+        int chosen = heapIds[r.nextInt(size)];
+        remember(chosen);
+        return chosen;
+    }
+
+    double score(int id, int targetCalories) {
+        double caloriePenalty = Math.abs(calories.get(id) - targetCalories);
+        // nudge protein up a bit, especially for bulk/lean
+        double proteinBonus = protein.get(id) * proteinWeight;
+        double repeatPenalty = 0.0;
+        if (isRecent(id)) {
+            repeatPenalty = REPEAT_PENALTY;
+            repeatHits++;
+        }
+        if (variety != null) repeatPenalty += variety.penalty(id);
+        return caloriePenalty - proteinBonus + repeatPenalty;
+    }
+
+    boolean isRecent(int id) {
+        for (int i = 0; i < recentCount; i++) {
+            if (recent[i] == id) return true;
+        }
+        return false;
+    }
+
+    void remember(int id) {
+        if (variety != null) variety.record(id);
+        recent[recentNext] = id;
+        recentNext = (recentNext + 1) % RECENT_WINDOW;
+        if (recentCount < RECENT_WINDOW) recentCount++;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heapScores[parent] >= heapScores[i]) return;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int size) {
+        int i = 0;
+        while (true) {
+            int l = 2 * i + 1;
+            if (l >= size) return;
+            int worst = (l + 1 < size && heapScores[l + 1] > heapScores[l]) ? l + 1 : l;
+            if (heapScores[i] >= heapScores[worst]) return;
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int id = heapIds[a]; heapIds[a] = heapIds[b]; heapIds[b] = id;
+        double s = heapScores[a]; heapScores[a] = heapScores[b]; heapScores[b] = s;
+    }
+}
@@ -0,0 +1,117 @@
+package mealmotion.gen;
+
+import java.util.Arrays;
+
+/**
+ * What a multi-week meal plan has served over the last {@link #WEEKS} weeks: how often each meal and
+ * each ingredient was picked. The {@link SelectionKernel} adds {@link #penalty} to a candidate's score,
+ * so staples drift out of the top K as they pile up and come back once they roll out of the window.
+ *
+ * Counts live in two small open-addressing int maps keyed by meal ID and by the catalog's ingredient
+ * string ID; a week's picks are kept in a ring so they can be subtracted when the week expires. Memory
+ * depends on the window and on how many distinct meals and ingredients were used, not on the catalog
+ * or the horizon. Not thread-safe.
+ */
+final class VarietyWindow {
+    static final int WEEKS = 4;
+    /** Per earlier use of the same meal within the window. */
+    static final double MEAL_USE_PENALTY = 40.0;
+    /** Per earlier use of one of the meal's ingredients, averaged over its ingredients. */
+    static final double INGREDIENT_USE_PENALTY = 6.0;
+
+    private final MealCatalog catalog;
+    private final Counts meals = new Counts();
+    private final Counts ingredients = new Counts();
+    private final int[][] weekPicks = new int[WEEKS][32];
+    private final int[] weekSizes = new int[WEEKS];
+    private int current;
+
+    VarietyWindow(MealCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    double penalty(int id) {
+        double p = meals.get(id) * MEAL_USE_PENALTY;
+        int start = catalog.ingStart(id), end = catalog.ingEnd(id);
+        if (end > start) {
+            int uses = 0;
+            for (int k = start; k < end; k++) uses += ingredients.get(catalog.ingRef(k));
+            p += INGREDIENT_USE_PENALTY * uses / (end - start);
+        }
+        return p;
+    }
+
+    void record(int id) {
+        int[] picks = weekPicks[current];
+        if (weekSizes[current] == picks.length) weekPicks[current] = picks = Arrays.copyOf(picks, picks.length * 2);
+        picks[weekSizes[current]++] = id;
+        add(id, 1);
+    }
+
+    /** Starts a new week, forgetting the one that falls out of the window. */
+    void nextWeek() {
+        current = (current + 1) % WEEKS;
+        int[] expired = weekPicks[current];
+        for (int i = 0; i < weekSizes[current]; i++) add(expired[i], -1);
+        weekSizes[current] = 0;
+    }
+
+    private void add(int id, int delta) {
+        meals.add(id, delta);
+        for (int k = catalog.ingStart(id), end = catalog.ingEnd(id); k < end; k++) ingredients.add(catalog.ingRef(k), delta);
+    }
+
+    /** int -> int counts with linear probing; keys are never removed, a count just drops back to 0. */
+    private static final class Counts {
+        private int[] keys = new int[64];
+        private int[] values = new int[64];
+        private int size;
+
+        Counts() {
+            Arrays.fill(keys, -1);
+        }
+
+        int get(int key) {
+            int mask = keys.length - 1;
+            for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+                if (keys[i] == key) return values[i];
+                if (keys[i] < 0) return 0;
+            }
+        }
+
+        void add(int key, int delta) {
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (keys[i] >= 0 && keys[i] != key) i = (i + 1) & mask;
+            if (keys[i] < 0) {
+                keys[i] = key;
+                if (++size * 2 > keys.length) {
+                    values[i] = delta;
+                    grow();
+                    return;
+                }
+            }
+            values[i] += delta;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys, oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            Arrays.fill(keys, -1);
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] < 0) continue;
+                int i = mix(oldKeys[j]) & mask;
+                while (keys[i] >= 0) i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
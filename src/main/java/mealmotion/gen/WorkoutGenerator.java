@@ -8,7 +8,30 @@ public final class WorkoutGenerator {
     private WorkoutGenerator() {}
 
     public static Map<String, WorkoutSession> generateWeeklyWorkouts(UserProfile profile) {
+        return generateWeeklyWorkouts(profile, new SplittableRandom());
+    }
+
+    /** Same profile and same random state give the same week. {@code rng} is consumed, not shared. */
+    public static Map<String, WorkoutSession> generateWeeklyWorkouts(UserProfile profile, SplittableRandom rng) {
+        return generateWeeklyWorkouts(profile, ExerciseLibrary.configured(), rng);
+    }
+
+    public static Map<String, WorkoutSession> generateWeeklyWorkouts(UserProfile profile, ExerciseLibrary library, SplittableRandom rng) {
+        return generateWeeklyWorkouts(profile, library, Load.BASE, rng);
+    }
+
+    /** Like {@link #generateWeeklyWorkouts(UserProfile, ExerciseLibrary, SplittableRandom)}, with strength sets and reps adjusted by {@code load}. */
+    static Map<String, WorkoutSession> generateWeeklyWorkouts(UserProfile profile, ExerciseLibrary library, Load load, SplittableRandom rng) {
         Objects.requireNonNull(profile, "profile");
+        Objects.requireNonNull(library, "library");
+        Objects.requireNonNull(rng, "rng");
+        long start = GenerationMetrics.ENABLED ? GenerationMetrics.startTimer(GenerationMetrics.WORKOUT_TIMER) : 0;
+        Map<String, WorkoutSession> out = week(profile, new Picker(library, profile.equipment(), load, rng));
+        if (GenerationMetrics.ENABLED) GenerationMetrics.workoutWeek(start);
+        return out;
+    }
+
+    private static Map<String, WorkoutSession> week(UserProfile profile, Picker picker) {
         String[] days = {"Monday","Tuesday","Wednesday","Thursday","Friday","Saturday","Sunday"};
 
         Map<String, WorkoutSession> out = new LinkedHashMap<>();
@@ -25,7 +48,7 @@ public final class WorkoutGenerator {
                 continue;
             }
 
-            WorkoutSession session = buildSessionForDay(i, profile);
+            WorkoutSession session = buildSessionForDay(i, profile, picker);
             out.put(days[i], session);
         }
 
@@ -33,7 +56,7 @@ public final class WorkoutGenerator {
     }
 
     private static Set<Integer> pickTrainingDays(int daysPerWeek) {
-        int d = Math.max(1, Math.min(7, daysPerWeek));
+        int d = clampDays(daysPerWeek);
         // Simple even spread patterns
         return switch (d) {
             case 1 -> Set.of(2);
@@ -46,185 +69,173 @@ public final class WorkoutGenerator {
         };
     }
 
-    private static WorkoutSession buildSessionForDay(int dayIndex, UserProfile profile) {
+    /** Training days actually used for a requested days-per-week. */
+    static int clampDays(int daysPerWeek) {
+        return Math.max(1, Math.min(7, daysPerWeek));
+    }
+
+    /** Session length actually planned for a requested number of minutes. */
+    static int clampMinutes(int minutes) {
+        return Math.max(20, Math.min(120, minutes));
+    }
+
+    private static WorkoutSession buildSessionForDay(int dayIndex, UserProfile profile, Picker picker) {
         // Use a realistic split by goal
         BodyGoal goal = profile.bodyGoal();
-        int minutes = Math.max(20, Math.min(120, profile.workoutMinutesPerSession()));
+        int minutes = clampMinutes(profile.workoutMinutesPerSession());
 
         return switch (goal) {
-            case BULK -> buildBulkSplit(dayIndex, profile, minutes);
-            case LEAN -> buildLeanSplit(dayIndex, profile, minutes);
-            case TONE -> buildToneSplit(dayIndex, profile, minutes);
+            case BULK -> buildBulkSplit(dayIndex, profile, minutes, picker);
+            case LEAN -> buildLeanSplit(dayIndex, profile, minutes, picker);
+            case TONE -> buildToneSplit(dayIndex, profile, minutes, picker);
         };
     }
 
-    private static WorkoutSession buildLeanSplit(int dayIndex, UserProfile profile, int minutes) {
+    private static WorkoutSession buildLeanSplit(int dayIndex, UserProfile profile, int minutes, Picker picker) {
         // Alternating: strength / cardio / strength / cardio / full body ...
         int mod = dayIndex % 5;
         if (mod == 1 || mod == 3) {
-            return cardioSession("Cardio + Core", profile, minutes);
+            return cardioSession("Cardio + Core", minutes, picker);
         }
         if (mod == 4) {
-            return fullBodySession("Full Body (Metabolic)", profile, minutes, 3, 12);
+            return fullBodySession("Full Body (Metabolic)", minutes, 3, 12, picker);
         }
         // Strength days: upper/lower
         return (dayIndex % 2 == 0)
-                ? upperSession("Upper Body Strength", profile, minutes, 3, 10)
-                : lowerSession("Lower Body Strength", profile, minutes, 3, 12);
+                ? upperSession("Upper Body Strength", minutes, 3, 10, picker)
+                : lowerSession("Lower Body Strength", minutes, 3, 12, picker);
     }
 
-    private static WorkoutSession buildBulkSplit(int dayIndex, UserProfile profile, int minutes) {
+    private static WorkoutSession buildBulkSplit(int dayIndex, UserProfile profile, int minutes, Picker picker) {
         // Push / Pull / Legs / Upper / Lower rotation
         int mod = dayIndex % 5;
         return switch (mod) {
-            case 0 -> pushSession("Push (Chest/Shoulders/Triceps)", profile, minutes, 4, 8);
-            case 1 -> pullSession("Pull (Back/Biceps)", profile, minutes, 4, 8);
-            case 2 -> legsSession("Legs (Strength)", profile, minutes, 4, 8);
-            case 3 -> upperSession("Upper (Hypertrophy)", profile, minutes, 4, 10);
-            default -> lowerSession("Lower (Hypertrophy)", profile, minutes, 4, 10);
+            case 0 -> pushSession("Push (Chest/Shoulders/Triceps)", minutes, 4, 8, picker);
+            case 1 -> pullSession("Pull (Back/Biceps)", minutes, 4, 8, picker);
+            case 2 -> legsSession("Legs (Strength)", minutes, 4, 8, picker);
+            case 3 -> upperSession("Upper (Hypertrophy)", minutes, 4, 10, picker);
+            default -> lowerSession("Lower (Hypertrophy)", minutes, 4, 10, picker);
         };
     }
 
-    private static WorkoutSession buildToneSplit(int dayIndex, UserProfile profile, int minutes) {
+    private static WorkoutSession buildToneSplit(int dayIndex, UserProfile profile, int minutes, Picker picker) {
         // Strength + conditioning mix
         int mod = dayIndex % 4;
         return switch (mod) {
-            case 0 -> fullBodySession("Full Body (Tone)", profile, minutes, 3, 12);
-            case 1 -> cardioSession("Cardio + Core", profile, minutes);
-            case 2 -> upperSession("Upper (Tone)", profile, minutes, 3, 12);
-            default -> lowerSession("Lower (Tone)", profile, minutes, 3, 12);
+            case 0 -> fullBodySession("Full Body (Tone)", minutes, 3, 12, picker);
+            case 1 -> cardioSession("Cardio + Core", minutes, picker);
+            case 2 -> upperSession("Upper (Tone)", minutes, 3, 12, picker);
+            default -> lowerSession("Lower (Tone)", minutes, 3, 12, picker);
         };
     }
 
-    private static WorkoutSession cardioSession(String title, UserProfile profile, int minutes) {
+    private static WorkoutSession cardioSession(String title, int minutes, Picker picker) {
         int cardioMin = Math.max(15, Math.min(40, minutes - 10));
         int coreSec = 45;
         List<WorkoutMove> moves = new ArrayList<>();
-        moves.add(WorkoutMove.cardio(pickCardio(profile.equipment()), cardioMin));
+        String cardio = picker.cardio();
+        if (cardio != null) moves.add(WorkoutMove.cardio(cardio, cardioMin));
         moves.add(WorkoutMove.coreSeconds("Plank", coreSec));
         moves.add(WorkoutMove.coreSeconds("Dead bug", 40));
         moves.add(WorkoutMove.mobilityMinutes("Stretching", 8));
         return new WorkoutSession(title, moves);
     }
 
-    private static WorkoutSession fullBodySession(String title, UserProfile profile, int minutes, int sets, int reps) {
+    private static WorkoutSession fullBodySession(String title, int minutes, int sets, int reps, Picker picker) {
         List<WorkoutMove> moves = new ArrayList<>();
         moves.add(WorkoutMove.mobilityMinutes("Warm-up", 5));
-        for (String ex : pickFullBody(profile.equipment())) {
-            moves.add(WorkoutMove.strength(ex, sets, reps));
-            if (moves.size() >= 7) break;
-        }
+        picker.strength(moves, MuscleGroup.FULL_BODY, 6, sets, reps);
         // finish with a short cardio burst if time allows
         if (minutes >= 45) moves.add(WorkoutMove.cardio("Brisk walk", 10));
         return new WorkoutSession(title, moves);
     }
 
-    private static WorkoutSession upperSession(String title, UserProfile profile, int minutes, int sets, int reps) {
+    private static WorkoutSession upperSession(String title, int minutes, int sets, int reps, Picker picker) {
         List<WorkoutMove> moves = new ArrayList<>();
         moves.add(WorkoutMove.mobilityMinutes("Warm-up", 5));
-        for (String ex : pickUpper(profile.equipment())) {
-            moves.add(WorkoutMove.strength(ex, sets, reps));
-            if (moves.size() >= 8) break;
-        }
+        picker.strength(moves, MuscleGroup.UPPER, 7, sets, reps);
         if (minutes >= 50) moves.add(WorkoutMove.coreSeconds("Side plank", 40));
         return new WorkoutSession(title, moves);
     }
 
-    private static WorkoutSession lowerSession(String title, UserProfile profile, int minutes, int sets, int reps) {
+    private static WorkoutSession lowerSession(String title, int minutes, int sets, int reps, Picker picker) {
         List<WorkoutMove> moves = new ArrayList<>();
         moves.add(WorkoutMove.mobilityMinutes("Warm-up", 5));
-        for (String ex : pickLower(profile.equipment())) {
-            moves.add(WorkoutMove.strength(ex, sets, reps));
-            if (moves.size() >= 8) break;
-        }
+        picker.strength(moves, MuscleGroup.LOWER, 7, sets, reps);
         if (minutes >= 45) moves.add(WorkoutMove.coreSeconds("Hollow hold", 30));
         return new WorkoutSession(title, moves);
     }
 
-    private static WorkoutSession pushSession(String title, UserProfile profile, int minutes, int sets, int reps) {
+    private static WorkoutSession pushSession(String title, int minutes, int sets, int reps, Picker picker) {
         List<WorkoutMove> moves = new ArrayList<>();
         moves.add(WorkoutMove.mobilityMinutes("Warm-up", 6));
-        for (String ex : pickPush(profile.equipment())) {
-            moves.add(WorkoutMove.strength(ex, sets, reps));
-            if (moves.size() >= 8) break;
-        }
+        picker.strength(moves, MuscleGroup.PUSH, 7, sets, reps);
         if (minutes >= 60) moves.add(WorkoutMove.cardio("Incline walk", 10));
         return new WorkoutSession(title, moves);
     }
 
-    private static WorkoutSession pullSession(String title, UserProfile profile, int minutes, int sets, int reps) {
+    private static WorkoutSession pullSession(String title, int minutes, int sets, int reps, Picker picker) {
         List<WorkoutMove> moves = new ArrayList<>();
         moves.add(WorkoutMove.mobilityMinutes("Warm-up", 6));
-        for (String ex : pickPull(profile.equipment())) {
-            moves.add(WorkoutMove.strength(ex, sets, reps));
-            if (moves.size() >= 8) break;
-        }
+        picker.strength(moves, MuscleGroup.PULL, 7, sets, reps);
         if (minutes >= 60) moves.add(WorkoutMove.coreSeconds("Plank", 45));
         return new WorkoutSession(title, moves);
     }
 
-    private static WorkoutSession legsSession(String title, UserProfile profile, int minutes, int sets, int reps) {
+    private static WorkoutSession legsSession(String title, int minutes, int sets, int reps, Picker picker) {
         List<WorkoutMove> moves = new ArrayList<>();
         moves.add(WorkoutMove.mobilityMinutes("Warm-up", 6));
-        for (String ex : pickLower(profile.equipment())) {
-            moves.add(WorkoutMove.strength(ex, sets, reps));
-            if (moves.size() >= 8) break;
-        }
+        picker.strength(moves, MuscleGroup.LOWER, 7, sets, reps);
         if (minutes >= 55) moves.add(WorkoutMove.mobilityMinutes("Stretching", 8));
         return new WorkoutSession(title, moves);
     }
 
-    private static List<String> pickUpper(Equipment eq) {
-        return switch (eq) {
-            case NONE -> shuffled("Push-ups", "Pike push-ups", "Inverted rows (under table)", "Chair dips", "Superman holds");
-            case DUMBBELLS -> shuffled("Dumbbell bench press", "One-arm dumbbell row", "Dumbbell shoulder press", "Dumbbell curls", "Triceps extensions");
-            case FULL_GYM -> shuffled("Bench press", "Lat pulldown", "Seated row", "Incline dumbbell press", "Cable fly", "Triceps dips", "Biceps curls");
-        };
-    }
+    /**
+     * How a program week changes the sets and reps a session would normally prescribe: extra sets for
+     * volume, fewer (heavier) reps for intensity, or a deload that halves the sets.
+     */
+    record Load(int extraSets, int fewerReps, boolean deload) {
+        static final Load BASE = new Load(0, 0, false);
+        private static final int MIN_REPS = 3;
 
-    private static List<String> pickLower(Equipment eq) {
-        return switch (eq) {
-            case NONE -> shuffled("Bodyweight squats", "Lunges", "Glute bridge", "Step-ups", "Calf raises");
-            case DUMBBELLS -> shuffled("Goblet squat", "Romanian deadlift (DB)", "Walking lunges", "Hip thrust", "Calf raises");
-            case FULL_GYM -> shuffled("Back squat", "Deadlift", "Leg press", "Hamstring curl", "Leg extension", "Hip thrust");
-        };
-    }
+        int sets(int base) {
+            return deload ? Math.max(1, (base + 1) / 2) : base + extraSets;
+        }
 
-    private static List<String> pickFullBody(Equipment eq) {
-        return switch (eq) {
-            case NONE -> shuffled("Push-ups", "Bodyweight squats", "Lunges", "Burpees", "Mountain climbers", "Glute bridge");
-            case DUMBBELLS -> shuffled("Goblet squat", "Dumbbell row", "Dumbbell press", "Romanian deadlift (DB)", "Dumbbell thrusters", "Farmer carry");
-            case FULL_GYM -> shuffled("Squat", "Bench press", "Row", "Deadlift", "Overhead press", "Lat pulldown");
-        };
+        int reps(int base) {
+            return Math.max(MIN_REPS, base - fewerReps);
+        }
     }
 
-    private static List<String> pickPush(Equipment eq) {
-        return switch (eq) {
-            case NONE -> shuffled("Push-ups", "Pike push-ups", "Chair dips", "Diamond push-ups");
-            case DUMBBELLS -> shuffled("Dumbbell bench press", "Dumbbell shoulder press", "Dumbbell fly", "Triceps extensions");
-            case FULL_GYM -> shuffled("Bench press", "Incline bench press", "Overhead press", "Cable fly", "Triceps pushdown");
-        };
-    }
+    /** Samples one week's exercises from the library for the profile's equipment, reusing one scratch array. */
+    private static final class Picker {
+        private static final int MAX_PICKS = 8;
 
-    private static List<String> pickPull(Equipment eq) {
-        return switch (eq) {
-            case NONE -> shuffled("Inverted rows (under table)", "Towel rows", "Superman holds", "Biceps isometrics");
-            case DUMBBELLS -> shuffled("One-arm dumbbell row", "Dumbbell curls", "Rear delt raises", "Hammer curls");
-            case FULL_GYM -> shuffled("Lat pulldown", "Seated row", "Barbell row", "Face pulls", "Biceps curls");
-        };
-    }
+        private final ExerciseLibrary library;
+        private final Equipment equipment;
+        private final Load load;
+        private final SplittableRandom rng;
+        private final int[] picks = new int[MAX_PICKS];
 
-    private static String pickCardio(Equipment eq) {
-        return switch (eq) {
-            case FULL_GYM -> "Treadmill / Bike";
-            default -> "Brisk walk / Jog";
-        };
-    }
+        Picker(ExerciseLibrary library, Equipment equipment, Load load, SplittableRandom rng) {
+            this.library = library;
+            this.equipment = equipment;
+            this.load = load;
+            this.rng = rng;
+        }
 
-    private static List<String> shuffled(String... items) {
-        List<String> list = new ArrayList<>(List.of(items));
-        Collections.shuffle(list, new Random());
-        return list;
+        /** Adds up to {@code max} distinct strength moves for {@code group}, in random order. */
+        void strength(List<WorkoutMove> moves, MuscleGroup group, int max, int sets, int reps) {
+            int n = library.sample(equipment, WorkoutMoveType.STRENGTH, group, Math.min(max, MAX_PICKS), rng, picks);
+            int s = load.sets(sets);
+            int r = load.reps(reps);
+            for (int i = 0; i < n; i++) moves.add(WorkoutMove.strength(library.name(picks[i]), s, r));
+        }
+
+        /** A cardio exercise, or null if the library has none for this equipment. */
+        String cardio() {
+            int n = library.sample(equipment, WorkoutMoveType.CARDIO, MuscleGroup.FULL_BODY, 1, rng, picks);
+            return n == 0 ? null : library.name(picks[0]);
+        }
     }
 }
-
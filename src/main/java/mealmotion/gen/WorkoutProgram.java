@@ -0,0 +1,123 @@
+package mealmotion.gen;
+
+import mealmotion.model.*;
+
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A multi-week training program with progressive overload, generated one week at a time.
+ *
+ * Weeks run in blocks of {@value #BLOCK_WEEKS}: two build weeks (the second adds a set to every
+ * strength move), a peak week (same volume, two fewer and heavier reps) and a deload week (half the
+ * sets). Every second block steps the load up once more: one more set on every week, until the sets
+ * reach what the session's minutes allow ({@link #maxExtraSets}), and one fewer, heavier rep after that.
+ * A block keeps its exercises so the load progresses on the same moves; the next block draws new ones.
+ *
+ * Nothing is materialized. The iterator holds only the week number, the current block's seed and the
+ * random source, and builds each week when it is asked for, so a year-long program costs the same memory
+ * as a single week and a whole cohort's programs can be streamed straight to a file.
+ */
+public final class WorkoutProgram {
+    public static final int BLOCK_WEEKS = 4;
+    /** Session minutes each block-level extra set needs; shorter sessions top out at one. */
+    private static final int MINUTES_PER_EXTRA_SET = 40;
+
+    private WorkoutProgram() {}
+
+    public enum Phase { BUILD, PEAK, DELOAD }
+
+    /** One program week; {@code number} counts from 1, {@code targetRpe} is the effort to aim for on strength sets. */
+    public record Week(int number, Phase phase, int targetRpe, Map<String, WorkoutSession> workouts) {}
+
+    /** {@code weeks} weeks for {@code profile} from the configured exercise library; the same seed gives the same program. */
+    public static Stream<Week> stream(UserProfile profile, int weeks, long seed) {
+        return stream(profile, ExerciseLibrary.configured(), weeks, new SplittableRandom(seed));
+    }
+
+    /** A sequential, lazily generated stream of the program's weeks. {@code rng} is consumed, not shared. */
+    public static Stream<Week> stream(UserProfile profile, ExerciseLibrary library, int weeks, SplittableRandom rng) {
+        Spliterator<Week> split = Spliterators.spliterator(iterator(profile, library, weeks, rng), weeks,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        return StreamSupport.stream(split, false);
+    }
+
+    public static Iterator<Week> iterator(UserProfile profile, ExerciseLibrary library, int weeks, SplittableRandom rng) {
+        Objects.requireNonNull(profile, "profile");
+        Objects.requireNonNull(library, "library");
+        Objects.requireNonNull(rng, "rng");
+        if (weeks < 0) throw new IllegalArgumentException("weeks must not be negative: " + weeks);
+        return new Weeks(profile, library, weeks, rng);
+    }
+
+    /** Phase of week {@code number} (from 1). */
+    public static Phase phase(int number) {
+        return switch ((number - 1) % BLOCK_WEEKS) {
+            case 0, 1 -> Phase.BUILD;
+            case 2 -> Phase.PEAK;
+            default -> Phase.DELOAD;
+        };
+    }
+
+    /** How many sets the block steps may add for {@code profile}, from its session length. */
+    static int maxExtraSets(UserProfile profile) {
+        return Math.max(1, WorkoutGenerator.clampMinutes(profile.workoutMinutesPerSession()) / MINUTES_PER_EXTRA_SET);
+    }
+
+    private static WorkoutGenerator.Load load(int number, int maxExtraSets) {
+        int position = (number - 1) % BLOCK_WEEKS;
+        int steps = (number - 1) / BLOCK_WEEKS / 2;
+        int blockExtra = Math.min(steps, maxExtraSets);
+        int blockFewer = steps - blockExtra;
+        return switch (position) {
+            case 0 -> new WorkoutGenerator.Load(blockExtra, blockFewer, false);
+            case 1 -> new WorkoutGenerator.Load(blockExtra + 1, blockFewer, false);
+            case 2 -> new WorkoutGenerator.Load(blockExtra + 1, blockFewer + 2, false);
+            default -> new WorkoutGenerator.Load(0, 0, true);
+        };
+    }
+
+    private static int targetRpe(int number) {
+        return switch ((number - 1) % BLOCK_WEEKS) {
+            case 0 -> 7;
+            case 1 -> 8;
+            case 2 -> 9;
+            default -> 6;
+        };
+    }
+
+    private static final class Weeks implements Iterator<Week> {
+        private final UserProfile profile;
+        private final ExerciseLibrary library;
+        private final int weeks;
+        private final int maxExtraSets;
+        private final SplittableRandom rng;
+        private int next = 1;
+        private long blockSeed;
+
+        Weeks(UserProfile profile, ExerciseLibrary library, int weeks, SplittableRandom rng) {
+            this.profile = profile;
+            this.library = library;
+            this.weeks = weeks;
+            this.maxExtraSets = maxExtraSets(profile);
+            this.rng = rng;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next <= weeks;
+        }
+
+        @Override
+        public Week next() {
+            if (next > weeks) throw new NoSuchElementException();
+            int n = next++;
+            if ((n - 1) % BLOCK_WEEKS == 0) blockSeed = rng.nextLong();
+            // Every week of a block replays the block's seed, so it draws the same exercises.
+            Map<String, WorkoutSession> workouts = WorkoutGenerator.generateWeeklyWorkouts(
+                    profile, library, load(n, maxExtraSets), new SplittableRandom(blockSeed));
+            return new Week(n, phase(n), targetRpe(n), workouts);
+        }
+    }
+}
@@ -5,12 +5,22 @@ public final class DayMeals {
     private final Meal lunch;
     private final Meal dinner;
     private final Meal snack;
+    private final int totalCalories;
+    private final int totalProteinGrams;
 
     public DayMeals(Meal breakfast, Meal lunch, Meal dinner, Meal snack) {
+        this(breakfast, lunch, dinner, snack,
+                breakfast.calories() + lunch.calories() + dinner.calories() + snack.calories(),
+                breakfast.proteinGrams() + lunch.proteinGrams() + dinner.proteinGrams() + snack.proteinGrams());
+    }
+
+    private DayMeals(Meal breakfast, Meal lunch, Meal dinner, Meal snack, int totalCalories, int totalProteinGrams) {
         this.breakfast = breakfast;
         this.lunch = lunch;
         this.dinner = dinner;
         this.snack = snack;
+        this.totalCalories = totalCalories;
+        this.totalProteinGrams = totalProteinGrams;
     }
 
     public Meal breakfast() { return breakfast; }
@@ -18,12 +28,30 @@ public final class DayMeals {
     public Meal dinner() { return dinner; }
     public Meal snack() { return snack; }
 
-    public int totalCalories() {
-        return breakfast.calories() + lunch.calories() + dinner.calories() + snack.calories();
+    public Meal get(MealSlot slot) {
+        return switch (slot) {
+            case BREAKFAST -> breakfast;
+            case LUNCH -> lunch;
+            case DINNER -> dinner;
+            case SNACK -> snack;
+        };
     }
 
-    public int totalProteinGrams() {
-        return breakfast.proteinGrams() + lunch.proteinGrams() + dinner.proteinGrams() + snack.proteinGrams();
+    /** The same day with {@code meal} in {@code slot}; totals are adjusted by the difference. */
+    public DayMeals with(MealSlot slot, Meal meal) {
+        Meal old = get(slot);
+        if (old == meal) return this;
+        int calories = totalCalories - old.calories() + meal.calories();
+        int protein = totalProteinGrams - old.proteinGrams() + meal.proteinGrams();
+        return switch (slot) {
+            case BREAKFAST -> new DayMeals(meal, lunch, dinner, snack, calories, protein);
+            case LUNCH -> new DayMeals(breakfast, meal, dinner, snack, calories, protein);
+            case DINNER -> new DayMeals(breakfast, lunch, meal, snack, calories, protein);
+            case SNACK -> new DayMeals(breakfast, lunch, dinner, meal, calories, protein);
+        };
     }
+
+    public int totalCalories() { return totalCalories; }
+    public int totalProteinGrams() { return totalProteinGrams; }
 }
 
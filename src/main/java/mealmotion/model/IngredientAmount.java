@@ -0,0 +1,139 @@
+package mealmotion.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * How much of one ingredient a meal uses, normalized to a base {@link Unit}.
+ *
+ * Ingredient names are interned process-wide into small dense IDs ({@link #id()}), so aggregations such
+ * as the shopping list can index plain arrays instead of hashing strings.
+ */
+public final class IngredientAmount {
+    private static final ConcurrentHashMap<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[64];
+    private static int nextId;
+
+    private final String name;
+    private final int id;
+    private final double amount;
+    private final Unit unit;
+
+    /** @param amount in {@code unit}, which must already be a base unit */
+    public IngredientAmount(String name, double amount, Unit unit) {
+        this.name = name.trim().toLowerCase();
+        this.id = intern(this.name);
+        this.amount = amount;
+        this.unit = unit;
+    }
+
+    public String name() { return name; }
+    public int id() { return id; }
+    public double amount() { return amount; }
+    public Unit unit() { return unit; }
+
+    /**
+     * Parses {@code "[amount [unit]] name"}, e.g. "80 g oats", "1/2 cup milk", "2 eggs" or "olive oil".
+     * Units are normalized: kg/oz/lb to grams; l/cup/tbsp/tsp/fl oz to millilitres. A number without a
+     * known unit counts pieces; no number at all means one serving.
+     */
+    public static IngredientAmount parse(String text) {
+        String s = text.trim();
+        int sp = s.indexOf(' ');
+        double amount = sp < 0 ? Double.NaN : number(s.substring(0, sp));
+        if (Double.isNaN(amount)) return new IngredientAmount(s, 1, Unit.SERVING);
+
+        String rest = s.substring(sp + 1).trim();
+        int sp2 = rest.indexOf(' ');
+        String word = (sp2 < 0 ? rest : rest.substring(0, sp2)).toLowerCase();
+        String after = sp2 < 0 ? "" : rest.substring(sp2 + 1).trim();
+        if (word.equals("fl") && after.toLowerCase().startsWith("oz ")) {
+            return new IngredientAmount(after.substring(3), amount * 29.5735, Unit.MILLILITER);
+        }
+        double grams = gramsPer(word), ml = millilitresPer(word);
+        if (after.isEmpty() || (grams == 0 && ml == 0 && !isPieceWord(word))) {
+            return new IngredientAmount(rest, amount, Unit.PIECE);
+        }
+        if (grams > 0) return new IngredientAmount(after, amount * grams, Unit.GRAM);
+        if (ml > 0) return new IngredientAmount(after, amount * ml, Unit.MILLILITER);
+        return new IngredientAmount(after, amount, Unit.PIECE);
+    }
+
+    private static double gramsPer(String unit) {
+        return switch (unit) {
+            case "g", "gram", "grams" -> 1;
+            case "kg", "kilogram", "kilograms" -> 1000;
+            case "oz", "ounce", "ounces" -> 28.3495;
+            case "lb", "lbs", "pound", "pounds" -> 453.592;
+            default -> 0;
+        };
+    }
+
+    private static double millilitresPer(String unit) {
+        return switch (unit) {
+            case "ml", "millilitre", "millilitres", "milliliter", "milliliters" -> 1;
+            case "l", "litre", "litres", "liter", "liters" -> 1000;
+            case "cup", "cups" -> 240;
+            case "tbsp", "tablespoon", "tablespoons" -> 15;
+            case "tsp", "teaspoon", "teaspoons" -> 5;
+            default -> 0;
+        };
+    }
+
+    private static boolean isPieceWord(String unit) {
+        return switch (unit) {
+            case "pc", "pcs", "piece", "pieces", "x" -> true;
+            default -> false;
+        };
+    }
+
+    /** "0.5", "2", "1/2"; NaN if {@code s} isn't a positive number. */
+    private static double number(String s) {
+        try {
+            int slash = s.indexOf('/');
+            double v = slash < 0 ? Double.parseDouble(s)
+                    : Double.parseDouble(s.substring(0, slash)) / Double.parseDouble(s.substring(slash + 1));
+            return v > 0 && Double.isFinite(v) ? v : Double.NaN;
+        } catch (NumberFormatException ex) {
+            return Double.NaN;
+        }
+    }
+
+    // ---------- Interning ----------
+
+    /** Dense process-wide ID for a (trimmed, lowercased) ingredient name. */
+    public static int intern(String name) {
+        Integer id = IDS.get(name);
+        return id != null ? id : internSlow(name);
+    }
+
+    private static synchronized int internSlow(String name) {
+        Integer id = IDS.get(name);
+        if (id != null) return id;
+        int n = nextId++;
+        String[] a = names;
+        if (n == a.length) names = a = Arrays.copyOf(a, a.length * 2);
+        a[n] = name;
+        IDS.put(name, n); // published after the name is stored
+        return n;
+    }
+
+    public static String nameOf(int id) {
+        return names[id];
+    }
+
+    /** One more than the largest ID handed out so far. */
+    public static int idCount() {
+        return IDS.size();
+    }
+
+    /** "80 g oats"; round-trips through {@link #parse}. */
+    @Override
+    public String toString() {
+        return switch (unit) {
+            case SERVING -> name;
+            case PIECE -> Unit.number(amount) + " " + name;
+            default -> Unit.number(amount) + " " + unit.symbol() + " " + name;
+        };
+    }
+}
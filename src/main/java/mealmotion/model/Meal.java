@@ -1,20 +1,28 @@
 package mealmotion.model;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 public final class Meal {
     private final String name;
+    private final MealSlot slot;
     private final int calories;
     private final int proteinGrams;
     private final boolean halal;
     private final boolean vegetarian;
     private final boolean vegan;
     private final boolean glutenFree;
-    private final List<String> ingredients; // lowercased tokens for shopping list + filtering
+    private final List<String> ingredients; // lowercased names for filtering
+    private final List<IngredientAmount> amounts; // same order as ingredients, for the shopping list
 
+    /**
+     * @param ingredients each {@code "[amount [unit]] name"} as understood by {@link IngredientAmount#parse},
+     *                    e.g. "80 g oats" or just "olive oil"
+     */
     public Meal(
             String name,
+            MealSlot slot,
             int calories,
             int proteinGrams,
             boolean halal,
@@ -23,20 +31,46 @@ public final class Meal {
             boolean glutenFree,
             List<String> ingredients
     ) {
+        this(parse(ingredients), name, slot, calories, proteinGrams, halal, vegetarian, vegan, glutenFree);
+    }
+
+    /** A meal whose ingredient amounts are already parsed, e.g. decoded from a catalog file. */
+    public static Meal withAmounts(String name, MealSlot slot, int calories, int proteinGrams, boolean halal, boolean vegetarian,
+                                   boolean vegan, boolean glutenFree, List<IngredientAmount> ingredients) {
+        return new Meal(List.copyOf(ingredients), name, slot, calories, proteinGrams, halal, vegetarian, vegan, glutenFree);
+    }
+
+    private Meal(List<IngredientAmount> amounts, String name, MealSlot slot, int calories, int proteinGrams,
+                 boolean halal, boolean vegetarian, boolean vegan, boolean glutenFree) {
         this.name = name;
+        this.slot = slot;
         this.calories = calories;
         this.proteinGrams = proteinGrams;
         this.halal = halal;
         this.vegetarian = vegetarian;
         this.vegan = vegan;
         this.glutenFree = glutenFree;
-        this.ingredients = ingredients == null ? Collections.emptyList() : List.copyOf(ingredients);
+        this.amounts = amounts;
+        List<String> names = new ArrayList<>(amounts.size());
+        for (IngredientAmount a : amounts) names.add(a.name());
+        this.ingredients = Collections.unmodifiableList(names);
+    }
+
+    private static List<IngredientAmount> parse(List<String> ingredients) {
+        if (ingredients == null || ingredients.isEmpty()) return List.of();
+        List<IngredientAmount> out = new ArrayList<>(ingredients.size());
+        for (String s : ingredients) {
+            if (s != null && !s.isBlank()) out.add(IngredientAmount.parse(s));
+        }
+        return List.copyOf(out);
     }
 
     public String name() { return name; }
+    public MealSlot slot() { return slot; }
     public int calories() { return calories; }
     public int proteinGrams() { return proteinGrams; }
     public List<String> ingredients() { return ingredients; }
+    public List<IngredientAmount> amounts() { return amounts; }
 
     public boolean matchesDiet(DietPreference pref) {
         if (pref == null || pref == DietPreference.NONE) return true;
@@ -0,0 +1,23 @@
+package mealmotion.model;
+
+public enum MealSlot {
+    BREAKFAST("Breakfast"),
+    LUNCH("Lunch"),
+    DINNER("Dinner"),
+    SNACK("Snack");
+
+    private final String label;
+
+    MealSlot(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
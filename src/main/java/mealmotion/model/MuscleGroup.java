@@ -0,0 +1,25 @@
+package mealmotion.model;
+
+/** What a session trains; exercises belong to every group they fit, cardio to {@link #FULL_BODY}. */
+public enum MuscleGroup {
+    UPPER("Upper"),
+    LOWER("Lower"),
+    PUSH("Push"),
+    PULL("Pull"),
+    FULL_BODY("Full Body");
+
+    private final String label;
+
+    MuscleGroup(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
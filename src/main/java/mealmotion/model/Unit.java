@@ -0,0 +1,39 @@
+package mealmotion.model;
+
+/**
+ * Base units ingredient amounts are normalized to. Weights end up in grams, volumes in millilitres,
+ * counted items in pieces; {@link #SERVING} is for ingredients listed without an amount.
+ */
+public enum Unit {
+    GRAM("g"),
+    MILLILITER("ml"),
+    PIECE(""),
+    SERVING("serving");
+
+    private final String symbol;
+
+    Unit(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public String symbol() { return symbol; }
+
+    /**
+     * Formats an amount in this unit for people: large weights and volumes switch to kg / l, whole
+     * numbers drop the decimals, and servings read as "x3".
+     */
+    public String format(double amount) {
+        return switch (this) {
+            case GRAM -> amount >= 1000 ? number(amount / 1000) + " kg" : number(amount) + " g";
+            case MILLILITER -> amount >= 1000 ? number(amount / 1000) + " l" : number(amount) + " ml";
+            case PIECE -> number(amount);
+            case SERVING -> "x" + number(amount);
+        };
+    }
+
+    /** Rounded to one decimal, without a trailing ".0". */
+    public static String number(double v) {
+        double r = Math.round(v * 10) / 10.0;
+        return r == Math.rint(r) ? Long.toString((long) r) : Double.toString(r);
+    }
+}
@@ -20,5 +20,21 @@ public final class WeeklyPlan {
 
     public void putMeals(String day, DayMeals meals) { mealsByDay.put(day, meals); }
     public void putWorkout(String day, WorkoutSession workout) { workoutsByDay.put(day, workout); }
+
+    /** A copy that later edits to this plan don't affect (days and workouts are immutable, so they are shared). */
+    public WeeklyPlan copy() {
+        WeeklyPlan c = new WeeklyPlan(profile);
+        c.mealsByDay.putAll(mealsByDay);
+        c.workoutsByDay.putAll(workoutsByDay);
+        return c;
+    }
+
+    /** Puts {@code meal} in one slot of {@code day}, leaving the other slots alone; returns the meal it replaced. */
+    public Meal replaceMeal(String day, MealSlot slot, Meal meal) {
+        DayMeals dm = mealsByDay.get(day);
+        if (dm == null) throw new IllegalArgumentException("No meals planned for " + day);
+        mealsByDay.put(day, dm.with(slot, meal));
+        return dm.get(slot);
+    }
 }
 
@@ -7,6 +7,7 @@ public final class WorkoutMove {
     private final Integer reps;
     private final Integer minutes;
     private final Integer seconds;
+    private String formatted; // built on first use; racy but idempotent
 
     private WorkoutMove(String name, WorkoutMoveType type, Integer sets, Integer reps, Integer minutes, Integer seconds) {
         this.name = name;
@@ -35,8 +36,19 @@ public final class WorkoutMove {
 
     public String name() { return name; }
     public WorkoutMoveType type() { return type; }
+    /** Sets, reps, minutes and seconds are 0 when they don't apply to the move's type. */
+    public int sets() { return sets == null ? 0 : sets; }
+    public int reps() { return reps == null ? 0 : reps; }
+    public int minutes() { return minutes == null ? 0 : minutes; }
+    public int seconds() { return seconds == null ? 0 : seconds; }
 
     public String format() {
+        String s = formatted;
+        if (s == null) formatted = s = buildFormat();
+        return s;
+    }
+
+    private String buildFormat() {
         return switch (type) {
             case CARDIO -> name + ": " + minutes + " min";
             case MOBILITY -> name + ": " + minutes + " min";
@@ -5,6 +5,7 @@ import java.util.List;
 public final class WorkoutSession {
     private final String title;
     private final List<WorkoutMove> moves;
+    private String csv; // formatted on first use; racy but idempotent, like String.hashCode
 
     public WorkoutSession(String title, List<WorkoutMove> moves) {
         this.title = title;
@@ -15,6 +16,12 @@ public final class WorkoutSession {
     public List<WorkoutMove> moves() { return moves; }
 
     public String formatForCsv() {
+        String s = csv;
+        if (s == null) csv = s = buildCsv();
+        return s;
+    }
+
+    private String buildCsv() {
         StringBuilder sb = new StringBuilder();
         sb.append(title).append(": ");
         for (int i = 0; i < moves.size(); i++) {
@@ -0,0 +1,318 @@
+package mealmotion.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import mealmotion.batch.BatchPlanRunner;
+import mealmotion.gen.MealCatalog;
+import mealmotion.gen.PlanBuilder;
+import mealmotion.gen.PlanCache;
+import mealmotion.model.*;
+import mealmotion.util.*;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * Local HTTP service for plan generation, on the JDK's built-in {@code com.sun.net.httpserver}.
+ *
+ * <pre>
+ *   POST /plan[?format=json|csv|shopping][&amp;seed=N]   body: profile JSON (same fields as batch JSONL)
+ *   GET  /health                                       "ok"
+ *   GET  /metrics                                      request counts and latency percentiles per route
+ * </pre>
+ *
+ * Load is bounded at two levels. At most {@code threads} plans are generated at once (one per core by
+ * default); a request that can't start generating within {@link #QUEUE_WAIT_MILLIS} gets a 503 with
+ * {@code Retry-After}, so callers back off instead of piling up. In front of that, a fixed pool of
+ * {@code threads * WAITING_PER_THREAD} request threads with a short queue takes connections; once both
+ * are full, the server's dispatcher thread handles the next request itself, which stops it accepting
+ * new connections until things drain (TCP backpressure). Bodies over {@link #MAX_BODY_BYTES} get a 413.
+ *
+ * Without a {@code seed}, plans come from a {@link PlanCache}, so the same profile gets the same plan for
+ * the lifetime of the service.
+ */
+public final class PlanService {
+    static final int MAX_BODY_BYTES = 64 * 1024;
+    static final long QUEUE_WAIT_MILLIS = 2_000;
+    private static final int WAITING_PER_THREAD = 8;
+    private static final int CACHE_ENTRIES = 4096;
+    private static final String USAGE = "Usage: --serve [--host H] [--port N] [--threads N]";
+
+    private final MealCatalog catalog;
+    private final int threads;
+    private final Semaphore generating;
+    private final BiFunction<UserProfile, SplittableRandom, WeeklyPlan> cached;
+    private final Map<String, LatencyHistogram> latency = new ConcurrentHashMap<>();
+    private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+    private final AtomicLong inFlight = new AtomicLong();
+    private HttpServer server;
+    private ThreadPoolExecutor pool;
+
+    public PlanService(MealCatalog catalog, int threads) {
+        this.catalog = catalog;
+        this.threads = Math.max(1, threads);
+        this.generating = new Semaphore(this.threads);
+        PlanCache cache = new PlanCache(CACHE_ENTRIES);
+        this.cached = BatchPlanRunner.cached((p, rng) -> PlanBuilder.build(p, catalog, rng), cache,
+                new SplittableRandom().nextLong());
+    }
+
+    /** CLI entry: {@code --serve [--host H] [--port N] [--threads N]}; binds to localhost by default. */
+    public static void main(String[] args) {
+        String host = "127.0.0.1";
+        int port = 8080;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            String flag = args[i];
+            if (i + 1 == args.length) usageError("Missing value for " + flag);
+            String value = args[++i];
+            try {
+                switch (flag) {
+                    case "--host" -> host = value;
+                    case "--port" -> port = Integer.parseInt(value);
+                    case "--threads" -> threads = Integer.parseInt(value);
+                    default -> usageError("Unknown option: " + flag);
+                }
+            } catch (NumberFormatException ex) {
+                usageError("Not a number for " + flag + ": " + value);
+            }
+        }
+        if (port < 0 || port > 65535) usageError("--port must be between 0 and 65535: " + port);
+        try {
+            PlanService service = new PlanService(MealCatalog.configured(), threads);
+            service.start(new InetSocketAddress(host, port));
+            Runtime.getRuntime().addShutdownHook(new Thread(service::stop, "mealmotion-service-stop"));
+            System.err.printf("Serving plans on http://%s:%d/plan (%d generation threads)%n", host, service.port(), threads);
+        } catch (IOException ex) {
+            System.err.println("Service failed to start: " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** Prints {@code problem} (if any) and the usage line, and exits with status 2. */
+    private static void usageError(String problem) {
+        if (problem != null) System.err.println(problem);
+        System.err.println(USAGE);
+        System.exit(2);
+    }
+
+    public void start(InetSocketAddress address) throws IOException {
+        int waiting = threads * WAITING_PER_THREAD;
+        AtomicLong seq = new AtomicLong();
+        pool = new ThreadPoolExecutor(waiting, waiting, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(waiting),
+                r -> {
+                    Thread t = new Thread(r, "mealmotion-http-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        server = HttpServer.create(address, 0);
+        server.setExecutor(pool);
+        server.createContext("/plan", ex -> handle(ex, "POST", this::plan));
+        server.createContext("/health", ex -> handle(ex, "GET", e -> {
+            respond(e, 200, "text/plain", "ok\n");
+            return "/health";
+        }));
+        server.createContext("/metrics", ex -> handle(ex, "GET", e -> {
+            respond(e, 200, "text/plain", metrics());
+            return "/metrics";
+        }));
+        server.start();
+    }
+
+    /** The bound port (useful after starting on port 0). */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /** Stops accepting requests and gives running ones a second to finish. */
+    public void stop() {
+        if (server != null) server.stop(1);
+        if (pool != null) pool.shutdown();
+    }
+
+    // ---------- Handlers ----------
+
+    private interface Handler {
+        /** Returns the route name latency is recorded under. */
+        String handle(HttpExchange ex) throws IOException;
+    }
+
+    private void handle(HttpExchange ex, String method, Handler handler) {
+        long start = System.nanoTime();
+        inFlight.incrementAndGet();
+        String route = ex.getHttpContext().getPath();
+        try {
+            if (!ex.getRequestMethod().equalsIgnoreCase(method)) {
+                ex.getResponseHeaders().set("Allow", method);
+                respond(ex, 405, "text/plain", "Use " + method + "\n");
+            } else {
+                route = handler.handle(ex);
+            }
+        } catch (RequestException re) {
+            if (re.status == 503) ex.getResponseHeaders().set("Retry-After", "1");
+            quietly(() -> respond(ex, re.status, "text/plain", re.getMessage() + "\n"));
+        } catch (IOException | RuntimeException e) {
+            // IOException here is mostly a client that went away; there may be nobody to tell.
+            quietly(() -> respond(ex, 500, "text/plain", "Internal error\n"));
+        } finally {
+            ex.close();
+            inFlight.decrementAndGet();
+            latency.computeIfAbsent(route, r -> new LatencyHistogram()).record(System.nanoTime() - start);
+        }
+    }
+
+    private String plan(HttpExchange ex) throws IOException {
+        Map<String, String> query = query(ex.getRequestURI().getRawQuery());
+        String format = query.getOrDefault("format", "json");
+        if (!format.equals("json") && !format.equals("csv") && !format.equals("shopping")) {
+            throw new RequestException(400, "format must be json, csv or shopping");
+        }
+        UserProfile profile;
+        try {
+            profile = ProfileReader.parseJson(readBody(ex));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException bad) {
+            throw new RequestException(400, "Bad profile JSON: " + bad.getMessage());
+        }
+        Long seed = null;
+        if (query.containsKey("seed")) {
+            try {
+                seed = Long.parseLong(query.get("seed"));
+            } catch (NumberFormatException bad) {
+                throw new RequestException(400, "seed must be a number");
+            }
+        }
+
+        WeeklyPlan plan;
+        try {
+            if (!generating.tryAcquire(QUEUE_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                throw new RequestException(503, "Busy, try again shortly");
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new RequestException(503, "Shutting down");
+        }
+        try {
+            plan = seed != null ? PlanBuilder.build(profile, catalog, seed) : cached.apply(profile, null);
+        } finally {
+            generating.release();
+        }
+
+        switch (format) {
+            case "csv" -> {
+                StringWriter sw = new StringWriter(2048);
+                try (CsvWriter w = new CsvWriter(sw)) {
+                    w.raw(PlanExporter.CSV_HEADER).endRow();
+                    PlanExporter.writePlanRows(w, plan, false);
+                }
+                respond(ex, 200, "text/csv", sw.toString());
+            }
+            case "shopping" -> {
+                StringWriter sw = new StringWriter(1024);
+                PlanExporter.writeShoppingList(new PrintWriter(sw), plan);
+                respond(ex, 200, "text/plain", sw.toString());
+            }
+            default -> {
+                statuses.computeIfAbsent(200, st -> new LongAdder()).increment();
+                ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                ex.sendResponseHeaders(200, 0); // chunked: the plan is encoded straight onto the socket
+                try (JsonWriter w = new JsonWriter(ex.getResponseBody())) {
+                    PlanJson.writePlan(w, plan);
+                }
+            }
+        }
+        return "/plan." + format;
+    }
+
+    private static String readBody(HttpExchange ex) throws IOException {
+        String declared = ex.getRequestHeaders().getFirst("Content-Length");
+        if (declared != null) {
+            try {
+                if (Long.parseLong(declared.trim()) > MAX_BODY_BYTES) throw tooLarge();
+            } catch (NumberFormatException bad) {
+                throw new RequestException(400, "Bad Content-Length");
+            }
+        }
+        // Chunked bodies have no length up front, so the limit is enforced while reading too.
+        try (InputStream in = ex.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) throw tooLarge();
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static RequestException tooLarge() {
+        return new RequestException(413, "Request body over " + MAX_BODY_BYTES + " bytes");
+    }
+
+    private String metrics() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("in_flight ").append(inFlight.get()).append('\n');
+        sb.append("generating ").append(threads - generating.availablePermits()).append('\n');
+        new TreeMap<>(statuses).forEach((status, n) -> sb.append("responses{status=\"").append(status).append("\"} ").append(n.sum()).append('\n'));
+        new TreeMap<>(latency).forEach((route, h) -> {
+            LatencyHistogram.Snapshot s = h.snapshot();
+            String r = "{route=\"" + route + "\"}";
+            sb.append("requests").append(r).append(' ').append(s.count()).append('\n');
+            sb.append("latency_us_mean").append(r).append(' ').append(Math.round(s.meanMicros())).append('\n');
+            sb.append("latency_us_p50").append(r).append(' ').append(s.p50Micros()).append('\n');
+            sb.append("latency_us_p90").append(r).append(' ').append(s.p90Micros()).append('\n');
+            sb.append("latency_us_p99").append(r).append(' ').append(s.p99Micros()).append('\n');
+            sb.append("latency_us_max").append(r).append(' ').append(s.maxMicros()).append('\n');
+        });
+        return sb.toString();
+    }
+
+    private void respond(HttpExchange ex, int status, String type, String body) throws IOException {
+        statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", type + "; charset=utf-8");
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> query(String raw) {
+        Map<String, String> out = new HashMap<>();
+        if (raw == null || raw.isEmpty()) return out;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String k = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String v = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            out.put(k, v);
+        }
+        return out;
+    }
+
+    private interface IoAction {
+        void run() throws IOException;
+    }
+
+    private static void quietly(IoAction action) {
+        try {
+            action.run();
+        } catch (IOException | RuntimeException ignored) {
+            // Headers already sent or the client is gone.
+        }
+    }
+
+    /** Ends a request with a client-facing status and message. */
+    private static final class RequestException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
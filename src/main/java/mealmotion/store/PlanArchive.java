@@ -0,0 +1,60 @@
+package mealmotion.store;
+
+import mealmotion.model.*;
+
+/**
+ * Compact binary format for archiving weekly plans: typically 50-80 bytes per plan.
+ *
+ * After a 16-byte little-endian header (magic, format version, the {@link mealmotion.gen.MealCatalog#version()
+ * catalog version} the meal IDs refer to) comes one record per plan: its length as a varint, then
+ * <pre>
+ *   name          varint length + UTF-8
+ *   age, height, weight, target weight   varints
+ *   options       varint: gender, activity, goal, diet, equipment and includeWorkouts in mixed radix
+ *   workout days, minutes                varints
+ *   allergies     varint count + string refs
+ *   dislikes      varint count + string refs
+ *   days          varint count, then per day: day name string ref, 4 meal IDs (varints), session ref
+ * </pre>
+ * Repeated strings (day names, exclusion terms, exercise names) and whole workout sessions are kept in
+ * dictionaries that are built inline: the first use of a value writes it out in full with the next free
+ * ID, later uses write just the ID. Readers rebuild the same dictionaries as they go, so the file can
+ * only be read front to back, but a long archive costs a few bytes per meal and workout.
+ * <pre>
+ *   string ref    0 = literal not added to the dictionary (varint length + UTF-8), n = ID n - 1;
+ *                 ID == dictionary size means a new entry follows as a literal
+ *   session ref   0 = no workout, 1 = literal session not added, n = ID n - 2 (new entries as for strings)
+ *   session       title string ref, varint move count, per move: name string ref, type, then sets and
+ *                 reps (strength), minutes (cardio, mobility) or seconds (core) as varints
+ * </pre>
+ * Dictionaries stop growing at a fixed size, after which new values are written as literals.
+ */
+final class PlanArchive {
+    static final int MAGIC = 0x41504D4D; // "MMPA" little-endian
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 16;
+
+    static final int MAX_STRINGS = 1 << 16;
+    static final int MAX_SESSIONS = 1 << 18;
+    /** Records longer than this are rejected; keeps any record within one mapped window. */
+    static final int MAX_RECORD_BYTES = 1 << 24;
+
+    static final Gender[] GENDERS = Gender.values();
+    static final ActivityLevel[] ACTIVITY = ActivityLevel.values();
+    static final BodyGoal[] GOALS = BodyGoal.values();
+    static final DietPreference[] DIETS = DietPreference.values();
+    static final Equipment[] EQUIPMENT = Equipment.values();
+    static final WorkoutMoveType[] MOVE_TYPES = WorkoutMoveType.values();
+    static final MealSlot[] SLOTS = MealSlot.values();
+
+    private PlanArchive() {}
+
+    static int options(UserProfile p) {
+        int v = p.gender().ordinal();
+        v = v * ACTIVITY.length + p.activityLevel().ordinal();
+        v = v * GOALS.length + p.bodyGoal().ordinal();
+        v = v * DIETS.length + p.dietPreference().ordinal();
+        v = v * EQUIPMENT.length + p.equipment().ordinal();
+        return v * 2 + (p.includeWorkouts() ? 1 : 0);
+    }
+}
@@ -0,0 +1,170 @@
+package mealmotion.store;
+
+import mealmotion.gen.MealCatalog;
+import mealmotion.model.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Reads a {@link PlanArchive} file front to back through a memory mapping.
+ *
+ * As an {@link Iterator} it rebuilds full {@link WeeklyPlan}s against the archive's catalog. For
+ * analytics over large archives, {@link #scan(PlanRecord)} decodes into a reusable {@link PlanRecord}
+ * instead: numbers, meal IDs and dictionary entries only, with the name decoded on demand, so scanning
+ * allocates next to nothing per plan. Archives larger than 2 GB are mapped a window at a time.
+ */
+public final class PlanArchiveReader implements Iterator<WeeklyPlan>, Closeable {
+    private static final long WINDOW_BYTES = 1L << 30;
+
+    private final FileChannel ch;
+    private final MealCatalog catalog;
+    private final long size;
+    private final PlanCodec.Decoder dec;
+    private final PlanRecord scratch = new PlanRecord();
+    private ByteBuffer buf;   // maps [base, base + buf.limit())
+    private long base;
+    private long next = PlanArchive.HEADER_BYTES;
+
+    private PlanArchiveReader(FileChannel ch, MealCatalog catalog) throws IOException {
+        this.ch = ch;
+        this.catalog = catalog;
+        this.dec = new PlanCodec.Decoder(catalog, true);
+        this.size = ch.size();
+        if (size < PlanArchive.HEADER_BYTES) throw new IOException("Not a plan archive (too short)");
+        map(0);
+        ByteBuffer h = buf.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (h.getInt(0) != PlanArchive.MAGIC) throw new IOException("Not a plan archive (bad magic)");
+        int version = h.getInt(4);
+        if (version != PlanArchive.FORMAT_VERSION) throw new IOException("Unsupported plan archive version " + version);
+        long catalogVersion = h.getLong(8);
+        if (catalogVersion != catalog.version()) {
+            throw new IOException("Plan archive was written for catalog version " + Long.toHexString(catalogVersion)
+                    + ", not " + Long.toHexString(catalog.version()));
+        }
+    }
+
+    /**
+     * Opens {@code file} for reading plans whose meal IDs refer to {@code catalog}.
+     *
+     * @throws IOException if the file isn't a plan archive or was written for another catalog
+     */
+    public static PlanArchiveReader open(Path file, MealCatalog catalog) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new PlanArchiveReader(ch, catalog);
+        } catch (IOException | RuntimeException ex) {
+            ch.close();
+            throw ex;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next < size;
+    }
+
+    /** @throws UncheckedIOException if the archive is truncated or corrupt */
+    @Override
+    public WeeklyPlan next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        try {
+            scan(scratch);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return scratch.plan(catalog);
+    }
+
+    /**
+     * Decodes the next plan into {@code r}, which is only valid until the next call. Returns false at
+     * the end of the archive.
+     */
+    public boolean scan(PlanRecord r) throws IOException {
+        if (next >= size) return false;
+        if (next + 5 > base + buf.limit() && base + buf.limit() < size) map(next);
+        try {
+            dec.at(buf, (int) (next - base));
+            int len = dec.varint();
+            if (len < 0 || len > PlanArchive.MAX_RECORD_BYTES) throw corrupt();
+            if (dec.pos() + len > buf.limit()) {
+                if (base + buf.limit() >= size) throw new IOException("Truncated plan archive at offset " + next);
+                map(next);
+                dec.at(buf, (int) (next - base));
+                dec.varint();
+            }
+            int end = dec.pos() + len;
+            dec.at(buf, dec.pos(), end);
+            dec.plan(r);
+            if (dec.pos() != end) throw corrupt();
+            next = base + end;
+            return true;
+        } catch (IndexOutOfBoundsException | IllegalArgumentException ex) {
+            throw corrupt();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        ch.close();
+    }
+
+    /**
+     * CLI entry: {@code --archive-stats <plans.mmpa>}. Scans an archive made with the configured catalog
+     * and prints plan counts, diet mix and the most used meals.
+     */
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("Usage: --archive-stats <plans.mmpa>");
+            System.exit(2);
+        }
+        MealCatalog catalog = MealCatalog.configured();
+        long start = System.nanoTime();
+        long plans = 0, days = 0, withWorkouts = 0;
+        long[] diets = new long[PlanArchive.DIETS.length];
+        long[] uses = new long[catalog.size()];
+        try (PlanArchiveReader in = open(Path.of(args[0]), catalog)) {
+            PlanRecord r = new PlanRecord();
+            while (in.scan(r)) {
+                plans++;
+                days += r.days();
+                diets[r.dietPreference().ordinal()]++;
+                if (r.includeWorkouts()) withWorkouts++;
+                for (int d = 0; d < r.days(); d++) {
+                    for (MealSlot slot : PlanArchive.SLOTS) uses[r.mealId(d, slot)]++;
+                }
+            }
+            double secs = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d plans, %d days, %.1f bytes/plan; scanned in %.2f s (%.0f plans/sec)%n", plans, days,
+                    plans == 0 ? 0.0 : (double) (in.size - PlanArchive.HEADER_BYTES) / plans, secs, plans / Math.max(secs, 1e-9));
+        } catch (IOException ex) {
+            System.err.println("Archive scan failed: " + ex.getMessage());
+            System.exit(1);
+        }
+        System.out.printf("With workouts: %d%n", withWorkouts);
+        for (DietPreference diet : PlanArchive.DIETS) System.out.printf("Diet %s: %d%n", diet, diets[diet.ordinal()]);
+        Integer[] ids = new Integer[uses.length];
+        for (int i = 0; i < ids.length; i++) ids[i] = i;
+        Arrays.sort(ids, (x, y) -> Long.compare(uses[y], uses[x]));
+        System.out.println("Most used meals:");
+        for (int i = 0; i < Math.min(10, ids.length) && uses[ids[i]] > 0; i++) {
+            System.out.printf("  %8d  %s%n", uses[ids[i]], catalog.meal(ids[i]).name());
+        }
+    }
+
+    private void map(long from) throws IOException {
+        base = from;
+        buf = ch.map(FileChannel.MapMode.READ_ONLY, from, Math.min(WINDOW_BYTES, size - from));
+    }
+
+    private IOException corrupt() {
+        return new IOException("Corrupt plan archive record at offset " + next);
+    }
+}
@@ -0,0 +1,103 @@
+package mealmotion.store;
+
+import mealmotion.gen.MealCatalog;
+import mealmotion.model.WeeklyPlan;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+/**
+ * Streams plans into a {@link PlanArchive} file. Each plan is encoded into a reusable buffer and
+ * appended; nothing but the inline dictionaries is kept, so any number of plans can be written.
+ *
+ * Plans must use meals from the catalog the archive was created for. Not thread-safe.
+ */
+public final class PlanArchiveWriter implements Closeable, Flushable {
+    private static final int OUT_BYTES = 1 << 16;
+
+    private final FileChannel ch;
+    private final PlanCodec.Encoder enc;
+    private final ByteBuffer out = ByteBuffer.allocate(OUT_BYTES);
+    private long plans;
+
+    private PlanArchiveWriter(FileChannel ch, MealCatalog catalog) {
+        this.ch = ch;
+        this.enc = new PlanCodec.Encoder(catalog, true);
+    }
+
+    /** Creates (or truncates) {@code file} for plans built from {@code catalog}. */
+    public static PlanArchiveWriter create(Path file, MealCatalog catalog) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        PlanArchiveWriter w = new PlanArchiveWriter(ch, catalog);
+        ByteBuffer header = ByteBuffer.allocate(PlanArchive.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(PlanArchive.MAGIC).putInt(PlanArchive.FORMAT_VERSION).putLong(catalog.version()).flip();
+        w.out.put(header);
+        return w;
+    }
+
+    /** Plans written so far. */
+    public long plans() { return plans; }
+
+    /** @throws IllegalArgumentException if a meal of the plan isn't in the archive's catalog */
+    public void write(WeeklyPlan plan) throws IOException {
+        enc.reset();
+        try {
+            enc.plan(plan);
+            if (enc.length() > PlanArchive.MAX_RECORD_BYTES) {
+                throw new IllegalArgumentException("Plan too large to archive: " + enc.length() + " bytes");
+            }
+        } catch (RuntimeException ex) {
+            // Readers never see this record, so forget the dictionary entries it introduced.
+            enc.abort();
+            throw ex;
+        }
+        int len = enc.length();
+        if (out.remaining() < 5 + len) flushBuffer();
+        putVarint(out, len);
+        if (len > out.remaining()) {
+            flushBuffer();
+            write(ByteBuffer.wrap(enc.buffer(), 0, len));
+        } else {
+            out.put(enc.buffer(), 0, len);
+        }
+        plans++;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            ch.close();
+        }
+    }
+
+    private static void putVarint(ByteBuffer b, int v) {
+        while ((v & ~0x7F) != 0) {
+            b.put((byte) (v | 0x80));
+            v >>>= 7;
+        }
+        b.put((byte) v);
+    }
+
+    private void flushBuffer() throws IOException {
+        out.flip();
+        write(out);
+        out.clear();
+    }
+
+    private void write(ByteBuffer b) throws IOException {
+        while (b.hasRemaining()) ch.write(b);
+    }
+}
@@ -0,0 +1,302 @@
+package mealmotion.store;
+
+import mealmotion.gen.MealCatalog;
+import mealmotion.model.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Encodes and decodes the plan records described in {@link PlanArchive}.
+ *
+ * With dictionaries (archives), strings and sessions are written once and then referenced, so records
+ * can only be decoded in order. Without (the plan store), every string and session is written as a
+ * literal and each record decodes on its own.
+ */
+final class PlanCodec {
+    private PlanCodec() {}
+
+    static String utf8(ByteBuffer b, int at, int n) {
+        byte[] bytes = new byte[n];
+        b.get(at, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Encodes into a reusable buffer. Not thread-safe. */
+    static final class Encoder {
+        private final MealCatalog catalog;
+        private final Map<String, Integer> strings;   // null without dictionaries
+        private final Map<String, Integer> sessions;  // keyed by the session's CSV form
+        private final List<String> addedStrings = new ArrayList<>();   // dictionary entries since reset()
+        private final List<String> addedSessions = new ArrayList<>();
+        private byte[] buf = new byte[256];
+        private int pos;
+
+        Encoder(MealCatalog catalog, boolean dictionaries) {
+            this.catalog = catalog;
+            this.strings = dictionaries ? new HashMap<>() : null;
+            this.sessions = dictionaries ? new HashMap<>() : null;
+        }
+
+        /** Starts a new record. */
+        void reset() {
+            pos = 0;
+            addedStrings.clear();
+            addedSessions.clear();
+        }
+
+        /** Forgets the dictionary entries of a record that won't be written after all. */
+        void abort() {
+            if (strings != null) {
+                strings.keySet().removeAll(addedStrings);
+                sessions.keySet().removeAll(addedSessions);
+            }
+            pos = 0;
+        }
+
+        byte[] buffer() { return buf; }
+        int length() { return pos; }
+
+        /** @throws IllegalArgumentException if a meal of the plan isn't in the catalog */
+        void plan(WeeklyPlan plan) {
+            UserProfile p = plan.profile();
+            literal(p.name() == null ? "" : p.name());
+            varint(p.age());
+            varint(p.heightCm());
+            varint(p.weightKg());
+            varint(p.targetWeightKg());
+            varint(PlanArchive.options(p));
+            varint(p.workoutDaysPerWeek());
+            varint(p.workoutMinutesPerSession());
+            strings(p.allergies());
+            strings(p.dislikedFoods());
+
+            varint(plan.mealsByDay().size());
+            for (Map.Entry<String, DayMeals> e : plan.mealsByDay().entrySet()) {
+                string(e.getKey());
+                DayMeals dm = e.getValue();
+                for (MealSlot slot : PlanArchive.SLOTS) {
+                    Meal m = dm.get(slot);
+                    int id = catalog.idOf(m);
+                    if (id < 0) throw new IllegalArgumentException("Meal not in the catalog: " + m.name());
+                    varint(id);
+                }
+                session(plan.workoutsByDay().get(e.getKey()));
+            }
+        }
+
+        void literal(String s) {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            varint(b.length);
+            ensure(b.length);
+            System.arraycopy(b, 0, buf, pos, b.length);
+            pos += b.length;
+        }
+
+        void varint(int v) {
+            ensure(5);
+            while ((v & ~0x7F) != 0) {
+                buf[pos++] = (byte) (v | 0x80);
+                v >>>= 7;
+            }
+            buf[pos++] = (byte) v;
+        }
+
+        private void strings(List<String> list) {
+            varint(list.size());
+            for (String s : list) string(s);
+        }
+
+        private void string(String s) {
+            Integer id = strings == null ? null : strings.get(s);
+            if (id != null) {
+                varint(id + 1);
+            } else if (strings != null && strings.size() < PlanArchive.MAX_STRINGS) {
+                int n = strings.size();
+                strings.put(s, n);
+                addedStrings.add(s);
+                varint(n + 1);
+                literal(s);
+            } else {
+                varint(0);
+                literal(s);
+            }
+        }
+
+        private void session(WorkoutSession s) {
+            if (s == null) {
+                varint(0);
+                return;
+            }
+            if (sessions == null) {
+                varint(1);
+            } else {
+                String key = s.formatForCsv();
+                Integer id = sessions.get(key);
+                if (id != null) {
+                    varint(id + 2);
+                    return;
+                }
+                if (sessions.size() < PlanArchive.MAX_SESSIONS) {
+                    int n = sessions.size();
+                    sessions.put(key, n);
+                    addedSessions.add(key);
+                    varint(n + 2);
+                } else {
+                    varint(1);
+                }
+            }
+            string(s.title());
+            varint(s.moves().size());
+            for (WorkoutMove m : s.moves()) {
+                string(m.name());
+                varint(m.type().ordinal());
+                switch (m.type()) {
+                    case STRENGTH -> {
+                        varint(m.sets());
+                        varint(m.reps());
+                    }
+                    case CARDIO, MOBILITY -> varint(m.minutes());
+                    case CORE -> varint(m.seconds());
+                }
+            }
+        }
+
+        private void ensure(int n) {
+            if (pos + n > buf.length) buf = Arrays.copyOf(buf, Math.max(pos + n, buf.length * 2));
+        }
+    }
+
+    /**
+     * Decodes from a byte buffer. Malformed input surfaces as {@link IndexOutOfBoundsException} or
+     * {@link IllegalArgumentException}; lengths and counts read from the data are checked against the bytes
+     * left before anything is allocated for them. Not thread-safe.
+     */
+    static final class Decoder {
+        private final MealCatalog catalog;
+        private final List<String> strings;           // null without dictionaries
+        private final List<WorkoutSession> sessions;
+        private ByteBuffer buf;
+        private int pos;
+        private int end;                              // no decoded length may reach past this
+
+        Decoder(MealCatalog catalog, boolean dictionaries) {
+            this.catalog = catalog;
+            this.strings = dictionaries ? new ArrayList<>() : null;
+            this.sessions = dictionaries ? new ArrayList<>() : null;
+        }
+
+        void at(ByteBuffer buf, int pos) {
+            at(buf, pos, buf.limit());
+        }
+
+        /** Decodes from {@code pos}; the record ends at {@code end}. */
+        void at(ByteBuffer buf, int pos, int end) {
+            this.buf = buf;
+            this.pos = pos;
+            this.end = end;
+        }
+
+        int pos() { return pos; }
+
+        void plan(PlanRecord r) {
+            r.src = buf;
+            r.nameLength = length(varint());
+            r.nameOffset = pos;
+            pos += r.nameLength;
+            r.name = null;
+            r.age = varint();
+            r.heightCm = varint();
+            r.weightKg = varint();
+            r.targetWeightKg = varint();
+            r.unpackOptions(varint());
+            r.workoutDays = varint();
+            r.workoutMinutes = varint();
+            strings(r.allergies);
+            strings(r.dislikedFoods);
+
+            int days = length(varint()); // every day takes at least one byte
+            r.ensureDays(days);
+            r.days = days;
+            for (int d = 0; d < days; d++) {
+                r.dayNames[d] = string();
+                for (int s = 0; s < PlanArchive.SLOTS.length; s++) {
+                    int id = varint();
+                    if (id < 0 || id >= catalog.size()) throw new IllegalArgumentException("meal ID " + id);
+                    r.mealIds[d * PlanArchive.SLOTS.length + s] = id;
+                }
+                r.sessions[d] = session();
+            }
+        }
+
+        String literal() {
+            int n = length(varint());
+            String s = utf8(buf, pos, n);
+            pos += n;
+            return s;
+        }
+
+        /** {@code n} if that many bytes are left in the record. */
+        private int length(int n) {
+            if (n < 0 || n > end - pos) throw new IllegalArgumentException("length " + n + " at " + pos);
+            return n;
+        }
+
+        int varint() {
+            int v = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = buf.get(pos++);
+                v |= (b & 0x7F) << shift;
+                if (b >= 0) return v;
+            }
+            throw new IllegalArgumentException("varint too long");
+        }
+
+        private void strings(List<String> into) {
+            into.clear();
+            for (int i = varint(); i > 0; i--) into.add(string());
+        }
+
+        private String string() {
+            int ref = varint();
+            if (ref == 0) return literal();
+            if (strings == null) throw new IllegalArgumentException("string ref " + ref);
+            int id = ref - 1;
+            if (id < strings.size()) return strings.get(id);
+            if (id != strings.size()) throw new IllegalArgumentException("string ref " + ref);
+            String s = literal();
+            strings.add(s);
+            return s;
+        }
+
+        private WorkoutSession session() {
+            int ref = varint();
+            if (ref == 0) return null;
+            if (ref == 1) return sessionLiteral();
+            if (sessions == null) throw new IllegalArgumentException("session ref " + ref);
+            int id = ref - 2;
+            if (id < sessions.size()) return sessions.get(id);
+            if (id != sessions.size()) throw new IllegalArgumentException("session ref " + ref);
+            WorkoutSession s = sessionLiteral();
+            sessions.add(s);
+            return s;
+        }
+
+        private WorkoutSession sessionLiteral() {
+            String title = string();
+            int n = varint();
+            List<WorkoutMove> moves = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                String name = string();
+                moves.add(switch (PlanArchive.MOVE_TYPES[varint()]) {
+                    case STRENGTH -> WorkoutMove.strength(name, varint(), varint());
+                    case CARDIO -> WorkoutMove.cardio(name, varint());
+                    case MOBILITY -> WorkoutMove.mobilityMinutes(name, varint());
+                    case CORE -> WorkoutMove.coreSeconds(name, varint());
+                });
+            }
+            return new WorkoutSession(title, moves);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package mealmotion.store;
+
+import mealmotion.gen.MealCatalog;
+import mealmotion.model.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One decoded plan, reused from record to record while scanning: numbers, meal IDs and shared
+ * strings and sessions, with the profile name decoded on demand. Only valid until the next record is
+ * decoded into it; {@link #plan} rebuilds a standalone {@link WeeklyPlan}.
+ */
+public final class PlanRecord {
+    ByteBuffer src;
+    int nameOffset, nameLength;
+    String name;
+    int age, heightCm, weightKg, targetWeightKg, workoutDays, workoutMinutes;
+    Gender gender;
+    ActivityLevel activityLevel;
+    BodyGoal bodyGoal;
+    DietPreference dietPreference;
+    Equipment equipment;
+    boolean includeWorkouts;
+    final List<String> allergies = new ArrayList<>();
+    final List<String> dislikedFoods = new ArrayList<>();
+    int days;
+    String[] dayNames = new String[7];
+    int[] mealIds = new int[7 * PlanArchive.SLOTS.length];
+    WorkoutSession[] sessions = new WorkoutSession[7];
+
+    public String name() {
+        if (name == null) name = PlanCodec.utf8(src, nameOffset, nameLength);
+        return name;
+    }
+
+    public int age() { return age; }
+    public int heightCm() { return heightCm; }
+    public int weightKg() { return weightKg; }
+    public int targetWeightKg() { return targetWeightKg; }
+    public Gender gender() { return gender; }
+    public ActivityLevel activityLevel() { return activityLevel; }
+    public BodyGoal bodyGoal() { return bodyGoal; }
+    public DietPreference dietPreference() { return dietPreference; }
+    public Equipment equipment() { return equipment; }
+    public boolean includeWorkouts() { return includeWorkouts; }
+    public int workoutDaysPerWeek() { return workoutDays; }
+    public int workoutMinutesPerSession() { return workoutMinutes; }
+    public List<String> allergies() { return allergies; }
+    public List<String> dislikedFoods() { return dislikedFoods; }
+
+    public int days() { return days; }
+    public String day(int d) { return dayNames[d]; }
+    public int mealId(int d, MealSlot slot) { return mealIds[d * PlanArchive.SLOTS.length + slot.ordinal()]; }
+    /** The day's workout, or null; sessions may be shared between plans and must not be modified. */
+    public WorkoutSession session(int d) { return sessions[d]; }
+
+    public UserProfile profile() {
+        return new UserProfile(name(), age, heightCm, weightKg, targetWeightKg, gender, activityLevel,
+                bodyGoal, dietPreference, includeWorkouts, equipment, workoutDays, workoutMinutes,
+                allergies, dislikedFoods);
+    }
+
+    /** @param catalog the catalog the record's meal IDs refer to */
+    public WeeklyPlan plan(MealCatalog catalog) {
+        WeeklyPlan plan = new WeeklyPlan(profile());
+        for (int d = 0; d < days; d++) {
+            plan.putMeals(dayNames[d], new DayMeals(catalog.meal(mealId(d, MealSlot.BREAKFAST)),
+                    catalog.meal(mealId(d, MealSlot.LUNCH)), catalog.meal(mealId(d, MealSlot.DINNER)),
+                    catalog.meal(mealId(d, MealSlot.SNACK))));
+            if (sessions[d] != null) plan.putWorkout(dayNames[d], sessions[d]);
+        }
+        return plan;
+    }
+
+    /** Reverses {@link PlanArchive#options}. */
+    void unpackOptions(int v) {
+        includeWorkouts = (v & 1) != 0;
+        v >>>= 1;
+        equipment = PlanArchive.EQUIPMENT[v % PlanArchive.EQUIPMENT.length];
+        v /= PlanArchive.EQUIPMENT.length;
+        dietPreference = PlanArchive.DIETS[v % PlanArchive.DIETS.length];
+        v /= PlanArchive.DIETS.length;
+        bodyGoal = PlanArchive.GOALS[v % PlanArchive.GOALS.length];
+        v /= PlanArchive.GOALS.length;
+        activityLevel = PlanArchive.ACTIVITY[v % PlanArchive.ACTIVITY.length];
+        gender = PlanArchive.GENDERS[v / PlanArchive.ACTIVITY.length];
+    }
+
+    void ensureDays(int n) {
+        if (n <= dayNames.length) return;
+        dayNames = Arrays.copyOf(dayNames, n);
+        mealIds = Arrays.copyOf(mealIds, n * PlanArchive.SLOTS.length);
+        sessions = Arrays.copyOf(sessions, n);
+    }
+}
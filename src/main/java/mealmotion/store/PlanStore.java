@@ -0,0 +1,714 @@
+package mealmotion.store;
+
+import mealmotion.gen.MealCatalog;
+import mealmotion.model.WeeklyPlan;
+import mealmotion.util.CsvWriter;
+import mealmotion.util.PlanExporter;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Embedded, file-based store of weekly plans by user and week, so a client's history can be read back
+ * instead of regenerated.
+ *
+ * Plans are appended to a log of segment files ({@code segment-NNNNNNNN.log}, 64 MB by default). Each
+ * record is its length, a CRC32 and the user, week and plan in the {@link PlanArchive} record layout
+ * (without dictionaries, so every record stands alone). Segments are preallocated and memory-mapped,
+ * so a lookup is a hash probe, a binary search over the user's weeks and a decode straight from the
+ * mapping. Writing the same user and week again replaces the plan.
+ *
+ * The user &rarr; (week, location) index lives in memory. A checkpoint file ({@code index.ckpt}) saves it
+ * together with the log position it covers; on open, the checkpoint is loaded and only the log after
+ * that position is replayed. Records after the last valid one (a write torn by a crash) are dropped.
+ *
+ * Durability is batched: {@link #put} returns once the record is in the OS page cache, with a future
+ * that completes when it has been fsynced. A background thread syncs every couple of milliseconds, so
+ * concurrent writers share one fsync. Another background thread checkpoints the index every 30
+ * seconds and compacts segments whose live data has dropped below half, copying the live records to
+ * the end of the log and deleting the segment once a checkpoint no longer refers to it.
+ *
+ * All methods are thread-safe.
+ */
+public final class PlanStore implements Closeable {
+    public static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+
+    static final int SEGMENT_MAGIC = 0x53504D4D;    // "MMPS" little-endian
+    static final int CHECKPOINT_MAGIC = 0x49504D4D; // "MMPI" little-endian
+    static final int FORMAT_VERSION = 1;
+    static final int SEGMENT_HEADER_BYTES = 16;     // magic, version, catalog version
+    static final int RECORD_HEADER_BYTES = 8;       // body length, CRC32 of the body
+
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+    private static final String CHECKPOINT = "index.ckpt";
+    private static final long SYNC_INTERVAL_MICROS = 2_000;
+    private static final long MAINTENANCE_INTERVAL_SECONDS = 30;
+    private static final double COMPACT_BELOW_LIVE = 0.5;
+
+    private final Path dir;
+    private final MealCatalog catalog;
+    private final long segmentBytes;
+    private final ConcurrentHashMap<String, Weeks> index = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Segment> segments = new ConcurrentHashMap<>();
+    private final ThreadLocal<PlanCodec.Encoder> encoders;
+    private final Object writeLock = new Object();
+    private final Object maintenanceLock = new Object(); // compaction and checkpoints
+    private final Object syncLock = new Object();        // taken before writeLock
+    private Segment active;                              // guarded by writeLock
+    private List<CompletableFuture<Void>> unsynced = new ArrayList<>(); // guarded by writeLock
+    private boolean dirty; // anything appended since the last sync, compaction included; guarded by writeLock
+    private ScheduledExecutorService background;
+    private volatile boolean closed;
+
+    private PlanStore(Path dir, MealCatalog catalog, long segmentBytes) {
+        this.dir = dir;
+        this.catalog = catalog;
+        this.segmentBytes = segmentBytes;
+        this.encoders = ThreadLocal.withInitial(() -> new PlanCodec.Encoder(catalog, false));
+    }
+
+    /** Sizes and counts, for monitoring. */
+    public record Stats(long users, long plans, int segments, long diskBytes, long liveBytes) {}
+
+    public static PlanStore open(Path dir, MealCatalog catalog) throws IOException {
+        return open(dir, catalog, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * Opens (or creates) the store in {@code dir} for plans built from {@code catalog}.
+     *
+     * @param segmentBytes size at which the log rolls over to a new segment (at most 1 GB)
+     * @throws IOException if the store was created for a different catalog
+     */
+    public static PlanStore open(Path dir, MealCatalog catalog, long segmentBytes) throws IOException {
+        long size = Math.max(4096, Math.min(MAX_SEGMENT_BYTES, segmentBytes));
+        Files.createDirectories(dir);
+        PlanStore store = new PlanStore(dir, catalog, size);
+        try {
+            store.recover();
+            store.dirty = true; // the log's tail may not have been fsynced by the process that wrote it
+        } catch (IOException | RuntimeException ex) {
+            store.closeSegments();
+            throw ex;
+        }
+        store.startBackground();
+        return store;
+    }
+
+    /**
+     * Stores {@code plan} as {@code user}'s plan for {@code week} (any numbering the caller likes, e.g.
+     * ISO year * 100 + week), replacing an earlier one. It is readable as soon as this returns.
+     *
+     * @return completes when the plan is durable, or exceptionally if syncing failed
+     * @throws IllegalArgumentException if a meal of the plan isn't in the store's catalog
+     */
+    public CompletableFuture<Void> put(String user, int week, WeeklyPlan plan) throws IOException {
+        PlanCodec.Encoder enc = encoders.get();
+        enc.reset();
+        enc.literal(user);
+        enc.varint(week);
+        enc.plan(plan);
+        int len = enc.length();
+        if (len > PlanArchive.MAX_RECORD_BYTES) throw new IllegalArgumentException("Plan too large to store: " + len + " bytes");
+        CRC32 crc = new CRC32();
+        crc.update(enc.buffer(), 0, len);
+        ByteBuffer rec = ByteBuffer.allocate(RECORD_HEADER_BYTES + len).order(ByteOrder.LITTLE_ENDIAN);
+        rec.putInt(len).putInt((int) crc.getValue()).put(enc.buffer(), 0, len).flip();
+
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        synchronized (writeLock) {
+            if (closed) throw new IOException("Plan store is closed");
+            long loc = append(rec);
+            index(user, week, loc, RECORD_HEADER_BYTES + len);
+            unsynced.add(durable);
+        }
+        return durable;
+    }
+
+    /** {@code user}'s plan for {@code week}, or null. */
+    public WeeklyPlan get(String user, int week) throws IOException {
+        while (true) {
+            Weeks w = index.get(user);
+            int i = w == null ? -1 : w.find(week);
+            if (i < 0) return null;
+            long loc = w.locs[i];
+            // A segment deleted by compaction after the lookup: its records have moved, so look again.
+            Segment seg = segments.get(segmentId(loc));
+            if (seg != null) return read(seg, offset(loc), w.lens[i]);
+            if (closed) throw new IOException("Plan store is closed");
+        }
+    }
+
+    /** Weeks stored for {@code user}, ascending. */
+    public int[] weeks(String user) {
+        Weeks w = index.get(user);
+        return w == null ? new int[0] : w.weeks.clone();
+    }
+
+    public Stats stats() {
+        long plans = 0;
+        for (Weeks w : index.values()) plans += w.weeks.length;
+        long disk = 0, live = 0;
+        for (Segment s : segments.values()) {
+            disk += s.size;
+            live += s.live.get();
+        }
+        return new Stats(index.size(), plans, segments.size(), disk, live);
+    }
+
+    /**
+     * Fsyncs everything written so far and completes the futures of the plans it covers. Does nothing if
+     * nothing was written since the last call, so the background sync costs no syscalls while idle.
+     */
+    public void sync() throws IOException {
+        // One sync at a time: a caller that finds nothing dirty must not return while another's fsync is running.
+        synchronized (syncLock) {
+            List<CompletableFuture<Void>> batch;
+            Segment seg;
+            synchronized (writeLock) {
+                if (!dirty) return;
+                dirty = false;
+                batch = unsynced;
+                unsynced = new ArrayList<>();
+                seg = active;
+            }
+            // Segments before the active one were synced when the log rolled over.
+            try {
+                seg.channel().force(false);
+            } catch (IOException ex) {
+                synchronized (writeLock) {
+                    dirty = true;
+                }
+                batch.forEach(f -> f.completeExceptionally(ex));
+                throw ex;
+            }
+            batch.forEach(f -> f.complete(null));
+        }
+    }
+
+    /** Saves the index, so the next open only replays the log written after this point. */
+    public void checkpoint() throws IOException {
+        synchronized (maintenanceLock) {
+            int segmentId;
+            long covered;
+            synchronized (writeLock) {
+                segmentId = active.id;
+                covered = active.size;
+            }
+            Path tmp = dir.resolve(CHECKPOINT + ".tmp");
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                CRC32 crc = new CRC32();
+                DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(ch), 1 << 16), crc));
+                out.writeInt(CHECKPOINT_MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(catalog.version());
+                out.writeInt(segmentId);
+                out.writeLong(covered);
+                // Entries newer than the covered position may be included too; replaying them again is harmless.
+                for (Map.Entry<String, Weeks> e : index.entrySet()) {
+                    byte[] user = e.getKey().getBytes(StandardCharsets.UTF_8);
+                    Weeks w = e.getValue();
+                    out.writeByte(1);
+                    out.writeInt(user.length);
+                    out.write(user);
+                    out.writeInt(w.weeks.length);
+                    for (int i = 0; i < w.weeks.length; i++) {
+                        out.writeInt(w.weeks[i]);
+                        out.writeLong(w.locs[i]);
+                        out.writeInt(w.lens[i]);
+                    }
+                }
+                out.writeByte(0);
+                out.flush();
+                out.writeLong(crc.getValue());
+                out.flush();
+                // Everything the checkpoint points at must be on disk before the checkpoint is.
+                sync();
+                ch.force(true);
+            }
+            Files.move(tmp, dir.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory();
+        }
+    }
+
+    /**
+     * Rewrites segments that are mostly dead (replaced plans) by copying their live records to the end
+     * of the log, then deletes them. Runs in the background too.
+     */
+    public void compact() throws IOException {
+        synchronized (maintenanceLock) {
+            int activeId;
+            synchronized (writeLock) {
+                activeId = active.id;
+            }
+            List<Segment> victims = new ArrayList<>();
+            for (Segment seg : sortedSegments()) {
+                long data = seg.size - SEGMENT_HEADER_BYTES;
+                if (seg.id == activeId || (data > 0 && seg.live.get() >= data * COMPACT_BELOW_LIVE)) continue;
+                moveLiveRecords(seg);
+                victims.add(seg);
+            }
+            if (victims.isEmpty()) return;
+            checkpoint();
+            for (Segment seg : victims) {
+                segments.remove(seg.id);
+                seg.close();
+                try {
+                    Files.deleteIfExists(seg.path);
+                } catch (IOException ex) {
+                    System.err.println("Plan store: couldn't delete compacted segment " + seg.path + ": " + ex.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            if (closed) return;
+            closed = true;
+        }
+        background.shutdown();
+        try {
+            background.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            checkpoint();
+        } finally {
+            synchronized (writeLock) {
+                try {
+                    active.channel().truncate(active.size);
+                } finally {
+                    closeSegments();
+                }
+            }
+        }
+    }
+
+    /**
+     * CLI entry: {@code --plan-history <store-dir> <user> <out.csv>}. Writes every stored week of
+     * {@code user} as plan rows with a leading {@code Week} column, using the configured catalog.
+     */
+    public static void main(String[] args) {
+        if (args.length != 3) {
+            System.err.println("Usage: --plan-history <store-dir> <user> <out.csv>");
+            System.exit(2);
+        }
+        try (PlanStore store = open(Path.of(args[0]), MealCatalog.configured());
+             CsvWriter out = CsvWriter.open(new File(args[2]), false)) {
+            int[] weeks = store.weeks(args[1]);
+            out.raw("Week," + PlanExporter.CSV_HEADER).endRow();
+            for (int week : weeks) PlanExporter.writePlanRows(out, store.get(args[1], week), String.valueOf(week));
+            System.err.println(weeks.length + " weeks of plans for " + args[1]);
+        } catch (IOException ex) {
+            System.err.println("Plan history failed: " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // ---------- Writing ----------
+
+    /** Appends {@code rec} to the log, rolling over to a new segment if it doesn't fit. Caller holds writeLock. */
+    private long append(ByteBuffer rec) throws IOException {
+        if (active.size + rec.remaining() > segmentBytes && active.size > SEGMENT_HEADER_BYTES) roll();
+        Segment seg = active;
+        long offset = seg.size;
+        long p = offset;
+        FileChannel ch = seg.channel();
+        while (rec.hasRemaining()) p += ch.write(rec, p);
+        if (p > seg.map.capacity()) seg.remap(p);
+        seg.size = p;
+        dirty = true;
+        return location(seg.id, offset);
+    }
+
+    private void roll() throws IOException {
+        Segment old = active;
+        FileChannel ch = old.channel();
+        ch.truncate(old.size);
+        ch.force(false);
+        old.remap(old.size);
+        Segment seg = Segment.create(segmentPath(old.id + 1), old.id + 1, catalog.version(), segmentBytes);
+        segments.put(seg.id, seg);
+        active = seg;
+        syncDirectory();
+    }
+
+    private void index(String user, int week, long loc, int len) {
+        Weeks w = index.getOrDefault(user, Weeks.EMPTY);
+        int i = w.find(week);
+        if (i >= 0) segments.get(segmentId(w.locs[i])).live.addAndGet(-w.lens[i]);
+        index.put(user, w.with(i, week, loc, len));
+        segments.get(segmentId(loc)).live.addAndGet(len);
+    }
+
+    private void moveLiveRecords(Segment seg) throws IOException {
+        PlanCodec.Decoder dec = new PlanCodec.Decoder(catalog, false);
+        long pos = SEGMENT_HEADER_BYTES;
+        while (pos < seg.size) {
+            int total = RECORD_HEADER_BYTES + seg.map.getInt((int) pos);
+            dec.at(seg.map, (int) pos + RECORD_HEADER_BYTES, (int) pos + total);
+            String user = dec.literal();
+            int week = dec.varint();
+            long loc = location(seg.id, pos);
+            synchronized (writeLock) {
+                Weeks w = index.get(user);
+                int i = w == null ? -1 : w.find(week);
+                if (i >= 0 && w.locs[i] == loc) {
+                    ByteBuffer rec = seg.map.duplicate().position((int) pos).limit((int) (pos + total));
+                    index(user, week, append(rec), total);
+                }
+            }
+            pos += total;
+        }
+    }
+
+    // ---------- Reading ----------
+
+    private WeeklyPlan read(Segment seg, long offset, int total) throws IOException {
+        ByteBuffer map = seg.map;
+        int at = (int) offset;
+        int len = map.getInt(at);
+        if (len != total - RECORD_HEADER_BYTES) throw new IOException("Corrupt plan store record at " + seg.path + ":" + offset);
+        PlanCodec.Decoder dec = new PlanCodec.Decoder(catalog, false);
+        dec.at(map, at + RECORD_HEADER_BYTES, at + total);
+        PlanRecord r = new PlanRecord();
+        try {
+            dec.literal();
+            dec.varint();
+            dec.plan(r);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException ex) {
+            throw new IOException("Corrupt plan store record at " + seg.path + ":" + offset);
+        }
+        return r.plan(catalog);
+    }
+
+    // ---------- Recovery ----------
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> s = Files.list(dir)) {
+            files = s.filter(p -> p.getFileName().toString().matches("segment-\\d{8}\\.log")).sorted().toList();
+        }
+        for (Path f : files) {
+            Segment seg = Segment.open(f, segmentNumber(f), catalog.version());
+            segments.put(seg.id, seg);
+        }
+        List<Segment> sorted = sortedSegments();
+        if (sorted.isEmpty()) {
+            Segment seg = Segment.create(segmentPath(1), 1, catalog.version(), segmentBytes);
+            segments.put(seg.id, seg);
+            sorted = List.of(seg);
+            syncDirectory();
+        }
+
+        int fromSegment = sorted.get(0).id;
+        long fromOffset = SEGMENT_HEADER_BYTES;
+        long[] covered = readCheckpoint();
+        if (covered != null) {
+            fromSegment = (int) covered[0];
+            fromOffset = covered[1];
+        }
+        for (Segment seg : sorted) {
+            boolean last = seg == sorted.get(sorted.size() - 1);
+            if (seg.id < fromSegment) {
+                seg.size = seg.channel().size();
+            } else {
+                replay(seg, seg.id == fromSegment ? fromOffset : SEGMENT_HEADER_BYTES, last);
+            }
+        }
+        active = sorted.get(sorted.size() - 1);
+        active.preallocate(segmentBytes);
+    }
+
+    /** Loads the checkpoint into the index; returns {segment, offset} it covers, or null to replay everything. */
+    private long[] readCheckpoint() throws IOException {
+        Path file = dir.resolve(CHECKPOINT);
+        if (!Files.exists(file)) return null;
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file), 1 << 16), crc))) {
+            if (in.readInt() != CHECKPOINT_MAGIC || in.readInt() != FORMAT_VERSION || in.readLong() != catalog.version()) {
+                System.err.println("Plan store: ignoring incompatible checkpoint " + file);
+                return null;
+            }
+            int segmentId = in.readInt();
+            long offset = in.readLong();
+            Map<String, Weeks> loaded = new HashMap<>();
+            while (in.readByte() != 0) {
+                byte[] user = new byte[in.readInt()];
+                in.readFully(user);
+                int n = in.readInt();
+                int[] weeks = new int[n];
+                long[] locs = new long[n];
+                int[] lens = new int[n];
+                for (int i = 0; i < n; i++) {
+                    weeks[i] = in.readInt();
+                    locs[i] = in.readLong();
+                    lens[i] = in.readInt();
+                    if (!segments.containsKey(segmentId(locs[i]))) throw new IOException("missing segment " + segmentId(locs[i]));
+                }
+                loaded.put(new String(user, StandardCharsets.UTF_8), new Weeks(weeks, locs, lens));
+            }
+            long expected = crc.getValue();
+            if (in.readLong() != expected || !segments.containsKey(segmentId)) throw new IOException("checksum mismatch");
+            for (Map.Entry<String, Weeks> e : loaded.entrySet()) {
+                Weeks w = e.getValue();
+                for (int i = 0; i < w.weeks.length; i++) segments.get(segmentId(w.locs[i])).live.addAndGet(w.lens[i]);
+                index.put(e.getKey(), w);
+            }
+            return new long[] {segmentId, offset};
+        } catch (IOException ex) {
+            System.err.println("Plan store: rebuilding the index from the log, checkpoint unusable (" + ex.getMessage() + ")");
+            return null;
+        }
+    }
+
+    /** Indexes {@code seg}'s records from {@code from}; cuts the segment off after the last valid one. */
+    private void replay(Segment seg, long from, boolean last) throws IOException {
+        long fileSize = seg.channel().size();
+        seg.remap(fileSize);
+        ByteBuffer map = seg.map;
+        PlanCodec.Decoder dec = new PlanCodec.Decoder(catalog, false);
+        CRC32 crc = new CRC32();
+        long pos = Math.max(from, SEGMENT_HEADER_BYTES);
+        while (pos + RECORD_HEADER_BYTES <= fileSize) {
+            int len = map.getInt((int) pos);
+            if (len <= 0 || len > PlanArchive.MAX_RECORD_BYTES || pos + RECORD_HEADER_BYTES + len > fileSize) break;
+            crc.reset();
+            crc.update(map.duplicate().position((int) pos + RECORD_HEADER_BYTES).limit((int) pos + RECORD_HEADER_BYTES + len));
+            if ((int) crc.getValue() != map.getInt((int) pos + 4)) break;
+            dec.at(map, (int) pos + RECORD_HEADER_BYTES, (int) pos + RECORD_HEADER_BYTES + len);
+            String user;
+            int week;
+            try {
+                user = dec.literal();
+                week = dec.varint();
+            } catch (IndexOutOfBoundsException | IllegalArgumentException ex) {
+                break;
+            }
+            index(user, week, location(seg.id, pos), RECORD_HEADER_BYTES + len);
+            pos += RECORD_HEADER_BYTES + len;
+        }
+        if (pos < fileSize && (!last || map.getInt((int) pos) != 0)) {
+            System.err.println("Plan store: dropping damaged data after " + seg.path + ":" + pos);
+        }
+        // Cut off the tail (preallocated zeros or a torn write) so stale bytes can never be replayed.
+        if (pos < fileSize) seg.channel().truncate(pos);
+        seg.size = pos;
+        seg.remap(pos);
+    }
+
+    // ---------- Housekeeping ----------
+
+    private void startBackground() {
+        background = Executors.newScheduledThreadPool(2, r -> {
+            Thread t = new Thread(r, "mealmotion-plan-store");
+            t.setDaemon(true);
+            return t;
+        });
+        background.scheduleWithFixedDelay(() -> {
+            try {
+                sync();
+            } catch (IOException ex) {
+                // The futures of the affected plans have failed; keep trying for later ones.
+            }
+        }, SYNC_INTERVAL_MICROS, SYNC_INTERVAL_MICROS, TimeUnit.MICROSECONDS);
+        background.scheduleWithFixedDelay(() -> {
+            try {
+                compact();
+                checkpoint();
+            } catch (IOException ex) {
+                System.err.println("Plan store maintenance failed: " + ex.getMessage());
+            }
+        }, MAINTENANCE_INTERVAL_SECONDS, MAINTENANCE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private List<Segment> sortedSegments() {
+        List<Segment> list = new ArrayList<>(segments.values());
+        list.sort(Comparator.comparingInt(s -> s.id));
+        return list;
+    }
+
+    private void closeSegments() {
+        for (Segment s : segments.values()) s.close();
+    }
+
+    private Path segmentPath(int id) {
+        return dir.resolve(String.format("segment-%08d.log", id));
+    }
+
+    private static int segmentNumber(Path file) {
+        String n = file.getFileName().toString();
+        return Integer.parseInt(n.substring("segment-".length(), n.length() - ".log".length()));
+    }
+
+    private void syncDirectory() {
+        try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException ex) {
+            // Not supported on every platform (e.g. Windows); file data is still synced.
+        }
+    }
+
+    private static long location(int segment, long offset) {
+        return (long) segment << 40 | offset;
+    }
+
+    private static int segmentId(long loc) {
+        return (int) (loc >>> 40);
+    }
+
+    private static long offset(long loc) {
+        return loc & ((1L << 40) - 1);
+    }
+
+    /** One user's weeks, sorted, with their record locations. Immutable; replaced on every change. */
+    private static final class Weeks {
+        static final Weeks EMPTY = new Weeks(new int[0], new long[0], new int[0]);
+
+        final int[] weeks;
+        final long[] locs;
+        final int[] lens;
+
+        Weeks(int[] weeks, long[] locs, int[] lens) {
+            this.weeks = weeks;
+            this.locs = locs;
+            this.lens = lens;
+        }
+
+        int find(int week) {
+            return Arrays.binarySearch(weeks, week);
+        }
+
+        /** @param i {@link #find} result for {@code week} */
+        Weeks with(int i, int week, long loc, int len) {
+            if (i >= 0) {
+                long[] l = locs.clone();
+                int[] n = lens.clone();
+                l[i] = loc;
+                n[i] = len;
+                return new Weeks(weeks, l, n);
+            }
+            int at = -i - 1, size = weeks.length;
+            int[] w = new int[size + 1];
+            long[] l = new long[size + 1];
+            int[] n = new int[size + 1];
+            System.arraycopy(weeks, 0, w, 0, at);
+            System.arraycopy(locs, 0, l, 0, at);
+            System.arraycopy(lens, 0, n, 0, at);
+            w[at] = week;
+            l[at] = loc;
+            n[at] = len;
+            System.arraycopy(weeks, at, w, at + 1, size - at);
+            System.arraycopy(locs, at, l, at + 1, size - at);
+            System.arraycopy(lens, at, n, at + 1, size - at);
+            return new Weeks(w, l, n);
+        }
+    }
+
+    private static final class Segment {
+        final int id;
+        final Path path;
+        private volatile FileChannel ch;
+        volatile MappedByteBuffer map;
+        volatile long size;                  // end of the last record
+        final AtomicLong live = new AtomicLong();
+        private volatile boolean closed;
+
+        private Segment(int id, Path path, FileChannel ch) {
+            this.id = id;
+            this.path = path;
+            this.ch = ch;
+        }
+
+        static Segment create(Path path, int id, long catalogVersion, long preallocate) throws IOException {
+            FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Segment seg = new Segment(id, path, ch);
+            try {
+                ByteBuffer h = ByteBuffer.allocate(SEGMENT_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                h.putInt(SEGMENT_MAGIC).putInt(FORMAT_VERSION).putLong(catalogVersion).flip();
+                while (h.hasRemaining()) ch.write(h, h.position());
+                seg.size = SEGMENT_HEADER_BYTES;
+                seg.preallocate(preallocate);
+                ch.force(true);
+            } catch (IOException ex) {
+                seg.close();
+                throw ex;
+            }
+            return seg;
+        }
+
+        static Segment open(Path path, int id, long catalogVersion) throws IOException {
+            FileChannel ch = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Segment seg = new Segment(id, path, ch);
+            try {
+                ByteBuffer h = ByteBuffer.allocate(SEGMENT_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                while (h.hasRemaining() && ch.read(h, h.position()) >= 0) { }
+                if (h.hasRemaining() || h.getInt(0) != SEGMENT_MAGIC || h.getInt(4) != FORMAT_VERSION) {
+                    throw new IOException(path + " is not a plan store segment");
+                }
+                if (h.getLong(8) != catalogVersion) {
+                    throw new IOException("Plan store " + path.getParent() + " was written for catalog version "
+                            + Long.toHexString(h.getLong(8)) + ", not " + Long.toHexString(catalogVersion));
+                }
+                seg.remap(ch.size());
+            } catch (IOException ex) {
+                seg.close();
+                throw ex;
+            }
+            return seg;
+        }
+
+        /**
+         * The segment's channel. A channel is closed for good when a thread using it is interrupted, so
+         * it is reopened here instead of failing every later read and write.
+         */
+        FileChannel channel() throws IOException {
+            FileChannel c = ch;
+            if (c.isOpen() || closed) return c;
+            synchronized (this) {
+                if (!ch.isOpen() && !closed) ch = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                return ch;
+            }
+        }
+
+        /** Extends the file to {@code bytes} (sparse where supported) and maps all of it. */
+        void preallocate(long bytes) throws IOException {
+            FileChannel c = channel();
+            if (c.size() < bytes) c.write(ByteBuffer.wrap(new byte[1]), bytes - 1);
+            remap(c.size());
+        }
+
+        synchronized void remap(long bytes) throws IOException {
+            map = channel().map(FileChannel.MapMode.READ_ONLY, 0, bytes);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        void close() {
+            closed = true;
+            try {
+                ch.close();
+            } catch (IOException ignored) {
+                // Nothing was written through this channel since the last sync.
+            }
+        }
+    }
+}
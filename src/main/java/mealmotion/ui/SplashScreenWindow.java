@@ -5,21 +5,46 @@ import mealmotion.util.LogoLoader;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
-import java.util.concurrent.CountDownLatch;
 
+/**
+ * Shown while {@link Startup} runs. The bar follows real startup progress ({@link #progress}), and the
+ * logo replaces the text title as soon as it has been decoded, so the window appears immediately.
+ * Every method may be called from any thread.
+ */
 public final class SplashScreenWindow {
-    private final CountDownLatch latch = new CountDownLatch(1);
+    private static final int LOGO_WIDTH = 220;
+
+    private JWindow window;
+    private JLabel logo;
+    private JLabel subtitle;
+    private JProgressBar bar;
 
     public SplashScreenWindow() {
         SwingUtilities.invokeLater(this::createAndShow);
+        LogoLoader.logo().thenAccept(img -> {
+            ImageIcon icon = LogoLoader.icon(img, LOGO_WIDTH);
+            if (icon != null) SwingUtilities.invokeLater(() -> showLogo(icon));
+        });
+    }
+
+    /** Moves the bar to {@code fraction} (0 to 1) and shows the phase still running. */
+    public void progress(double fraction, String phase) {
+        SwingUtilities.invokeLater(() -> {
+            if (window == null) return;
+            bar.setValue((int) Math.round(fraction * bar.getMaximum()));
+            subtitle.setText(phase);
+        });
     }
 
-    public void waitForClose() {
-        try { latch.await(); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    public void close() {
+        SwingUtilities.invokeLater(() -> {
+            if (window != null) window.dispose();
+            window = null;
+        });
     }
 
     private void createAndShow() {
-        JWindow window = new JWindow();
+        window = new JWindow();
 
         JPanel root = new JPanel(new BorderLayout(12, 12));
         root.setBorder(new EmptyBorder(18, 18, 18, 18));
@@ -29,29 +54,23 @@ public final class SplashScreenWindow {
         center.setOpaque(false);
         center.setLayout(new BoxLayout(center, BoxLayout.Y_AXIS));
 
-        JLabel logo = new JLabel();
+        logo = new JLabel("MealMotion");
         logo.setAlignmentX(Component.CENTER_ALIGNMENT);
-        ImageIcon icon = LogoLoader.loadLogoIcon(220);
-        if (icon != null) {
-            logo.setIcon(icon);
-        } else {
-            logo.setText("MealMotion");
-            logo.setFont(new Font("SansSerif", Font.BOLD, 34));
-            logo.setForeground(new Color(35, 35, 35));
-        }
-
-        JLabel subtitle = new JLabel("Preparing your personalized plan…");
+        logo.setFont(new Font("SansSerif", Font.BOLD, 34));
+        logo.setForeground(new Color(35, 35, 35));
+
+        subtitle = new JLabel("Preparing your personalized plan…");
         subtitle.setAlignmentX(Component.CENTER_ALIGNMENT);
         subtitle.setFont(new Font("SansSerif", Font.PLAIN, 13));
         subtitle.setForeground(new Color(80, 80, 80));
 
-        center.add(Box.createVerticalStrut(8));
+        center.add(Box.createVerticalGlue());
         center.add(logo);
         center.add(Box.createVerticalStrut(10));
         center.add(subtitle);
-        center.add(Box.createVerticalStrut(8));
+        center.add(Box.createVerticalGlue());
 
-        JProgressBar bar = new JProgressBar(0, 100);
+        bar = new JProgressBar(0, 1000);
         bar.setStringPainted(false);
         bar.setForeground(new Color(60, 179, 113));
         bar.setBorderPainted(false);
@@ -63,18 +82,12 @@ public final class SplashScreenWindow {
         window.setSize(440, 340);
         window.setLocationRelativeTo(null);
         window.setVisible(true);
+    }
 
-        Timer t = new Timer(18, null);
-        t.addActionListener(e -> {
-            int v = bar.getValue();
-            if (v < 100) bar.setValue(v + 1);
-            else {
-                ((Timer) e.getSource()).stop();
-                window.dispose();
-                latch.countDown();
-            }
-        });
-        t.start();
+    private void showLogo(ImageIcon icon) {
+        if (window == null) return;
+        logo.setText(null);
+        logo.setIcon(icon);
+        window.getContentPane().revalidate();
     }
 }
-
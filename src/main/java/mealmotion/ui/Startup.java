@@ -0,0 +1,135 @@
+package mealmotion.ui;
+
+import mealmotion.gen.ExerciseLibrary;
+import mealmotion.gen.GenerationMetrics;
+import mealmotion.gen.MealCatalog;
+import mealmotion.gen.PlanBuilder;
+import mealmotion.model.*;
+import mealmotion.util.CsvWriter;
+import mealmotion.util.LogoLoader;
+import mealmotion.util.PlanExporter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * What the app does while the splash is up: decode the logo, open the meal catalog and exercise
+ * library, warm up the generators and load the wizard's classes, all at once on their own threads.
+ *
+ * Progress is the weighted share of finished work, so the splash moves as fast as the machine does
+ * and goes away as soon as everything is ready. A failing task is reported and counted as done; it
+ * only costs the time it would have saved. The same tasks train the AppCDS archive ({@code --warm-up}).
+ */
+public final class Startup {
+    /** Progress from 0 to 1 and the phase still running, called from the startup threads. */
+    public interface Listener {
+        void progress(double fraction, String phase);
+    }
+
+    /** Every diet and goal, so each (diet, slot) candidate set and exclusion path is touched once. */
+    private static final int WARM_UP_PLANS = DietPreference.values().length * BodyGoal.values().length;
+
+    /** Classes the wizard needs on its first frames; loading them here takes it off the EDT. */
+    private static final List<String> UI_CLASSES = List.of(
+            "mealmotion.ui.WizardFrame",
+            "javax.swing.JFrame", "javax.swing.JSpinner", "javax.swing.JComboBox", "javax.swing.JTextArea",
+            "javax.swing.JScrollPane", "javax.swing.JCheckBox", "javax.swing.JOptionPane", "javax.swing.JFileChooser",
+            "javax.swing.SwingWorker", "javax.swing.SpinnerNumberModel", "javax.swing.event.DocumentListener",
+            "java.awt.CardLayout", "java.awt.GridBagLayout", "java.awt.GridBagConstraints"
+    );
+
+    private record Task(String phase, int steps, Work work) {}
+
+    private interface Work {
+        void run(IntConsumer step) throws Exception;
+    }
+
+    private static final List<Task> TASKS = List.of(
+            new Task("Loading logo…", 1, step -> { LogoLoader.logo().join(); step.accept(1); }),
+            new Task("Opening meal catalog…", 2, step -> {
+                MealCatalog.configured();
+                step.accept(1);
+                ExerciseLibrary.configured();
+                step.accept(1);
+            }),
+            new Task("Warming up the planner…", WARM_UP_PLANS, Startup::warmGenerators),
+            new Task("Loading the wizard…", UI_CLASSES.size(), Startup::loadClasses)
+    );
+
+    private Startup() {}
+
+    /** Runs every task and returns once all have finished. */
+    public static void run(Listener listener) throws InterruptedException {
+        int total = 0;
+        for (Task t : TASKS) total += t.steps();
+        int totalSteps = total;
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger(TASKS.size());
+
+        ExecutorService pool = Executors.newFixedThreadPool(TASKS.size(), r -> {
+            Thread t = new Thread(r, "mealmotion-startup");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            for (Task task : TASKS) {
+                pool.execute(() -> {
+                    int[] taken = {0};
+                    try {
+                        task.work().run(n -> {
+                            taken[0] += n;
+                            listener.progress((double) done.addAndGet(n) / totalSteps, task.phase());
+                        });
+                    } catch (Exception | LinkageError ex) {
+                        System.err.println("Startup: " + task.phase() + " failed: " + ex);
+                    } finally {
+                        int rest = task.steps() - taken[0];
+                        double fraction = (double) done.addAndGet(rest) / totalSteps;
+                        if (running.decrementAndGet() == 0) listener.progress(1.0, "Ready");
+                        else if (rest > 0) listener.progress(fraction, task.phase());
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+        }
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /** Builds and exports one plan per diet and goal, then clears the metrics those plans recorded. */
+    private static void warmGenerators(IntConsumer step) throws IOException {
+        MealCatalog catalog = MealCatalog.configured();
+        try (CsvWriter csv = new CsvWriter(Writer.nullWriter())) {
+            long seed = 0;
+            for (DietPreference diet : DietPreference.values()) {
+                for (BodyGoal goal : BodyGoal.values()) {
+                    UserProfile p = new UserProfile("Warm-up", 30, 175, 75, 72,
+                            Gender.OTHER, ActivityLevel.MODERATE, goal, diet,
+                            true, Equipment.DUMBBELLS, 4, 45,
+                            List.of("peanut"), List.of("olives"));
+                    PlanExporter.writePlanRows(csv, PlanBuilder.build(p, catalog, seed++), false);
+                    step.accept(1);
+                }
+            }
+        }
+        GenerationMetrics.get().reset();
+    }
+
+    private static void loadClasses(IntConsumer step) {
+        ClassLoader loader = Startup.class.getClassLoader();
+        for (String name : UI_CLASSES) {
+            try {
+                Class.forName(name, true, loader);
+            } catch (ClassNotFoundException ex) {
+                System.err.println("Startup: no class " + name);
+            }
+            step.accept(1);
+        }
+    }
+}
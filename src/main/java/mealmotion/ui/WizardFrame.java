@@ -1,22 +1,33 @@
 package mealmotion.ui;
 
+import mealmotion.gen.MealCatalog;
 import mealmotion.gen.PlanBuilder;
+import mealmotion.gen.PlanEditor;
 import mealmotion.model.*;
 import mealmotion.util.LogoLoader;
 import mealmotion.util.PlanExporter;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.AbstractTableModel;
 import java.awt.*;
 import java.util.Arrays;
 import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 public final class WizardFrame {
     private final JFrame frame;
     private final JPanel cards;
     private final CardLayout cardLayout;
     private final JLabel stepLabel;
+    private final JLabel previewLabel;
+    private final Timer previewTimer;
     private static final int LABEL_COL_WIDTH = 200;
+    private static final int PREVIEW_DEBOUNCE_MS = 250;
 
     private int stepIdx = 0;
     private final String[] stepKeys = {"p1","p2","p3","p4","p5","review","export"};
@@ -39,20 +50,39 @@ public final class WizardFrame {
 
     // Review
     private JTextArea reviewArea;
+    private JButton generateButton;
+    private JButton cancelButton;
     private WeeklyPlan generatedPlan;
 
+    // Export: the generated week, editable meal by meal
+    private PlanEditor planEditor;
+    private String[] planDays = new String[0];
+    private JTable weekTable;
+    private WeekTableModel weekModel;
+    private JLabel shoppingLabel;
+    private final SplittableRandom editRandom = new SplittableRandom();
+
+    // Background generation. Every input change bumps inputsVersion; a plan built from older inputs is dropped.
+    private long inputsVersion;
+    private PlanWorker worker;
+    private String status;
+
     public WizardFrame() {
         frame = new JFrame("MealMotion");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setResizable(true);
         frame.setMinimumSize(new Dimension(820, 560));
         frame.setSize(900, 620);
-        Image iconImg = LogoLoader.loadWindowIconImage();
-        if (iconImg != null) frame.setIconImage(iconImg);
+        frame.setIconImages(LogoLoader.windowIconImages());
 
         stepLabel = new JLabel();
         stepLabel.setBorder(new EmptyBorder(10, 12, 6, 12));
         stepLabel.setFont(new Font("SansSerif", Font.BOLD, 13));
+        previewLabel = new JLabel();
+        previewLabel.setBorder(new EmptyBorder(10, 12, 6, 12));
+        previewLabel.setForeground(new Color(85, 85, 85));
+        previewTimer = new Timer(PREVIEW_DEBOUNCE_MS, e -> updatePreview());
+        previewTimer.setRepeats(false);
 
         cardLayout = new CardLayout();
         cards = new JPanel(cardLayout);
@@ -65,11 +95,17 @@ public final class WizardFrame {
         cards.add(createReviewPage(), "review");
         cards.add(createExportPage(), "export");
 
+        JPanel header = new JPanel(new BorderLayout());
+        header.add(stepLabel, BorderLayout.WEST);
+        header.add(previewLabel, BorderLayout.EAST);
+
         JPanel root = new JPanel(new BorderLayout());
-        root.add(stepLabel, BorderLayout.NORTH);
+        root.add(header, BorderLayout.NORTH);
         root.add(cards, BorderLayout.CENTER);
         frame.setContentPane(root);
 
+        watchInputs(this::inputsChanged);
+        updatePreview();
         updateStepLabel();
         cardLayout.show(cards, "p1");
 
@@ -194,15 +230,18 @@ public final class WizardFrame {
 
         JPanel btns = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         JButton back = new JButton("← Back");
-        JButton generate = new JButton("Generate Plan →");
-        back.addActionListener(e -> goBack());
-        generate.addActionListener(e -> {
-            UserProfile profile = buildProfileFromInputs();
-            generatedPlan = PlanBuilder.build(profile);
-            goNext(); // to export page
+        generateButton = new JButton("Generate Plan →");
+        cancelButton = new JButton("Cancel");
+        cancelButton.setVisible(false);
+        back.addActionListener(e -> {
+            cancelGeneration();
+            goBack();
         });
+        generateButton.addActionListener(e -> startGeneration());
+        cancelButton.addActionListener(e -> cancelGeneration());
         btns.add(back);
-        btns.add(generate);
+        btns.add(cancelButton);
+        btns.add(generateButton);
         panel.add(btns, BorderLayout.SOUTH);
 
         return panel;
@@ -216,12 +255,58 @@ public final class WizardFrame {
         label.setFont(new Font("SansSerif", Font.BOLD, 22));
         panel.add(label, BorderLayout.NORTH);
 
+        weekModel = new WeekTableModel();
+        weekTable = new JTable(weekModel);
+        weekTable.setCellSelectionEnabled(true);
+        weekTable.getTableHeader().setReorderingAllowed(false);
+
+        JPanel edits = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 0));
+        JButton swap = new JButton("Swap meal");
+        JButton newDay = new JButton("New day");
+        JButton keep = new JButton("Keep / unkeep");
+        JButton redoRest = new JButton("Regenerate the rest");
+        swap.setToolTipText("Replace the selected meals with the next best alternatives");
+        newDay.setToolTipText("New meals for the selected days, except the ones you keep");
+        keep.setToolTipText("Keep the selected meals when regenerating");
+        redoRest.setToolTipText("New meals for everything you didn't keep");
+        swap.addActionListener(e -> editSelected((day, slot) -> planEditor.swap(day, slot)));
+        keep.addActionListener(e -> editSelected((day, slot) -> {
+            if (planEditor.isLocked(day, slot)) planEditor.unlock(day, slot);
+            else planEditor.lock(day, slot);
+        }));
+        newDay.addActionListener(e -> {
+            if (planEditor == null) return;
+            for (int row : weekTable.getSelectedRows()) planEditor.replaceDay(planDays[row], editRandom);
+            planEdited();
+        });
+        redoRest.addActionListener(e -> {
+            if (planEditor == null) return;
+            planEditor.regenerateUnlocked(editRandom);
+            planEdited();
+        });
+        edits.add(swap);
+        edits.add(newDay);
+        edits.add(keep);
+        edits.add(redoRest);
+
         JTextArea info = new JTextArea();
         info.setEditable(false);
         info.setOpaque(false);
         info.setFont(new Font("SansSerif", Font.PLAIN, 13));
-        info.setText("Click below to save your CSV. You can also save a shopping list after the CSV is saved.");
-        panel.add(info, BorderLayout.CENTER);
+        info.setText("Select meals to swap or keep them. Click below to save your CSV. You'll be asked whether to save a shopping list too; files are written in the background.");
+        info.setLineWrap(true);
+        info.setWrapStyleWord(true);
+        shoppingLabel = new JLabel(" ");
+
+        JPanel south = new JPanel(new BorderLayout(0, 4));
+        south.add(shoppingLabel, BorderLayout.NORTH);
+        south.add(info, BorderLayout.CENTER);
+
+        JPanel center = new JPanel(new BorderLayout(0, 6));
+        center.add(edits, BorderLayout.NORTH);
+        center.add(new JScrollPane(weekTable), BorderLayout.CENTER);
+        center.add(south, BorderLayout.SOUTH);
+        panel.add(center, BorderLayout.CENTER);
 
         JPanel btns = new JPanel(new FlowLayout(FlowLayout.CENTER, 12, 10));
         JButton save = new JButton("Save CSV (+ Shopping List)");
@@ -233,7 +318,9 @@ public final class WizardFrame {
                 JOptionPane.showMessageDialog(panel, "No plan generated yet. Go back and generate first.");
                 return;
             }
-            PlanExporter.exportWithChooser(frame, generatedPlan);
+            save.setEnabled(false);
+            PlanExporter.exportWithChooser(frame, generatedPlan, this::setStatus)
+                    .whenComplete((ignored, err) -> save.setEnabled(true));
         });
         back.addActionListener(e -> goBack());
         exit.addActionListener(e -> System.exit(0));
@@ -246,16 +333,85 @@ public final class WizardFrame {
         return panel;
     }
 
+    private void showPlan(PlanEditor editor) {
+        planEditor = editor;
+        generatedPlan = editor.plan();
+        planDays = generatedPlan.mealsByDay().keySet().toArray(new String[0]);
+        weekModel.fireTableDataChanged();
+        planEdited();
+    }
+
+    /** Drops the plan and its editor together, so nothing can show or edit a plan for old inputs. */
+    private void clearPlan() {
+        if (generatedPlan == null && planEditor == null) return;
+        planEditor = null;
+        generatedPlan = null;
+        planDays = new String[0];
+        weekModel.fireTableDataChanged();
+        shoppingLabel.setText(" ");
+    }
+
+    /** Applies {@code edit} to every selected meal cell. */
+    private void editSelected(SlotEdit edit) {
+        if (planEditor == null) return;
+        for (int row : weekTable.getSelectedRows()) {
+            for (int col : weekTable.getSelectedColumns()) {
+                MealSlot slot = WeekTableModel.slotAt(weekTable.convertColumnIndexToModel(col));
+                if (slot != null) edit.apply(planDays[row], slot);
+            }
+        }
+        planEdited();
+    }
+
+    private void planEdited() {
+        // Rows updated rather than data changed, so the selection survives the edit.
+        if (planDays.length > 0) weekModel.fireTableRowsUpdated(0, planDays.length - 1);
+        shoppingLabel.setText("Shopping list: " + planEditor.shoppingList().size() + " items");
+    }
+
+    private interface SlotEdit {
+        void apply(String day, MealSlot slot);
+    }
+
+    /** Days as rows: the four meals (kept ones marked), then the day's totals. */
+    private final class WeekTableModel extends AbstractTableModel {
+        private static final long serialVersionUID = 1L;
+        private static final String[] COLUMNS = {"Day", "Breakfast", "Lunch", "Dinner", "Snack", "kcal", "Protein (g)"};
+
+        static MealSlot slotAt(int column) {
+            return column >= 1 && column <= 4 ? MealSlot.values()[column - 1] : null;
+        }
+
+        @Override public int getRowCount() { return planDays.length; }
+        @Override public int getColumnCount() { return COLUMNS.length; }
+        @Override public String getColumnName(int column) { return COLUMNS[column]; }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            String day = planDays[row];
+            DayMeals dm = generatedPlan.mealsByDay().get(day);
+            MealSlot slot = slotAt(column);
+            if (slot != null) return (planEditor.isLocked(day, slot) ? "(kept) " : "") + dm.get(slot).name();
+            return switch (column) {
+                case 0 -> day;
+                case 5 -> dm.totalCalories();
+                default -> dm.totalProteinGrams();
+            };
+        }
+    }
+
     // ---------- Navigation + Validation ----------
 
     private void goNext() {
         stepIdx = Math.min(stepIdx + 1, stepKeys.length - 1);
+        status = null;
         updateStepLabel();
         cardLayout.show(cards, stepKeys[stepIdx]);
     }
 
     private void goBack() {
         stepIdx = Math.max(stepIdx - 1, 0);
+        status = null;
         updateStepLabel();
         cardLayout.show(cards, stepKeys[stepIdx]);
     }
@@ -421,7 +577,110 @@ public final class WizardFrame {
             case "export" -> "Export";
             default -> "";
         };
-        stepLabel.setText("Step " + step + " of " + total + " — " + title);
+        stepLabel.setText("Step " + step + " of " + total + " — " + title + (status == null ? "" : " — " + status));
+    }
+
+    // ---------- Background generation ----------
+
+    private void startGeneration() {
+        cancelGeneration();
+        worker = new PlanWorker(buildProfileFromInputs(), inputsVersion);
+        generateButton.setEnabled(false);
+        cancelButton.setVisible(true);
+        setStatus("Starting…");
+        worker.execute();
+    }
+
+    private void cancelGeneration() {
+        if (worker == null) return;
+        worker.cancel(true);
+        worker = null;
+        generateButton.setEnabled(true);
+        cancelButton.setVisible(false);
+        setStatus(null);
+    }
+
+    private void setStatus(String s) {
+        status = s;
+        updateStepLabel();
+    }
+
+    /** Builds the plan off the EDT, reporting each phase into the step label. */
+    private final class PlanWorker extends SwingWorker<PlanEditor, String> {
+        private final UserProfile profile;
+        private final long version;
+
+        PlanWorker(UserProfile profile, long version) {
+            this.profile = profile;
+            this.version = version;
+        }
+
+        @Override
+        protected PlanEditor doInBackground() {
+            publish("Loading meal catalog…");
+            MealCatalog catalog = MealCatalog.configured();
+            if (isCancelled()) return null;
+            publish("Generating meals and workouts…");
+            WeeklyPlan plan = PlanBuilder.build(profile, catalog);
+            if (isCancelled()) return null;
+            return PlanEditor.open(plan, catalog);
+        }
+
+        @Override
+        protected void process(List<String> phases) {
+            if (worker == this) setStatus(phases.get(phases.size() - 1));
+        }
+
+        @Override
+        protected void done() {
+            if (worker != this) return; // cancelled or replaced
+            worker = null;
+            generateButton.setEnabled(true);
+            cancelButton.setVisible(false);
+            setStatus(null);
+            if (version != inputsVersion) return; // inputs changed while generating
+            try {
+                showPlan(get());
+                goNext(); // to export page
+            } catch (CancellationException ignored) {
+                // cancelled; nothing to show
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                JOptionPane.showMessageDialog(frame, "Could not generate the plan:\n" + ex.getCause().getMessage(),
+                        "Generation failed", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    // ---------- Input tracking + live preview ----------
+
+    private void inputsChanged() {
+        inputsVersion++;
+        clearPlan();
+        previewTimer.restart();
+    }
+
+    /** Daily calorie/protein targets for the current inputs; debounced so spinning a value doesn't churn. */
+    private void updatePreview() {
+        UserProfile p = buildProfileFromInputs();
+        previewLabel.setText("Target: " + p.targetCalories() + " kcal · " + p.proteinTargetGrams() + " g protein / day");
+    }
+
+    private void watchInputs(Runnable onChange) {
+        for (JSpinner sp : List.of(ageSpinner, heightSpinner, weightSpinner, targetWeightSpinner, workoutDaysSpinner, workoutMinutesSpinner)) {
+            sp.addChangeListener(e -> onChange.run());
+        }
+        for (JComboBox<?> box : List.of(genderBox, activityBox, bodyGoalBox, dietBox, equipmentBox)) {
+            box.addActionListener(e -> onChange.run());
+        }
+        includeWorkoutBox.addActionListener(e -> onChange.run());
+        DocumentListener docs = new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { onChange.run(); }
+            @Override public void removeUpdate(DocumentEvent e) { onChange.run(); }
+            @Override public void changedUpdate(DocumentEvent e) { onChange.run(); }
+        };
+        for (JTextField f : List.of(nameField, allergiesField, dislikesField)) f.getDocument().addDocumentListener(docs);
     }
 
     // ---------- UI helpers ----------
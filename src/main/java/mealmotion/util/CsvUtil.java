@@ -1,5 +1,8 @@
 package mealmotion.util;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public final class CsvUtil {
     private CsvUtil() {}
 
@@ -9,5 +12,31 @@ public final class CsvUtil {
         if (!needsQuotes) return s;
         return "\"" + s.replace("\"", "\"\"") + "\"";
     }
-}
 
+    /** Splits one CSV line into trimmed fields, honouring double quotes and "" escapes. */
+    public static List<String> splitLine(String line) {
+        List<String> out = new ArrayList<>();
+        StringBuilder cur = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') { cur.append('"'); i++; }
+                    else quoted = false;
+                } else {
+                    cur.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                out.add(cur.toString().trim());
+                cur.setLength(0);
+            } else {
+                cur.append(c);
+            }
+        }
+        out.add(cur.toString().trim());
+        return out;
+    }
+}
@@ -0,0 +1,164 @@
+package mealmotion.util;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Buffered CSV row writer that doesn't allocate per field.
+ *
+ * Fields go straight into a reusable char buffer: ints are formatted digit by digit without boxing or
+ * {@code String.valueOf}, and text is escaped in one pass (copied as-is, and only rewritten quoted if a
+ * comma, quote or line break turns up). Separators and line ends are added by the writer.
+ *
+ * {@link #open(File, boolean)} gzips files whose name ends in {@code .gz} and can append, so many plans
+ * can be streamed into one (optionally compressed) file; appending to a {@code .gz} file adds a new gzip
+ * member, which {@code gunzip} and {@link java.util.zip.GZIPInputStream} read as one stream.
+ */
+public final class CsvWriter implements Closeable, Flushable {
+    private static final int BUFFER_CHARS = 1 << 13;
+    private static final String LINE_END = System.lineSeparator();
+
+    private final Writer out;
+    private final char[] buf = new char[BUFFER_CHARS];
+    private int pos;
+    private boolean midRow;
+
+    /** Writes to {@code out}; closing this writer closes {@code out}. */
+    public CsvWriter(Writer out) {
+        this.out = out;
+    }
+
+    public static CsvWriter open(File file, boolean append) throws IOException {
+        return new CsvWriter(openWriter(file, append));
+    }
+
+    /**
+     * A UTF-8 writer for {@code file}, gzipped if the name ends in {@code .gz}. It isn't buffered beyond
+     * the encoder's own byte buffer; wrap it in a {@link CsvWriter} or write large chunks.
+     */
+    public static Writer openWriter(File file, boolean append) throws IOException {
+        return new OutputStreamWriter(openStream(file, append), StandardCharsets.UTF_8);
+    }
+
+    /** The byte stream under {@link #openWriter}: gzipped if the name ends in {@code .gz}, otherwise unbuffered. */
+    public static OutputStream openStream(File file, boolean append) throws IOException {
+        OutputStream os = new FileOutputStream(file, append);
+        if (file.getName().toLowerCase().endsWith(".gz")) {
+            try {
+                os = new GZIPOutputStream(os, 1 << 14);
+            } catch (IOException ex) {
+                os.close();
+                throw ex;
+            }
+        }
+        return os;
+    }
+
+    public CsvWriter field(String s) throws IOException {
+        separator();
+        if (s == null || s.isEmpty()) return this;
+        int n = s.length();
+        if (2 * n + 2 > buf.length) {
+            // Too long for the buffer: escape the slow way.
+            flushBuffer();
+            out.write(CsvUtil.escape(s));
+            return this;
+        }
+        if (2 * n + 2 > buf.length - pos) flushBuffer();
+        int start = pos;
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                pos = start;
+                writeQuoted(s);
+                return this;
+            }
+            buf[pos++] = c;
+        }
+        return this;
+    }
+
+    public CsvWriter field(int v) throws IOException {
+        separator();
+        if (v == Integer.MIN_VALUE) {
+            raw(Integer.toString(v));
+            return this;
+        }
+        if (buf.length - pos < 11) flushBuffer();
+        if (v < 0) {
+            buf[pos++] = '-';
+            v = -v;
+        }
+        int digits = 1;
+        for (int t = v; t >= 10; t /= 10) digits++;
+        for (int i = pos + digits - 1; i >= pos; i--) {
+            buf[i] = (char) ('0' + v % 10);
+            v /= 10;
+        }
+        pos += digits;
+        return this;
+    }
+
+    /** Writes {@code s} unescaped, e.g. a header line or pre-formatted rows. */
+    public CsvWriter raw(String s) throws IOException {
+        int n = s.length();
+        if (n > buf.length - pos) {
+            flushBuffer();
+            if (n > buf.length) {
+                out.write(s);
+                return this;
+            }
+        }
+        s.getChars(0, n, buf, pos);
+        pos += n;
+        return this;
+    }
+
+    public CsvWriter endRow() throws IOException {
+        raw(LINE_END);
+        midRow = false;
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void separator() throws IOException {
+        if (midRow) {
+            if (pos == buf.length) flushBuffer();
+            buf[pos++] = ',';
+        }
+        midRow = true;
+    }
+
+    /** Caller guarantees room for {@code 2 * s.length() + 2} chars. */
+    private void writeQuoted(String s) {
+        buf[pos++] = '"';
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (c == '"') buf[pos++] = '"';
+            buf[pos++] = c;
+        }
+        buf[pos++] = '"';
+    }
+
+    private void flushBuffer() throws IOException {
+        if (pos > 0) {
+            out.write(buf, 0, pos);
+            pos = 0;
+        }
+    }
+}
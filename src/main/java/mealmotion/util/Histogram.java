@@ -0,0 +1,77 @@
+package mealmotion.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative values with log-linear buckets: four buckets per power of two, so
+ * any reported percentile is within 25% of the true value (exact below 4), up to {@code Long.MAX_VALUE}
+ * in 248 counters. Recording is three uncontended atomic updates; percentiles are computed from a snapshot.
+ */
+public final class Histogram {
+    private static final int SUB_BUCKETS = 4;
+    /** Number of buckets, for callers keeping their own counts with {@link #bucket} and {@link #summarize}. */
+    public static final int BUCKETS = 62 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public record Snapshot(long count, double mean, long p50, long p90, long p99, long max) {}
+
+    /** Negative values count as 0. */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(bucket(v));
+        total.add(v);
+        max.accumulate(v);
+    }
+
+    public Snapshot snapshot() {
+        long[] c = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) c[i] = counts.get(i);
+        return summarize(c, total.sum(), max.get());
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        total.reset();
+        max.reset();
+    }
+
+    /** Count, mean and percentiles of per-bucket {@code counts} whose values add up to {@code total}. */
+    public static Snapshot summarize(long[] counts, long total, long max) {
+        long n = 0;
+        for (long c : counts) n += c;
+        return new Snapshot(n, n == 0 ? 0 : (double) total / n,
+                percentile(counts, n, 0.50, max), percentile(counts, n, 0.90, max), percentile(counts, n, 0.99, max), max);
+    }
+
+    /** Upper bound of the bucket holding the {@code q} quantile, capped at the largest value seen. */
+    private static long percentile(long[] c, long n, double q, long max) {
+        if (n == 0) return 0;
+        long rank = (long) Math.ceil(q * n);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += c[i];
+            if (seen >= rank) return Math.min(upperBound(i), max);
+        }
+        return max;
+    }
+
+    /** Index of the bucket {@code v} (non-negative) falls in. */
+    public static int bucket(long v) {
+        if (v < SUB_BUCKETS) return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);          // >= 2
+        int sub = (int) (v >>> (exp - 2)) & (SUB_BUCKETS - 1);
+        return Math.min(BUCKETS - 1, (exp - 1) * SUB_BUCKETS + sub);
+    }
+
+    /** Largest value counted in {@code bucket}. */
+    public static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exp = bucket / SUB_BUCKETS + 1, sub = bucket % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub) << (exp - 2)) + (1L << (exp - 2)) - 1;
+    }
+}
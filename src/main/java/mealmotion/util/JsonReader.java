@@ -0,0 +1,437 @@
+package mealmotion.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Pull parser for UTF-8 JSON, reading from an {@link InputStream} through its own byte buffer.
+ *
+ * Callers {@link #peek} at the next token and consume it with the matching method, so a value is
+ * mapped straight onto model objects without building a tree. Any number of top-level values may
+ * follow one another, which is how JSONL files are read one record at a time; {@link #peek} returns
+ * {@link Token#END_DOCUMENT} at the end of the input.
+ *
+ * In line-delimited mode a line break inside a value is an error, and after any error
+ * {@link #skipLine} drops the rest of the line, so one bad JSONL record doesn't take the next with it.
+ *
+ * Malformed input throws {@link IllegalArgumentException} naming the line.
+ */
+public final class JsonReader implements Closeable {
+    public enum Token { BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT }
+
+    private static final int BUFFER_BYTES = 1 << 13;
+    private static final int CACHE_SLOTS = 256;
+    private static final int CACHE_MAX_BYTES = 48;
+    // Scopes on the stack.
+    private static final int TOP = 0, EMPTY_ARRAY = 1, ARRAY = 2, EMPTY_OBJECT = 3, OBJECT = 4, AFTER_NAME = 5;
+
+    private final InputStream in;
+    private final boolean lineDelimited;
+    private final byte[] buf = new byte[BUFFER_BYTES];
+    private int pos, limit;
+    private long line = 1;
+    private int[] stack = new int[16];
+    private int depth = 1;
+    private Token peeked;
+    private boolean peekedBool;
+    private byte[] number = new byte[32];   // text of a peeked number
+    private int numberLength;
+    private long numberValue;               // valid when numberIntegral
+    private boolean numberIntegral;
+    private byte[] scratch = new byte[64];  // strings with escapes or spanning a buffer refill
+    private final String[] cache = new String[CACHE_SLOTS];
+    private final byte[][] cacheBytes = new byte[CACHE_SLOTS][];
+
+    /** Reads from {@code in}; closing this reader closes {@code in}. */
+    public JsonReader(InputStream in, boolean lineDelimited) {
+        this.in = in;
+        this.lineDelimited = lineDelimited;
+    }
+
+    public JsonReader(InputStream in) {
+        this(in, false);
+    }
+
+    /** Reads one document held in memory. */
+    public static JsonReader of(String json) {
+        return new JsonReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /** The line the parser is on, counting from 1. */
+    public long line() { return line; }
+
+    public Token peek() throws IOException {
+        if (peeked != null) return peeked;
+        int scope = stack[depth - 1];
+        int c = nextNonWhitespace();
+        switch (scope) {
+            case EMPTY_ARRAY -> {
+                if (c == ']') return peeked = Token.END_ARRAY;
+                stack[depth - 1] = ARRAY;
+            }
+            case ARRAY -> {
+                if (c == ']') return peeked = Token.END_ARRAY;
+                if (c != ',') throw syntax("expected ',' or ']'", c);
+                c = nextNonWhitespace();
+            }
+            case EMPTY_OBJECT, OBJECT -> {
+                if (c == '}') return peeked = Token.END_OBJECT;
+                if (scope == OBJECT) {
+                    if (c != ',') throw syntax("expected ',' or '}'", c);
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') throw syntax("expected a field name", c);
+                stack[depth - 1] = AFTER_NAME;
+                return peeked = Token.NAME;
+            }
+            case AFTER_NAME -> {
+                if (c != ':') throw syntax("expected ':'", c);
+                stack[depth - 1] = OBJECT;
+                c = nextNonWhitespace();
+            }
+            default -> {
+                if (c == -1) return peeked = Token.END_DOCUMENT;
+            }
+        }
+        return peeked = value(c);
+    }
+
+    public void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    public void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        depth--;
+    }
+
+    public void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    public void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        depth--;
+    }
+
+    /** True while the current object or array has more elements. */
+    public boolean hasNext() throws IOException {
+        Token t = peek();
+        return t != Token.END_OBJECT && t != Token.END_ARRAY && t != Token.END_DOCUMENT;
+    }
+
+    public String nextName() throws IOException {
+        expect(Token.NAME);
+        return readString(true);
+    }
+
+    /** A string value; numbers are returned as written. */
+    public String nextString() throws IOException {
+        Token t = peek();
+        if (t == Token.NUMBER) {
+            peeked = null;
+            return new String(number, 0, numberLength, StandardCharsets.US_ASCII);
+        }
+        expect(Token.STRING);
+        return readString(false);
+    }
+
+    /** A string value, or null for a JSON null. */
+    public String nextStringOrNull() throws IOException {
+        if (peek() == Token.NULL) {
+            peeked = null;
+            return null;
+        }
+        return nextString();
+    }
+
+    public long nextLong() throws IOException {
+        expect(Token.NUMBER);
+        if (numberIntegral) return numberValue;
+        double d = parseDouble();
+        if (d != Math.rint(d) || Math.abs(d) > Long.MAX_VALUE) throw syntax("expected a whole number", -1);
+        return (long) d;
+    }
+
+    public int nextInt() throws IOException {
+        long v = nextLong();
+        if (v != (int) v) throw syntax("number out of range: " + v, -1);
+        return (int) v;
+    }
+
+    public double nextDouble() throws IOException {
+        expect(Token.NUMBER);
+        return numberIntegral ? numberValue : parseDouble();
+    }
+
+    public boolean nextBoolean() throws IOException {
+        expect(Token.BOOLEAN);
+        return peekedBool;
+    }
+
+    public void nextNull() throws IOException {
+        expect(Token.NULL);
+    }
+
+    /** Skips the next value, however deeply nested, or a field name and its value. */
+    public void skipValue() throws IOException {
+        int level = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT -> { beginObject(); level++; }
+                case BEGIN_ARRAY -> { beginArray(); level++; }
+                case END_OBJECT -> { endObject(); level--; }
+                case END_ARRAY -> { endArray(); level--; }
+                case NAME -> { nextName(); skipValue(); }
+                case STRING -> { peeked = null; skipString(); }
+                case END_DOCUMENT -> throw syntax("unexpected end of input", -1);
+                default -> peeked = null;
+            }
+        } while (level > 0);
+    }
+
+    /** Drops the rest of the current line and returns to the top level, to resume after an error. */
+    public void skipLine() throws IOException {
+        peeked = null;
+        depth = 1;
+        stack[0] = TOP;
+        while (true) {
+            if (pos == limit && !fill()) return;
+            if (buf[pos++] == '\n') {
+                line++;
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // ---------- Tokens ----------
+
+    private Token value(int c) throws IOException {
+        switch (c) {
+            case '{': return Token.BEGIN_OBJECT;
+            case '[': return Token.BEGIN_ARRAY;
+            case '"': return Token.STRING;
+            case 't': literal("rue"); peekedBool = true; return Token.BOOLEAN;
+            case 'f': literal("alse"); peekedBool = false; return Token.BOOLEAN;
+            case 'n': literal("ull"); return Token.NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    readNumber(c);
+                    return Token.NUMBER;
+                }
+                throw syntax(c == -1 ? "unexpected end of input" : "expected a value", c);
+        }
+    }
+
+    private void literal(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (read() != rest.charAt(i)) throw syntax("bad literal", -1);
+        }
+    }
+
+    /** Reads a number's text, and its value when it's a plain integer that fits a long. */
+    private void readNumber(int first) throws IOException {
+        numberLength = 0;
+        numberIntegral = true;
+        boolean negative = first == '-';
+        long v = 0;
+        int digits = 0;
+        int c = first;
+        while (true) {
+            if (numberLength == number.length) number = Arrays.copyOf(number, number.length * 2);
+            number[numberLength++] = (byte) c;
+            if (c >= '0' && c <= '9') {
+                if (++digits > 18) numberIntegral = false;
+                v = v * 10 + (c - '0');
+            } else if (c != '-' || numberLength > 1) {
+                numberIntegral = false; // '.', exponent, or a sign inside it; parseDouble validates
+            }
+            if (pos == limit && !fill()) break;
+            c = buf[pos];
+            if (!((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-')) break;
+            pos++;
+        }
+        if (digits == 0) throw syntax("bad number", -1);
+        numberValue = negative ? -v : v;
+    }
+
+    private double parseDouble() {
+        try {
+            return Double.parseDouble(new String(number, 0, numberLength, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException ex) {
+            throw syntax("bad number " + new String(number, 0, numberLength, StandardCharsets.US_ASCII), -1);
+        }
+    }
+
+    /**
+     * Reads the rest of a string whose opening quote was consumed by {@link #peek}. Names and short
+     * values in plain ASCII come from a small cache, since field names, enum constants and meal names
+     * repeat from record to record.
+     */
+    private String readString(boolean name) throws IOException {
+        int start = pos;
+        int hash = 0;
+        boolean ascii = true;
+        for (int i = start; i < limit; i++) {
+            byte b = buf[i];
+            if (b == '"') {
+                pos = i + 1;
+                int n = i - start;
+                if (ascii && (name || n <= CACHE_MAX_BYTES)) return cached(start, n, hash);
+                return new String(buf, start, n, ascii ? StandardCharsets.US_ASCII : StandardCharsets.UTF_8);
+            }
+            if (b < 0x20 || b == '\\') {
+                if (b >= 0) break; // escape or control character
+                ascii = false;
+            }
+            hash = 31 * hash + b;
+        }
+        return readStringSlow();
+    }
+
+    private String cached(int start, int n, int hash) {
+        int slot = hash & (CACHE_SLOTS - 1);
+        byte[] b = cacheBytes[slot];
+        if (b != null && Arrays.equals(b, 0, b.length, buf, start, start + n)) return cache[slot];
+        cacheBytes[slot] = Arrays.copyOfRange(buf, start, start + n);
+        return cache[slot] = new String(buf, start, n, StandardCharsets.US_ASCII);
+    }
+
+    private String readStringSlow() throws IOException {
+        int n = 0;
+        while (true) {
+            int c = read();
+            if (c == '"') return new String(scratch, 0, n, StandardCharsets.UTF_8);
+            if (c == -1) throw syntax("unterminated string", c);
+            if (c < 0x20 && c >= 0) throw syntax("control character in string", c);
+            if (n + 4 > scratch.length) scratch = Arrays.copyOf(scratch, scratch.length * 2);
+            if (c != '\\') {
+                scratch[n++] = (byte) c;
+                continue;
+            }
+            int e = read();
+            switch (e) {
+                case '"', '\\', '/' -> scratch[n++] = (byte) e;
+                case 'n' -> scratch[n++] = '\n';
+                case 't' -> scratch[n++] = '\t';
+                case 'r' -> scratch[n++] = '\r';
+                case 'b' -> scratch[n++] = '\b';
+                case 'f' -> scratch[n++] = '\f';
+                case 'u' -> n = utf8(scratch, n, unicodeEscape());
+                default -> throw syntax("bad escape", e);
+            }
+        }
+    }
+
+    /** A {@code \\u} escape, joining surrogate pairs into one code point. */
+    private int unicodeEscape() throws IOException {
+        int c = hex4();
+        if (Character.isHighSurrogate((char) c)) {
+            if (read() != '\\' || read() != 'u') return 0xFFFD;
+            int low = hex4();
+            return Character.isLowSurrogate((char) low) ? Character.toCodePoint((char) c, (char) low) : 0xFFFD;
+        }
+        return Character.isSurrogate((char) c) ? 0xFFFD : c;
+    }
+
+    private int hex4() throws IOException {
+        int v = 0;
+        for (int i = 0; i < 4; i++) {
+            int d = Character.digit(read(), 16);
+            if (d < 0) throw syntax("bad \\u escape", -1);
+            v = v << 4 | d;
+        }
+        return v;
+    }
+
+    private static int utf8(byte[] out, int n, int cp) {
+        if (cp < 0x80) {
+            out[n++] = (byte) cp;
+        } else if (cp < 0x800) {
+            out[n++] = (byte) (0xC0 | cp >> 6);
+            out[n++] = (byte) (0x80 | cp & 0x3F);
+        } else if (cp < 0x10000) {
+            out[n++] = (byte) (0xE0 | cp >> 12);
+            out[n++] = (byte) (0x80 | cp >> 6 & 0x3F);
+            out[n++] = (byte) (0x80 | cp & 0x3F);
+        } else {
+            out[n++] = (byte) (0xF0 | cp >> 18);
+            out[n++] = (byte) (0x80 | cp >> 12 & 0x3F);
+            out[n++] = (byte) (0x80 | cp >> 6 & 0x3F);
+            out[n++] = (byte) (0x80 | cp & 0x3F);
+        }
+        return n;
+    }
+
+    private void skipString() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == '"') return;
+            if (c == '\\') read();
+            else if (c == -1) throw syntax("unterminated string", c);
+            else if (c < 0x20 && c >= 0) throw syntax("control character in string", c);
+        }
+    }
+
+    // ---------- Input ----------
+
+    private void expect(Token t) throws IOException {
+        Token actual = peek();
+        if (actual != t) throw syntax("expected " + t + " but was " + actual, -1);
+        peeked = null;
+    }
+
+    private void push(int scope) {
+        if (depth == stack.length) stack = Arrays.copyOf(stack, depth * 2);
+        stack[depth++] = scope;
+    }
+
+    /**
+     * The next byte that isn't whitespace, consumed, or -1 at the end. In line-delimited mode a line
+     * break inside a value is left unread and reported, so {@link #skipLine} stops right there.
+     */
+    private int nextNonWhitespace() throws IOException {
+        while (true) {
+            if (pos == limit && !fill()) return -1;
+            byte b = buf[pos];
+            if (b == '\n') {
+                if (lineDelimited && depth > 1) throw syntax("line ended inside a value", -1);
+                line++;
+            } else if (b != ' ' && b != '\t' && b != '\r') {
+                pos++;
+                return b & 0xFF;
+            }
+            pos++;
+        }
+    }
+
+    /** The next raw byte (0..255), or -1 at the end. */
+    private int read() throws IOException {
+        if (pos == limit && !fill()) return -1;
+        return buf[pos++] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buf, 0, buf.length);
+        if (n <= 0) return false;
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    private IllegalArgumentException syntax(String message, int c) {
+        String near = c >= 0x20 && c < 0x7F ? " near '" + (char) c + "'" : "";
+        return new IllegalArgumentException(message + near + " at line " + line);
+    }
+}
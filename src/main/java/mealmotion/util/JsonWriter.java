@@ -0,0 +1,367 @@
+package mealmotion.util;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Streaming JSON writer that encodes UTF-8 straight into a reusable byte buffer in front of an
+ * {@link OutputStream}, with no intermediate {@code String}s or {@code Writer}.
+ *
+ * Commas and colons are added by the writer; callers only open and close objects and arrays, name
+ * fields and write values. Output is compact, and {@link #newline()} between top-level values makes
+ * JSONL. Misuse (a value where a name is due, unbalanced ends) throws {@link IllegalStateException}.
+ */
+public final class JsonWriter implements Closeable, Flushable {
+    private static final int BUFFER_BYTES = 1 << 13;
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    private static final byte[] ESCAPE = new byte[128]; // 0: as-is, 'u': hex escape, else the char after the backslash
+    static {
+        for (int c = 0; c < 0x20; c++) ESCAPE[c] = 'u';
+        ESCAPE['"'] = '"';
+        ESCAPE['\\'] = '\\';
+        ESCAPE['\n'] = 'n';
+        ESCAPE['\r'] = 'r';
+        ESCAPE['\t'] = 't';
+        ESCAPE['\b'] = 'b';
+        ESCAPE['\f'] = 'f';
+    }
+
+    private static final int CACHE_SLOTS = 1024;
+    private static final int CACHE_MAX_CHARS = 64;
+
+    private final OutputStream out;
+    private final byte[] buf = new byte[BUFFER_BYTES];
+    private int pos;
+    // Per nesting level: true once the container has an element. Level 0 is the top level.
+    private boolean[] nonEmpty = new boolean[16];
+    private boolean[] inObject = new boolean[16];
+    private int depth;
+    private boolean nameWritten;
+    private final String[] cachedStrings = new String[CACHE_SLOTS];
+    private final byte[][] cachedBytes = new byte[CACHE_SLOTS][];
+
+    /** Writes to {@code out}; closing this writer closes {@code out}. */
+    public JsonWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        return open('{', true);
+    }
+
+    public JsonWriter endObject() throws IOException {
+        return close('}', true);
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        return open('[', false);
+    }
+
+    public JsonWriter endArray() throws IOException {
+        return close(']', false);
+    }
+
+    /** A field name encoded once, quoted and followed by the colon, for names written over and over. */
+    public static final class Name {
+        private final byte[] bytes;
+
+        private Name(byte[] bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    public static Name encode(String name) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(name.length() + 3);
+        try (JsonWriter w = new JsonWriter(bytes)) {
+            w.string(name);
+            w.put(':');
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex); // ByteArrayOutputStream doesn't throw
+        }
+        return new Name(bytes.toByteArray());
+    }
+
+    /** The next field's name; must be inside an object. */
+    public JsonWriter name(String name) throws IOException {
+        beforeName();
+        string(name);
+        put(':');
+        return this;
+    }
+
+    public JsonWriter name(Name name) throws IOException {
+        beforeName();
+        byte[] b = name.bytes;
+        ensure(b.length);
+        System.arraycopy(b, 0, buf, pos, b.length);
+        pos += b.length;
+        return this;
+    }
+
+    /** A string value, or {@code null}. */
+    public JsonWriter value(String s) throws IOException {
+        if (s == null) return nullValue();
+        beforeValue();
+        string(s);
+        return this;
+    }
+
+    public JsonWriter value(long v) throws IOException {
+        if (v == (int) v) return value((int) v);
+        beforeValue();
+        ascii(Long.toString(v));
+        return this;
+    }
+
+    /** Formats digit by digit into the buffer, without boxing or {@code String.valueOf}. */
+    public JsonWriter value(int v) throws IOException {
+        beforeValue();
+        return integer(v);
+    }
+
+    /** Same as {@code name(name).value(v)}, in one step. */
+    public JsonWriter field(Name name, int v) throws IOException {
+        name(name);
+        nameWritten = false;
+        return integer(v);
+    }
+
+    /** Same as {@code name(name).value(v)}, in one step. */
+    public JsonWriter field(Name name, String v) throws IOException {
+        name(name);
+        nameWritten = false;
+        if (v == null) ascii("null");
+        else string(v);
+        return this;
+    }
+
+    private JsonWriter integer(int v) throws IOException {
+        if (v == Integer.MIN_VALUE) {
+            ascii(Integer.toString(v));
+            return this;
+        }
+        ensure(11);
+        if (v < 0) {
+            buf[pos++] = '-';
+            v = -v;
+        }
+        int end = pos + digits(v);
+        for (int i = end - 1; i >= pos; i--) {
+            int q = v / 10;
+            buf[i] = (byte) ('0' + v - q * 10);
+            v = q;
+        }
+        pos = end;
+        return this;
+    }
+
+    public JsonWriter value(double v) throws IOException {
+        if (!Double.isFinite(v)) throw new IllegalArgumentException("JSON has no " + v);
+        if (v == (int) v) return value((int) v);
+        beforeValue();
+        ascii(Double.toString(v));
+        return this;
+    }
+
+    public JsonWriter value(boolean v) throws IOException {
+        beforeValue();
+        ascii(v ? "true" : "false");
+        return this;
+    }
+
+    public JsonWriter nullValue() throws IOException {
+        beforeValue();
+        ascii("null");
+        return this;
+    }
+
+    /** Ends a top-level value with a line break, for JSONL. */
+    public JsonWriter newline() throws IOException {
+        if (depth != 0) throw new IllegalStateException("newline inside a value");
+        put('\n');
+        nonEmpty[0] = false;
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+
+    // ---------- Internals ----------
+
+    private JsonWriter open(char c, boolean object) throws IOException {
+        beforeValue();
+        put(c);
+        if (++depth == nonEmpty.length) {
+            nonEmpty = Arrays.copyOf(nonEmpty, depth * 2);
+            inObject = Arrays.copyOf(inObject, depth * 2);
+        }
+        nonEmpty[depth] = false;
+        inObject[depth] = object;
+        return this;
+    }
+
+    private JsonWriter close(char c, boolean object) throws IOException {
+        if (depth == 0 || inObject[depth] != object || nameWritten) throw new IllegalStateException("unexpected '" + c + "'");
+        depth--;
+        put(c);
+        return this;
+    }
+
+    private void beforeName() throws IOException {
+        if (depth == 0 || !inObject[depth] || nameWritten) throw new IllegalStateException("name not expected here");
+        if (nonEmpty[depth]) put(',');
+        nonEmpty[depth] = true;
+        nameWritten = true;
+    }
+
+    private void beforeValue() throws IOException {
+        if (depth > 0 && inObject[depth]) {
+            if (!nameWritten) throw new IllegalStateException("value without a name");
+            nameWritten = false;
+            return;
+        }
+        if (depth == 0) {
+            if (nonEmpty[0]) throw new IllegalStateException("top-level values need newline() between them");
+        } else if (nonEmpty[depth]) {
+            put(',');
+        }
+        nonEmpty[depth] = true;
+    }
+
+    /**
+     * Quotes and escapes {@code s}, encoding UTF-8 as it goes. Short strings are remembered by identity
+     * in a small direct-mapped cache, so the meal, day and enum names that make up most of a plan are
+     * copied as ready-made bytes the next time the same instance comes by.
+     */
+    private void string(String s) throws IOException {
+        int slot = s.hashCode() & (CACHE_SLOTS - 1);
+        if (cachedStrings[slot] == s) {
+            byte[] b = cachedBytes[slot];
+            ensure(b.length);
+            System.arraycopy(b, 0, buf, pos, b.length);
+            pos += b.length;
+            return;
+        }
+        int n = s.length();
+        if (n <= CACHE_MAX_CHARS) {
+            ensure(6 * n + 2);
+            int start = pos;
+            quote(s);
+            cachedStrings[slot] = s;
+            cachedBytes[slot] = Arrays.copyOfRange(buf, start, pos);
+            return;
+        }
+        quote(s);
+    }
+
+    private void quote(String s) throws IOException {
+        int n = s.length();
+        if (6 * n + 2 <= buf.length) {
+            // Worst case fits the buffer: no bounds checks per char.
+            ensure(6 * n + 2);
+            int p = pos;
+            buf[p++] = '"';
+            int i = 0;
+            for (char c; i < n && (c = s.charAt(i)) < 0x80 && ESCAPE[c] == 0; i++) buf[p++] = (byte) c;
+            pos = p;
+            if (i == n) {
+                buf[pos++] = '"';
+                return;
+            }
+            stringTail(s, i);
+            return;
+        }
+        ensure(1);
+        buf[pos++] = '"';
+        stringTail(s, 0);
+    }
+
+    /** Escapes and encodes {@code s} from {@code from} on, checking for room as it goes, then closes the quote. */
+    private void stringTail(String s, int from) throws IOException {
+        int n = s.length();
+        for (int i = from; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                byte e = ESCAPE[c];
+                if (e == 0) {
+                    if (pos == buf.length) flushBuffer();
+                    buf[pos++] = (byte) c;
+                } else {
+                    ensure(6);
+                    buf[pos++] = '\\';
+                    if (e == 'u') {
+                        buf[pos++] = 'u';
+                        buf[pos++] = '0';
+                        buf[pos++] = '0';
+                        buf[pos++] = HEX[c >> 4];
+                        buf[pos++] = HEX[c & 0xF];
+                    } else {
+                        buf[pos++] = e;
+                    }
+                }
+            } else {
+                ensure(4);
+                if (c < 0x800) {
+                    buf[pos++] = (byte) (0xC0 | c >> 6);
+                    buf[pos++] = (byte) (0x80 | c & 0x3F);
+                } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    buf[pos++] = (byte) (0xF0 | cp >> 18);
+                    buf[pos++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                    buf[pos++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                    buf[pos++] = (byte) (0x80 | cp & 0x3F);
+                } else {
+                    if (Character.isSurrogate(c)) c = 0xFFFD; // unpaired: not encodable as UTF-8
+                    buf[pos++] = (byte) (0xE0 | c >> 12);
+                    buf[pos++] = (byte) (0x80 | c >> 6 & 0x3F);
+                    buf[pos++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+        }
+        if (pos == buf.length) flushBuffer();
+        buf[pos++] = '"';
+    }
+
+    private void ascii(String s) throws IOException {
+        ensure(s.length());
+        for (int i = 0; i < s.length(); i++) buf[pos++] = (byte) s.charAt(i);
+    }
+
+    private void put(char c) throws IOException {
+        if (pos == buf.length) flushBuffer();
+        buf[pos++] = (byte) c;
+    }
+
+    private static int digits(int v) {
+        if (v < 10) return 1;
+        if (v < 100) return 2;
+        if (v < 1000) return 3;
+        if (v < 10000) return 4;
+        int d = 5;
+        for (int x = v / 100000; x > 0; x /= 10) d++;
+        return d;
+    }
+
+    private void ensure(int n) throws IOException {
+        if (buf.length - pos < n) flushBuffer();
+    }
+
+    private void flushBuffer() throws IOException {
+        if (pos > 0) {
+            out.write(buf, 0, pos);
+            pos = 0;
+        }
+    }
+}
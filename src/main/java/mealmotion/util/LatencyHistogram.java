@@ -0,0 +1,27 @@
+package mealmotion.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lock-free latency histogram in microseconds, on a {@link Histogram}: any reported percentile is within
+ * 25% of the true value, from 1 µs up to centuries. Recording is a couple of atomic adds.
+ */
+public final class LatencyHistogram {
+    private final Histogram micros = new Histogram();
+
+    /** Counts, mean and percentiles in microseconds. */
+    public record Snapshot(long count, double meanMicros, long p50Micros, long p90Micros, long p99Micros, long maxMicros) {}
+
+    public void record(long nanos) {
+        micros.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    public Snapshot snapshot() {
+        Histogram.Snapshot s = micros.snapshot();
+        return new Snapshot(s.count(), s.mean(), s.p50(), s.p90(), s.p99(), s.max());
+    }
+
+    public void reset() {
+        micros.reset();
+    }
+}
@@ -1,47 +1,121 @@
 package mealmotion.util;
 
+import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
+import java.awt.image.BaseMultiResolutionImage;
+import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * The app logo, decoded and scaled once, off the EDT, into one multi-resolution image shared by the
+ * splash and the window icons.
+ *
+ * Loaded in this order:
+ * - `resources/logo.png` from disk (easy to swap during development)
+ * - `logo.png` from classpath (packaged via src/main/resources/logo.png)
+ */
 public final class LogoLoader {
+    /** Widths the logo is pre-scaled to: window icons, the splash, and the splash at 2x for HiDPI screens. */
+    private static final int[] WIDTHS = {16, 24, 32, 48, 64, 128, 220, 256, 440};
+
     private LogoLoader() {}
 
-    /**
-     * Loads logo icon in this order:
-     * - `resources/logo.png` from disk (easy to swap during development)
-     * - `logo.png` from classpath (packaged via src/main/resources/logo.png)
-     */
+    private static final class Holder {
+        static final CompletableFuture<BaseMultiResolutionImage> LOGO = CompletableFuture.supplyAsync(LogoLoader::decode);
+    }
+
+    /** The logo with one variant per width in {@link #WIDTHS}, or null if there is none; decoding starts on the first call. */
+    public static CompletableFuture<BaseMultiResolutionImage> logo() {
+        return Holder.LOGO;
+    }
+
+    /** The logo at {@code maxWidthPx} wide (or its full size if smaller), with the larger variants for HiDPI screens. */
     public static ImageIcon loadLogoIcon(int maxWidthPx) {
-        // 1) Dev override
-        File disk = new File("resources/logo.png");
-        if (disk.exists() && disk.isFile()) {
-            return scale(new ImageIcon(disk.getPath()), maxWidthPx);
+        return icon(logo().join(), maxWidthPx);
+    }
+
+    /** Like {@link #loadLogoIcon} for a logo already taken from {@link #logo()}. */
+    public static ImageIcon icon(BaseMultiResolutionImage logo, int maxWidthPx) {
+        if (logo == null) return null;
+        List<Image> variants = logo.getResolutionVariants();
+        int base = variants.size() - 1;
+        for (int i = 0; i < variants.size(); i++) {
+            if (variants.get(i).getWidth(null) >= maxWidthPx) { base = i; break; }
+        }
+        Image[] all = variants.toArray(new Image[0]);
+        if (all[base].getWidth(null) > maxWidthPx) {
+            // Not one of the pre-scaled widths: scale once more from the next larger variant.
+            BufferedImage exact = scale((BufferedImage) all[base], maxWidthPx);
+            all = Arrays.copyOf(all, all.length + 1);
+            System.arraycopy(all, base, all, base + 1, all.length - base - 1);
+            all[base] = exact;
         }
+        return new ImageIcon(new BaseMultiResolutionImage(base, all));
+    }
 
-        // 2) Packaged resource
+    /** Every pre-scaled variant, for {@code Window.setIconImages}; empty if there is no logo. */
+    public static List<Image> windowIconImages() {
+        BaseMultiResolutionImage logo = logo().join();
+        return logo == null ? List.of() : logo.getResolutionVariants();
+    }
+
+    private static BaseMultiResolutionImage decode() {
         try {
-            java.net.URL url = LogoLoader.class.getResource("/logo.png");
-            if (url != null) return scale(new ImageIcon(url), maxWidthPx);
-        } catch (Exception ignored) { }
+            BufferedImage source = read();
+            return source == null ? null : variants(source);
+        } catch (IOException | RuntimeException ex) {
+            // ImageIO reports some broken files with runtime exceptions; either way the app runs without a logo.
+            System.err.println("Could not read the logo: " + ex);
+            return null;
+        }
+    }
 
-        return null;
+    private static BaseMultiResolutionImage variants(BufferedImage source) {
+
+        // Largest first, each scaled from the one before, so no step shrinks by more than about half.
+        Image[] variants = new Image[WIDTHS.length];
+        BufferedImage prev = source;
+        int n = 0;
+        for (int i = WIDTHS.length - 1; i >= 0; i--) {
+            if (WIDTHS[i] >= source.getWidth()) continue;
+            prev = scale(prev, WIDTHS[i]);
+            variants[n++] = prev;
+        }
+        // Variants go smallest first, topped off by the source itself.
+        Image[] sorted = new Image[n + 1];
+        for (int i = 0; i < n; i++) sorted[i] = variants[n - 1 - i];
+        sorted[n] = source;
+        return new BaseMultiResolutionImage(sorted);
     }
 
-    public static Image loadWindowIconImage() {
-        ImageIcon icon = loadLogoIcon(256);
-        return icon == null ? null : icon.getImage();
+    private static BufferedImage read() throws IOException {
+        // 1) Dev override
+        File disk = new File("resources/logo.png");
+        if (disk.isFile()) return ImageIO.read(disk);
+
+        // 2) Packaged resource
+        URL url = LogoLoader.class.getResource("/logo.png");
+        return url == null ? null : ImageIO.read(url);
     }
 
-    private static ImageIcon scale(ImageIcon icon, int maxWidthPx) {
-        if (icon == null) return null;
-        int w0 = icon.getIconWidth();
-        int h0 = icon.getIconHeight();
-        if (w0 <= 0 || h0 <= 0) return icon;
-        int w = Math.min(maxWidthPx, w0);
-        int h = (int) ((double) h0 / (double) w0 * (double) w);
-        Image scaled = icon.getImage().getScaledInstance(w, h, Image.SCALE_SMOOTH);
-        return new ImageIcon(scaled);
+    private static BufferedImage scale(BufferedImage src, int width) {
+        int height = Math.max(1, (int) ((double) src.getHeight() / src.getWidth() * width));
+        BufferedImage out = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.drawImage(src, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return out;
     }
 }
-
@@ -0,0 +1,98 @@
+package mealmotion.util;
+
+import jdk.jfr.*;
+import mealmotion.model.UserProfile;
+
+/**
+ * JDK Flight Recorder events for the phases of generating and exporting a plan, so a recording of a
+ * batch run or the service shows where time goes per phase, next to JFR's own allocation and GC events:
+ *
+ * <pre>
+ *   JAVA_OPTS=-XX:StartFlightRecording=filename=run.jfr,settings=profile  ./build/install/Meal-Motion/bin/Meal-Motion --batch ...
+ *   jfr print --events 'mealmotion.*' run.jfr
+ * </pre>
+ *
+ * Call sites follow the usual JFR pattern, {@code begin()}, then {@code end()} and {@code shouldCommit()}
+ * on the concrete event type, and only then {@link #describe} and {@code commit()}. When no recording
+ * wants the event, the JIT removes the event object altogether. Passing it to a shared method that calls
+ * {@code end()} through the base type defeats that, because the call can't be inlined.
+ */
+public final class PlanEvents {
+    private PlanEvents() {}
+
+    /** Fills in the profile fields of an event about to be committed. */
+    public static void describe(ProfileEvent event, UserProfile profile) {
+        event.diet = profile.dietPreference().name();
+        event.goal = profile.bodyGoal().name();
+        event.exclusions = profile.allergies().size() + profile.dislikedFoods().size();
+    }
+
+    /** Phase events carry the profile attributes that most affect how long the phase takes. */
+    @Category({"MealMotion", "Plan"})
+    @StackTrace(false)
+    public abstract static class ProfileEvent extends Event {
+        @Label("Diet")
+        String diet;
+
+        @Label("Goal")
+        String goal;
+
+        @Label("Exclusions")
+        @Description("Allergies plus disliked foods")
+        int exclusions;
+    }
+
+    /** Generation phases also record how many meals there were to choose from. */
+    public abstract static class GenerationEvent extends ProfileEvent {
+        @Label("Catalog Size")
+        public int catalogSize;
+    }
+
+    @Name("mealmotion.MealGeneration")
+    @Label("Meal Generation")
+    @Description("A week of meals, greedy or optimized, including candidate filtering")
+    public static final class MealGeneration extends GenerationEvent {}
+
+    @Name("mealmotion.CandidateFiltering")
+    @Label("Candidate Filtering")
+    @Description("Diet, allergy and dislike filtering of the catalog into per-slot candidate sets")
+    public static final class CandidateFiltering extends GenerationEvent {
+        @Label("Candidates")
+        @Description("Candidates left across all slots")
+        public int candidates;
+
+        @Label("Diet Ignored Slots")
+        @Description("Slots where filtering left nothing and diet was ignored")
+        public int dietIgnoredSlots;
+    }
+
+    @Name("mealmotion.WorkoutGeneration")
+    @Label("Workout Generation")
+    public static final class WorkoutGeneration extends ProfileEvent {
+        @Label("Exercise Library Size")
+        public int librarySize;
+    }
+
+    @Name("mealmotion.PlanAssembly")
+    @Label("Plan Assembly")
+    @Description("Putting the generated meals and workouts into a WeeklyPlan")
+    public static final class PlanAssembly extends GenerationEvent {}
+
+    @Name("mealmotion.CsvWrite")
+    @Label("Plan CSV Write")
+    public static final class CsvWrite extends ProfileEvent {
+        @Label("Rows")
+        public int rows;
+    }
+
+    @Name("mealmotion.JsonWrite")
+    @Label("Plan JSON Write")
+    public static final class JsonWrite extends ProfileEvent {}
+
+    @Name("mealmotion.ShoppingListWrite")
+    @Label("Shopping List Write")
+    public static final class ShoppingListWrite extends ProfileEvent {
+        @Label("Items")
+        public int items;
+    }
+}
@@ -7,92 +7,208 @@ import java.awt.*;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 public final class PlanExporter {
     private PlanExporter() {}
 
+    private static final ExecutorService EXPORTS = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "mealmotion-export");
+        t.setDaemon(true);
+        return t;
+    });
+
     public static void exportWithChooser(Component parent, WeeklyPlan plan) {
+        exportWithChooser(parent, plan, status -> {});
+    }
+
+    /**
+     * Asks (on the EDT) where to save the plan CSV and, optionally, the shopping list, then writes both
+     * files concurrently in the background and opens them when done. {@code status} gets short progress
+     * messages on the EDT; errors and the saved paths are shown in non-modal dialogs so the window stays
+     * usable. The returned future completes (on the EDT) once the files are written, or at once if the
+     * user cancels the chooser. Both files are written from a copy of {@code plan} taken on the EDT, so
+     * they agree with each other even if the plan is edited while they are being written.
+     */
+    public static CompletableFuture<Void> exportWithChooser(Component parent, WeeklyPlan plan, Consumer<String> status) {
         JFileChooser chooser = new JFileChooser();
         chooser.setDialogTitle("Save MealMotion Plan CSV");
         chooser.setSelectedFile(new File("MealMotionPlan.csv"));
         int result = chooser.showSaveDialog(parent);
-        if (result != JFileChooser.APPROVE_OPTION) return;
+        if (result != JFileChooser.APPROVE_OPTION) return CompletableFuture.completedFuture(null);
 
-        File csvFile = chooser.getSelectedFile();
-        if (!csvFile.getName().toLowerCase().endsWith(".csv")) {
-            csvFile = new File(csvFile.getParentFile(), csvFile.getName() + ".csv");
-        }
+        File chosen = chooser.getSelectedFile();
+        String lower = chosen.getName().toLowerCase();
+        File csvFile = lower.endsWith(".csv") || lower.endsWith(".csv.gz")
+                ? chosen
+                : new File(chosen.getParentFile(), chosen.getName() + ".csv");
 
-        try {
-            writePlanCsv(csvFile, plan);
-        } catch (IOException ex) {
-            JOptionPane.showMessageDialog(parent, "Could not write CSV:\n" + ex.getMessage(), "Export Error", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
-
-        // Offer shopping list export
-        File listFileSaved = null;
-        int choice = JOptionPane.showConfirmDialog(parent, "CSV saved.\nAlso save a shopping list?", "Shopping List", JOptionPane.YES_NO_OPTION);
+        // Ask everything up front so the writes can run together without dialogs in between.
+        File listFile = null;
+        int choice = JOptionPane.showConfirmDialog(parent, "Also save a shopping list?", "Shopping List", JOptionPane.YES_NO_OPTION);
         if (choice == JOptionPane.YES_OPTION) {
-            JFileChooser chooser2 = new JFileChooser();
+            JFileChooser chooser2 = new JFileChooser(csvFile.getParentFile());
             chooser2.setDialogTitle("Save Shopping List");
-            chooser2.setSelectedFile(new File("MealMotionShoppingList.txt"));
-            int res2 = chooser2.showSaveDialog(parent);
-            if (res2 == JFileChooser.APPROVE_OPTION) {
-                File listFile = chooser2.getSelectedFile();
-                try {
-                    writeShoppingList(listFile, plan);
-                    listFileSaved = listFile;
-                } catch (IOException ex) {
-                    JOptionPane.showMessageDialog(parent, "Could not write shopping list:\n" + ex.getMessage(), "Export Error", JOptionPane.ERROR_MESSAGE);
-                }
+            chooser2.setSelectedFile(new File(csvFile.getParentFile(), "MealMotionShoppingList.txt"));
+            if (chooser2.showSaveDialog(parent) == JFileChooser.APPROVE_OPTION) listFile = chooser2.getSelectedFile();
+        }
+
+        status.accept(listFile == null ? "Saving plan…" : "Saving plan and shopping list…");
+        File finalListFile = listFile;
+        WeeklyPlan snapshot = plan.copy();
+        CompletableFuture<File> csv = CompletableFuture.supplyAsync(() -> {
+            try {
+                writePlanCsv(csvFile, snapshot);
+                return csvFile;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
             }
+        }, EXPORTS);
+        CompletableFuture<File> list = listFile == null ? CompletableFuture.completedFuture(null) : CompletableFuture.supplyAsync(() -> {
+            try {
+                writeShoppingList(finalListFile, snapshot);
+                return finalListFile;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }, EXPORTS);
+
+        CompletableFuture<Void> finished = new CompletableFuture<>();
+        CompletableFuture.allOf(csv, list).whenComplete((ignored, err) -> SwingUtilities.invokeLater(() -> {
+            File savedCsv = saved(parent, csv, "CSV");
+            File savedList = saved(parent, list, "shopping list");
+            status.accept(savedCsv == null && savedList == null ? "Export failed" : "Saved");
+            if (savedCsv != null || savedList != null) {
+                CompletableFuture.runAsync(() -> openAllIfSupported(parent, savedCsv, savedList), EXPORTS);
+            }
+            finished.complete(null);
+        }));
+        return finished;
+    }
+
+    /** The written file, or null (after telling the user) if writing it failed. Call on the EDT. */
+    private static File saved(Component parent, CompletableFuture<File> write, String what) {
+        try {
+            return write.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause() instanceof UncheckedIOException u ? u.getCause() : ex.getCause();
+            notify(parent, "Could not write " + what + ":\n" + cause.getMessage(), "Export Error", JOptionPane.ERROR_MESSAGE);
+            return null;
         }
+    }
 
-        openAllIfSupported(parent, csvFile, listFileSaved);
+    /** Like {@link JOptionPane#showMessageDialog}, but doesn't block the caller or the parent window. */
+    private static void notify(Component parent, String message, String title, int type) {
+        JDialog dialog = new JOptionPane(message, type).createDialog(parent, title);
+        dialog.setModal(false);
+        dialog.setVisible(true);
     }
 
+    public static final String CSV_HEADER = "Day,Breakfast,BreakfastCalories,BreakfastProtein,Lunch,LunchCalories,LunchProtein,Dinner,DinnerCalories,DinnerProtein,Snack,SnackCalories,SnackProtein,DailyMealCalories,DailyMealProtein,TargetCalories,TargetProtein,Workout";
+
+    public static final String BATCH_CSV_HEADER = "Profile," + CSV_HEADER;
+
+    /** Writes one plan; gzipped if the file name ends in {@code .gz}. */
     public static void writePlanCsv(File file, WeeklyPlan plan) throws IOException {
-        try (PrintWriter pw = new PrintWriter(file)) {
-            UserProfile p = plan.profile();
-            pw.println("Day,Breakfast,BreakfastCalories,BreakfastProtein,Lunch,LunchCalories,LunchProtein,Dinner,DinnerCalories,DinnerProtein,Snack,SnackCalories,SnackProtein,DailyMealCalories,DailyMealProtein,TargetCalories,TargetProtein,Workout");
-
-            for (Map.Entry<String, DayMeals> e : plan.mealsByDay().entrySet()) {
-                String day = e.getKey();
-                DayMeals dm = e.getValue();
-                WorkoutSession ws = plan.workoutsByDay().get(day);
-
-                pw.println(String.join(",",
-                        CsvUtil.escape(day),
-                        CsvUtil.escape(dm.breakfast().name()), String.valueOf(dm.breakfast().calories()), String.valueOf(dm.breakfast().proteinGrams()),
-                        CsvUtil.escape(dm.lunch().name()), String.valueOf(dm.lunch().calories()), String.valueOf(dm.lunch().proteinGrams()),
-                        CsvUtil.escape(dm.dinner().name()), String.valueOf(dm.dinner().calories()), String.valueOf(dm.dinner().proteinGrams()),
-                        CsvUtil.escape(dm.snack().name()), String.valueOf(dm.snack().calories()), String.valueOf(dm.snack().proteinGrams()),
-                        String.valueOf(dm.totalCalories()),
-                        String.valueOf(dm.totalProteinGrams()),
-                        String.valueOf(p.targetCalories()),
-                        String.valueOf(p.proteinTargetGrams()),
-                        CsvUtil.escape(ws == null ? "" : ws.formatForCsv())
-                ));
-            }
+        try (CsvWriter w = CsvWriter.open(file, false)) {
+            w.raw(CSV_HEADER).endRow();
+            writePlanRows(w, plan, false);
         }
     }
 
+    /**
+     * Streams many plans into one file with the profile column ({@link #BATCH_CSV_HEADER}). With
+     * {@code append}, rows are added after whatever the file already holds and the header is only
+     * written if the file is new or empty.
+     */
+    public static void writePlansCsv(File file, Iterable<WeeklyPlan> plans, boolean append) throws IOException {
+        boolean header = !append || !file.exists() || file.length() == 0;
+        try (CsvWriter w = CsvWriter.open(file, append)) {
+            if (header) w.raw(BATCH_CSV_HEADER).endRow();
+            for (WeeklyPlan plan : plans) writePlanRows(w, plan, true);
+        }
+    }
+
+    /**
+     * Writes one row per day. With {@code withProfileColumn} each row is prefixed by the profile name,
+     * which is how batch exports keep many plans apart in one file ({@link #BATCH_CSV_HEADER}).
+     */
+    public static void writePlanRows(CsvWriter w, WeeklyPlan plan, boolean withProfileColumn) throws IOException {
+        writePlanRows(w, plan, withProfileColumn ? plan.profile().name() : null);
+    }
+
+    /** Writes one row per day, each prefixed by {@code leadingColumn} unless it is null. */
+    public static void writePlanRows(CsvWriter w, WeeklyPlan plan, String leadingColumn) throws IOException {
+        PlanEvents.CsvWrite event = new PlanEvents.CsvWrite();
+        event.begin();
+        UserProfile p = plan.profile();
+        int targetCalories = p.targetCalories();
+        int targetProtein = p.proteinTargetGrams();
+        for (Map.Entry<String, DayMeals> e : plan.mealsByDay().entrySet()) {
+            String day = e.getKey();
+            DayMeals dm = e.getValue();
+            WorkoutSession ws = plan.workoutsByDay().get(day);
+
+            if (leadingColumn != null) w.field(leadingColumn);
+            w.field(day);
+            meal(w, dm.breakfast());
+            meal(w, dm.lunch());
+            meal(w, dm.dinner());
+            meal(w, dm.snack());
+            w.field(dm.totalCalories())
+                    .field(dm.totalProteinGrams())
+                    .field(targetCalories)
+                    .field(targetProtein)
+                    .field(ws == null ? "" : ws.formatForCsv())
+                    .endRow();
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            PlanEvents.describe(event, p);
+            event.rows = plan.mealsByDay().size();
+            event.commit();
+        }
+    }
+
+    private static void meal(CsvWriter w, Meal m) throws IOException {
+        w.field(m.name()).field(m.calories()).field(m.proteinGrams());
+    }
+
     public static void writeShoppingList(File file, WeeklyPlan plan) throws IOException {
-        Map<String, Integer> list = ShoppingListUtil.buildShoppingList(plan.mealsByDay());
-        try (PrintWriter pw = new PrintWriter(file)) {
-            pw.println("MealMotion Shopping List (ingredient -> times used)");
-            pw.println();
-            for (Map.Entry<String, Integer> e : list.entrySet()) {
-                pw.println("- " + e.getKey() + " x" + e.getValue());
-            }
+        try (PrintWriter pw = new PrintWriter(file, StandardCharsets.UTF_8)) {
+            writeShoppingList(pw, plan);
+        }
+    }
+
+    /** Writes the shopping list text to {@code out}, which is left open. */
+    public static void writeShoppingList(PrintWriter out, WeeklyPlan plan) {
+        PlanEvents.ShoppingListWrite event = new PlanEvents.ShoppingListWrite();
+        event.begin();
+        out.println("MealMotion Shopping List (ingredient -> amount for the week)");
+        out.println();
+        List<ShoppingListUtil.Item> items = ShoppingListUtil.build(plan.mealsByDay().values());
+        for (ShoppingListUtil.Item item : items) {
+            out.println("- " + item.format());
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            PlanEvents.describe(event, plan.profile());
+            event.items = items.size();
+            event.commit();
         }
     }
 
+    /** Runs off the EDT: {@code Desktop.open} can block while the handler application starts. */
     private static void openAllIfSupported(Component parent, File csvFile, File maybeListFile) {
-        if (csvFile == null) return;
+        if (csvFile == null && maybeListFile == null) return;
         try {
             if (!Desktop.isDesktopSupported()) {
                 showSavedPaths(parent, csvFile, maybeListFile);
@@ -104,7 +220,7 @@ public final class PlanExporter {
                 return;
             }
 
-            d.open(csvFile);
+            if (csvFile != null) d.open(csvFile);
             if (maybeListFile != null) d.open(maybeListFile);
         } catch (Exception ex) {
             showSavedPaths(parent, csvFile, maybeListFile);
@@ -114,9 +230,9 @@ public final class PlanExporter {
     private static void showSavedPaths(Component parent, File csvFile, File maybeListFile) {
         StringBuilder sb = new StringBuilder();
         sb.append("Saved files:\n");
-        sb.append("- ").append(csvFile.getAbsolutePath()).append("\n");
+        if (csvFile != null) sb.append("- ").append(csvFile.getAbsolutePath()).append("\n");
         if (maybeListFile != null) sb.append("- ").append(maybeListFile.getAbsolutePath()).append("\n");
-        JOptionPane.showMessageDialog(parent, sb.toString(), "Saved", JOptionPane.INFORMATION_MESSAGE);
+        SwingUtilities.invokeLater(() -> notify(parent, sb.toString(), "Saved", JOptionPane.INFORMATION_MESSAGE));
     }
 }
 
@@ -0,0 +1,343 @@
+package mealmotion.util;
+
+import mealmotion.gen.MealCatalog;
+import mealmotion.model.*;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * JSON form of profiles and plans, written with a {@link JsonWriter} and read back with a {@link JsonReader}.
+ *
+ * <pre>
+ *   profile  {"name":..,"age":..,..,"allergies":[..],"dislikedFoods":[..]}   (the {@link ProfileReader} fields)
+ *   plan     {"profile":{..},"targetCalories":..,"targetProteinGrams":..,"days":[day..]}
+ *   day      {"day":"Monday","meals":{..},"workout":{..}|null}
+ *   meals    {"breakfast":meal,"lunch":meal,"dinner":meal,"snack":meal,"calories":..,"proteinGrams":..}
+ *   meal     {"name":..,"calories":..,"proteinGrams":..}
+ *   workout  {"title":..,"moves":[{"name":..,"type":"STRENGTH","sets":3,"reps":10}|{.."minutes":..}|{.."seconds":..}]}
+ * </pre>
+ *
+ * Meals are written like the CSV export, by name with their calories and protein, and read back by
+ * name from a catalog; totals and other derived fields are ignored when reading, as are unknown fields.
+ */
+public final class PlanJson {
+    private PlanJson() {}
+
+    // Field names, encoded once.
+    private static final JsonWriter.Name ACTIVITY_LEVEL = JsonWriter.encode("activityLevel");
+    private static final JsonWriter.Name AGE = JsonWriter.encode("age");
+    private static final JsonWriter.Name ALLERGIES = JsonWriter.encode("allergies");
+    private static final JsonWriter.Name BODY_GOAL = JsonWriter.encode("bodyGoal");
+    private static final JsonWriter.Name CALORIES = JsonWriter.encode("calories");
+    private static final JsonWriter.Name DAY = JsonWriter.encode("day");
+    private static final JsonWriter.Name DAYS = JsonWriter.encode("days");
+    private static final JsonWriter.Name DIET_PREFERENCE = JsonWriter.encode("dietPreference");
+    private static final JsonWriter.Name DISLIKED_FOODS = JsonWriter.encode("dislikedFoods");
+    private static final JsonWriter.Name EQUIPMENT = JsonWriter.encode("equipment");
+    private static final JsonWriter.Name GENDER = JsonWriter.encode("gender");
+    private static final JsonWriter.Name HEIGHT_CM = JsonWriter.encode("heightCm");
+    private static final JsonWriter.Name INCLUDE_WORKOUTS = JsonWriter.encode("includeWorkouts");
+    private static final JsonWriter.Name MEALS = JsonWriter.encode("meals");
+    private static final JsonWriter.Name MINUTES = JsonWriter.encode("minutes");
+    private static final JsonWriter.Name MOVES = JsonWriter.encode("moves");
+    private static final JsonWriter.Name NAME = JsonWriter.encode("name");
+    private static final JsonWriter.Name PROFILE = JsonWriter.encode("profile");
+    private static final JsonWriter.Name PROTEIN_GRAMS = JsonWriter.encode("proteinGrams");
+    private static final JsonWriter.Name REPS = JsonWriter.encode("reps");
+    private static final JsonWriter.Name SECONDS = JsonWriter.encode("seconds");
+    private static final JsonWriter.Name SETS = JsonWriter.encode("sets");
+    private static final JsonWriter.Name TARGET_CALORIES = JsonWriter.encode("targetCalories");
+    private static final JsonWriter.Name TARGET_PROTEIN_GRAMS = JsonWriter.encode("targetProteinGrams");
+    private static final JsonWriter.Name TARGET_WEIGHT_KG = JsonWriter.encode("targetWeightKg");
+    private static final JsonWriter.Name TITLE = JsonWriter.encode("title");
+    private static final JsonWriter.Name TYPE = JsonWriter.encode("type");
+    private static final JsonWriter.Name WEIGHT_KG = JsonWriter.encode("weightKg");
+    private static final JsonWriter.Name WORKOUT = JsonWriter.encode("workout");
+    private static final JsonWriter.Name WORKOUT_DAYS_PER_WEEK = JsonWriter.encode("workoutDaysPerWeek");
+    private static final JsonWriter.Name WORKOUT_MINUTES_PER_SESSION = JsonWriter.encode("workoutMinutesPerSession");
+    private static final JsonWriter.Name[] SLOT_NAMES = new JsonWriter.Name[MealSlot.values().length];
+    static {
+        for (MealSlot slot : MealSlot.values()) SLOT_NAMES[slot.ordinal()] = JsonWriter.encode(key(slot));
+    }
+
+    // ---------- Writing ----------
+
+    public static void writeProfile(JsonWriter w, UserProfile p) throws IOException {
+        w.beginObject();
+        w.field(NAME, p.name());
+        w.field(AGE, p.age());
+        w.field(HEIGHT_CM, p.heightCm());
+        w.field(WEIGHT_KG, p.weightKg());
+        w.field(TARGET_WEIGHT_KG, p.targetWeightKg());
+        w.field(GENDER, p.gender().name());
+        w.field(ACTIVITY_LEVEL, p.activityLevel().name());
+        w.field(BODY_GOAL, p.bodyGoal().name());
+        w.field(DIET_PREFERENCE, p.dietPreference().name());
+        w.name(INCLUDE_WORKOUTS).value(p.includeWorkouts());
+        w.field(EQUIPMENT, p.equipment().name());
+        w.field(WORKOUT_DAYS_PER_WEEK, p.workoutDaysPerWeek());
+        w.field(WORKOUT_MINUTES_PER_SESSION, p.workoutMinutesPerSession());
+        w.name(ALLERGIES);
+        strings(w, p.allergies());
+        w.name(DISLIKED_FOODS);
+        strings(w, p.dislikedFoods());
+        w.endObject();
+    }
+
+    public static void writePlan(JsonWriter w, WeeklyPlan plan) throws IOException {
+        PlanEvents.JsonWrite event = new PlanEvents.JsonWrite();
+        event.begin();
+        UserProfile p = plan.profile();
+        w.beginObject();
+        w.name(PROFILE);
+        writeProfile(w, p);
+        w.field(TARGET_CALORIES, p.targetCalories());
+        w.field(TARGET_PROTEIN_GRAMS, p.proteinTargetGrams());
+        w.name(DAYS).beginArray();
+        for (Map.Entry<String, DayMeals> e : plan.mealsByDay().entrySet()) {
+            w.beginObject();
+            w.field(DAY, e.getKey());
+            w.name(MEALS);
+            writeMeals(w, e.getValue());
+            w.name(WORKOUT);
+            WorkoutSession ws = plan.workoutsByDay().get(e.getKey());
+            if (ws == null) w.nullValue();
+            else writeWorkout(w, ws);
+            w.endObject();
+        }
+        w.endArray();
+        w.endObject();
+        event.end();
+        if (event.shouldCommit()) {
+            PlanEvents.describe(event, p);
+            event.commit();
+        }
+    }
+
+    public static void writeMeals(JsonWriter w, DayMeals dm) throws IOException {
+        w.beginObject();
+        for (MealSlot slot : MealSlot.values()) {
+            Meal m = dm.get(slot);
+            w.name(SLOT_NAMES[slot.ordinal()]).beginObject();
+            w.field(NAME, m.name());
+            w.field(CALORIES, m.calories());
+            w.field(PROTEIN_GRAMS, m.proteinGrams());
+            w.endObject();
+        }
+        w.field(CALORIES, dm.totalCalories());
+        w.field(PROTEIN_GRAMS, dm.totalProteinGrams());
+        w.endObject();
+    }
+
+    public static void writeWorkout(JsonWriter w, WorkoutSession ws) throws IOException {
+        w.beginObject();
+        w.field(TITLE, ws.title());
+        w.name(MOVES).beginArray();
+        for (WorkoutMove m : ws.moves()) {
+            w.beginObject();
+            w.field(NAME, m.name());
+            w.field(TYPE, m.type().name());
+            switch (m.type()) {
+                case STRENGTH -> {
+                    w.field(SETS, m.sets());
+                    w.field(REPS, m.reps());
+                }
+                case CARDIO, MOBILITY -> w.field(MINUTES, m.minutes());
+                case CORE -> w.field(SECONDS, m.seconds());
+            }
+            w.endObject();
+        }
+        w.endArray();
+        w.endObject();
+    }
+
+    private static void strings(JsonWriter w, List<String> list) throws IOException {
+        w.beginArray();
+        for (String s : list) w.value(s);
+        w.endArray();
+    }
+
+    private static String key(MealSlot slot) {
+        return switch (slot) {
+            case BREAKFAST -> "breakfast";
+            case LUNCH -> "lunch";
+            case DINNER -> "dinner";
+            case SNACK -> "snack";
+        };
+    }
+
+    // ---------- Reading ----------
+
+    /**
+     * Reads a profile object. Values may be strings or numbers, enums may use constant names or display
+     * labels, and missing fields get the same defaults as CSV input.
+     *
+     * @throws IllegalArgumentException if the JSON or a field value is malformed
+     */
+    public static UserProfile readProfile(JsonReader r) throws IOException {
+        Map<String, Object> fields = new HashMap<>(32);
+        r.beginObject();
+        while (r.hasNext()) {
+            String name = r.nextName();
+            switch (r.peek()) {
+                case STRING -> fields.put(name, r.nextString());
+                case NUMBER -> fields.put(name, r.nextDouble());
+                case BOOLEAN -> fields.put(name, r.nextBoolean());
+                case BEGIN_ARRAY -> {
+                    List<String> items = new ArrayList<>();
+                    r.beginArray();
+                    while (r.hasNext()) {
+                        String s = r.nextStringOrNull();
+                        if (s != null) items.add(s);
+                    }
+                    r.endArray();
+                    fields.put(name, items);
+                }
+                default -> r.skipValue(); // null, or an object no profile field takes
+            }
+        }
+        r.endObject();
+        return ProfileReader.fromFields(fields);
+    }
+
+    /**
+     * Reads a plan written by {@link #writePlan}.
+     *
+     * @param catalog where meals are looked up by name
+     * @throws IllegalArgumentException if the JSON is malformed or names a meal the catalog lacks
+     */
+    public static WeeklyPlan readPlan(JsonReader r, MealCatalog catalog) throws IOException {
+        UserProfile profile = null;
+        List<String> dayNames = new ArrayList<>(7);
+        List<DayMeals> meals = new ArrayList<>(7);
+        List<WorkoutSession> workouts = new ArrayList<>(7);
+        r.beginObject();
+        while (r.hasNext()) {
+            switch (r.nextName()) {
+                case "profile" -> profile = readProfile(r);
+                case "days" -> {
+                    r.beginArray();
+                    while (r.hasNext()) readDay(r, catalog, dayNames, meals, workouts);
+                    r.endArray();
+                }
+                default -> r.skipValue();
+            }
+        }
+        r.endObject();
+        if (profile == null) throw new IllegalArgumentException("plan without a profile at line " + r.line());
+        WeeklyPlan plan = new WeeklyPlan(profile);
+        for (int i = 0; i < dayNames.size(); i++) {
+            plan.putMeals(dayNames.get(i), meals.get(i));
+            if (workouts.get(i) != null) plan.putWorkout(dayNames.get(i), workouts.get(i));
+        }
+        return plan;
+    }
+
+    private static void readDay(JsonReader r, MealCatalog catalog, List<String> dayNames, List<DayMeals> meals,
+                                List<WorkoutSession> workouts) throws IOException {
+        String day = null;
+        DayMeals dm = null;
+        WorkoutSession ws = null;
+        r.beginObject();
+        while (r.hasNext()) {
+            switch (r.nextName()) {
+                case "day" -> day = r.nextString();
+                case "meals" -> dm = readMeals(r, catalog);
+                case "workout" -> {
+                    if (r.peek() == JsonReader.Token.NULL) r.nextNull();
+                    else ws = readWorkout(r);
+                }
+                default -> r.skipValue();
+            }
+        }
+        r.endObject();
+        if (day == null || dm == null) throw new IllegalArgumentException("day without a name or meals at line " + r.line());
+        dayNames.add(day);
+        meals.add(dm);
+        workouts.add(ws);
+    }
+
+    /** Reads a day's meals, looking each up by name in {@code catalog}. */
+    public static DayMeals readMeals(JsonReader r, MealCatalog catalog) throws IOException {
+        Meal[] bySlot = new Meal[MealSlot.values().length];
+        r.beginObject();
+        while (r.hasNext()) {
+            MealSlot slot = switch (r.nextName()) {
+                case "breakfast" -> MealSlot.BREAKFAST;
+                case "lunch" -> MealSlot.LUNCH;
+                case "dinner" -> MealSlot.DINNER;
+                case "snack" -> MealSlot.SNACK;
+                default -> null;
+            };
+            if (slot == null) {
+                r.skipValue();
+                continue;
+            }
+            String name = null;
+            r.beginObject();
+            while (r.hasNext()) {
+                if (r.nextName().equals("name")) name = r.nextString();
+                else r.skipValue();
+            }
+            r.endObject();
+            int id = name == null ? -1 : catalog.idOf(name);
+            if (id < 0) throw new IllegalArgumentException("Meal not in the catalog: " + name + " at line " + r.line());
+            bySlot[slot.ordinal()] = catalog.meal(id);
+        }
+        r.endObject();
+        for (MealSlot slot : MealSlot.values()) {
+            if (bySlot[slot.ordinal()] == null) throw new IllegalArgumentException("no " + key(slot) + " at line " + r.line());
+        }
+        return new DayMeals(bySlot[0], bySlot[1], bySlot[2], bySlot[3]);
+    }
+
+    public static WorkoutSession readWorkout(JsonReader r) throws IOException {
+        String title = "";
+        List<WorkoutMove> moves = new ArrayList<>();
+        r.beginObject();
+        while (r.hasNext()) {
+            switch (r.nextName()) {
+                case "title" -> title = r.nextString();
+                case "moves" -> {
+                    r.beginArray();
+                    while (r.hasNext()) moves.add(readMove(r));
+                    r.endArray();
+                }
+                default -> r.skipValue();
+            }
+        }
+        r.endObject();
+        return new WorkoutSession(title, moves);
+    }
+
+    private static WorkoutMove readMove(JsonReader r) throws IOException {
+        String name = "", type = null;
+        int sets = 0, reps = 0, minutes = 0, seconds = 0;
+        r.beginObject();
+        while (r.hasNext()) {
+            switch (r.nextName()) {
+                case "name" -> name = r.nextString();
+                case "type" -> type = r.nextString();
+                case "sets" -> sets = r.nextInt();
+                case "reps" -> reps = r.nextInt();
+                case "minutes" -> minutes = r.nextInt();
+                case "seconds" -> seconds = r.nextInt();
+                default -> r.skipValue();
+            }
+        }
+        r.endObject();
+        WorkoutMoveType t;
+        try {
+            t = WorkoutMoveType.valueOf(String.valueOf(type));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("unknown move type " + type + " at line " + r.line());
+        }
+        return switch (t) {
+            case STRENGTH -> WorkoutMove.strength(name, sets, reps);
+            case CARDIO -> WorkoutMove.cardio(name, minutes);
+            case MOBILITY -> WorkoutMove.mobilityMinutes(name, minutes);
+            case CORE -> WorkoutMove.coreSeconds(name, seconds);
+        };
+    }
+}
@@ -0,0 +1,207 @@
+package mealmotion.util;
+
+import mealmotion.model.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Streams {@link UserProfile}s out of a CSV or JSONL file one line at a time, so arbitrarily large
+ * input files can be processed without loading them into memory.
+ *
+ * CSV files need a header row naming the columns (see {@link #CSV_COLUMNS}); list columns
+ * (allergies, dislikedFoods) are separated by ';'. JSONL files hold one JSON object per line using the
+ * same field names, with lists as arrays; they are parsed straight from the file's bytes by a
+ * {@link JsonReader} (see {@link PlanJson#readProfile}).
+ */
+public final class ProfileReader implements Iterator<UserProfile>, Closeable {
+    public static final List<String> CSV_COLUMNS = List.of(
+            "name", "age", "heightCm", "weightKg", "targetWeightKg",
+            "gender", "activityLevel", "bodyGoal", "dietPreference",
+            "includeWorkouts", "equipment", "workoutDaysPerWeek", "workoutMinutesPerSession",
+            "allergies", "dislikedFoods"
+    );
+
+    private final BufferedReader in;   // CSV
+    private final JsonReader json;     // JSONL
+    private String[] header;
+    private long lineNo;
+    private long skipped;
+    private UserProfile next;
+
+    private ProfileReader(BufferedReader in, JsonReader json) {
+        this.in = in;
+        this.json = json;
+    }
+
+    /** Opens a reader, picking JSONL for `.jsonl`/`.json` files and CSV otherwise. */
+    public static ProfileReader open(File file) throws IOException {
+        String n = file.getName().toLowerCase();
+        if (n.endsWith(".jsonl") || n.endsWith(".json")) {
+            return new ProfileReader(null, new JsonReader(Files.newInputStream(file.toPath()), true));
+        }
+        return new ProfileReader(Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8), null);
+    }
+
+    /** Lines that could not be parsed; they are reported on stderr and skipped. */
+    public long skippedLines() { return skipped; }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) return true;
+        if (json != null) return nextJson();
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) continue;
+                if (header == null) {
+                    header = CsvUtil.splitLine(line).toArray(new String[0]);
+                    continue;
+                }
+                try {
+                    next = fromFields(csvFields(line));
+                    return true;
+                } catch (RuntimeException ex) {
+                    skipped++;
+                    System.err.println("Skipping line " + lineNo + ": " + ex.getMessage());
+                }
+            }
+            return false;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private boolean nextJson() {
+        try {
+            while (true) {
+                long line = json.line();
+                try {
+                    if (json.peek() == JsonReader.Token.END_DOCUMENT) return false;
+                    line = json.line();
+                    next = PlanJson.readProfile(json);
+                    return true;
+                } catch (RuntimeException ex) {
+                    skipped++;
+                    System.err.println("Skipping line " + line + ": " + ex.getMessage());
+                    json.skipLine();
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public UserProfile next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        UserProfile p = next;
+        next = null;
+        return p;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (json != null) json.close();
+        else in.close();
+    }
+
+    /**
+     * Parses one profile from a JSON object with the same field names as a JSONL line; missing fields
+     * get the same defaults.
+     *
+     * @throws IllegalArgumentException if the JSON or a field value is malformed
+     */
+    public static UserProfile parseJson(String json) {
+        try (JsonReader r = JsonReader.of(json)) {
+            UserProfile p = PlanJson.readProfile(r);
+            if (r.peek() != JsonReader.Token.END_DOCUMENT) throw new IllegalArgumentException("unexpected content after the profile");
+            return p;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex); // in-memory input doesn't throw
+        }
+    }
+
+    // ---------- Field mapping ----------
+
+    private Map<String, Object> csvFields(String line) {
+        List<String> values = CsvUtil.splitLine(line);
+        Map<String, Object> out = new HashMap<>();
+        for (int i = 0; i < header.length && i < values.size(); i++) {
+            String key = header[i].trim();
+            String v = values.get(i);
+            if (key.equals("allergies") || key.equals("dislikedFoods")) {
+                out.put(key, v.isEmpty() ? List.of() : Arrays.asList(v.split(";")));
+            } else {
+                out.put(key, v);
+            }
+        }
+        return out;
+    }
+
+    static UserProfile fromFields(Map<String, Object> f) {
+        boolean includeWorkouts = bool(f.get("includeWorkouts"), true);
+        return new UserProfile(
+                str(f.get("name"), ""),
+                integer(f, "age", 30),
+                integer(f, "heightCm", 170),
+                integer(f, "weightKg", 70),
+                integer(f, "targetWeightKg", integer(f, "weightKg", 70)),
+                enumValue(Gender.class, f.get("gender"), Gender.OTHER),
+                enumValue(ActivityLevel.class, f.get("activityLevel"), ActivityLevel.LIGHT),
+                enumValue(BodyGoal.class, f.get("bodyGoal"), BodyGoal.TONE),
+                enumValue(DietPreference.class, f.get("dietPreference"), DietPreference.NONE),
+                includeWorkouts,
+                includeWorkouts ? enumValue(Equipment.class, f.get("equipment"), Equipment.NONE) : Equipment.NONE,
+                includeWorkouts ? integer(f, "workoutDaysPerWeek", 3) : 0,
+                includeWorkouts ? integer(f, "workoutMinutesPerSession", 45) : 0,
+                list(f.get("allergies")),
+                list(f.get("dislikedFoods"))
+        );
+    }
+
+    private static String str(Object v, String def) {
+        if (v == null) return def;
+        return v.toString().trim();
+    }
+
+    private static int integer(Map<String, Object> f, String key, int def) {
+        Object v = f.get(key);
+        if (v == null || (!(v instanceof Number) && v.toString().isBlank())) return def;
+        double d;
+        try {
+            d = v instanceof Number n ? n.doubleValue() : Double.parseDouble(v.toString().trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("bad number for " + key + ": " + v);
+        }
+        if (!(Math.abs(d) <= Integer.MAX_VALUE)) throw new IllegalArgumentException("bad number for " + key + ": " + v);
+        return (int) Math.round(d);
+    }
+
+    private static boolean bool(Object v, boolean def) {
+        if (v == null || v.toString().isBlank()) return def;
+        String s = v.toString().trim().toLowerCase();
+        return s.equals("true") || s.equals("yes") || s.equals("1");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> list(Object v) {
+        if (v == null) return List.of();
+        if (v instanceof List<?> l) return (List<String>) l;
+        String s = v.toString().trim();
+        return s.isEmpty() ? List.of() : Arrays.asList(s.split(";"));
+    }
+
+    /** Accepts either the constant name ("FULL_GYM") or the display label ("Full gym access"). */
+    private static <E extends Enum<E>> E enumValue(Class<E> type, Object v, E def) {
+        if (v == null || v.toString().isBlank()) return def;
+        String s = v.toString().trim();
+        for (E e : type.getEnumConstants()) {
+            if (e.name().equalsIgnoreCase(s) || e.toString().equalsIgnoreCase(s)) return e;
+        }
+        throw new IllegalArgumentException("unknown " + type.getSimpleName() + ": " + s);
+    }
+}
@@ -1,31 +1,140 @@
 package mealmotion.util;
 
 import mealmotion.model.DayMeals;
+import mealmotion.model.IngredientAmount;
 import mealmotion.model.Meal;
+import mealmotion.model.MealSlot;
+import mealmotion.model.Unit;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * Sums ingredient amounts over any number of days.
+ *
+ * Amounts are accumulated in primitive arrays indexed by interned ingredient ID and unit, so a list is
+ * built in one linear pass with no per-ingredient boxing or hashing. The accumulator is reused per
+ * thread and reset in time proportional to what was touched, not to the number of known ingredients.
+ * A {@link Tally} keeps its own accumulator for a list that is edited meal by meal.
+ */
 public final class ShoppingListUtil {
+    private static final Unit[] UNITS = Unit.values();
+    private static final ThreadLocal<Accumulator> ACCUMULATOR = ThreadLocal.withInitial(Accumulator::new);
+
     private ShoppingListUtil() {}
 
+    /** One line of the list: the total amount of an ingredient in one unit and how many meals use it. */
+    public record Item(String ingredient, double amount, Unit unit, int uses) {
+        public String format() {
+            return ingredient + " " + unit.format(amount);
+        }
+    }
+
+    /** Items in order of first use. Works for a week ({@code plan.mealsByDay().values()}) or many weeks. */
+    public static List<Item> build(Iterable<DayMeals> days) {
+        Accumulator acc = ACCUMULATOR.get();
+        try {
+            for (DayMeals dm : days) {
+                for (MealSlot slot : MealSlot.values()) {
+                    Meal m = dm.get(slot);
+                    if (m != null) acc.add(m, 1);
+                }
+            }
+            return acc.items();
+        } finally {
+            acc.reset();
+        }
+    }
+
+    /** A running list for {@code days} that {@link Tally#add}/{@link Tally#remove} keep current as meals change. */
+    public static Tally tally(Iterable<DayMeals> days) {
+        Tally t = new Tally();
+        for (DayMeals dm : days) {
+            for (MealSlot slot : MealSlot.values()) {
+                Meal m = dm.get(slot);
+                if (m != null) t.add(m);
+            }
+        }
+        return t;
+    }
+
+    /**
+     * A shopping list updated by delta: swapping a meal costs one pass over the two meals' ingredients,
+     * whatever the size of the plan. Ingredients whose uses drop to zero leave the list and come back in
+     * their original position. Not thread-safe.
+     */
+    public static final class Tally {
+        private final Accumulator acc = new Accumulator();
+
+        public void add(Meal meal) { acc.add(meal, 1); }
+        public void remove(Meal meal) { acc.add(meal, -1); }
+
+        public void replace(Meal old, Meal meal) {
+            if (old == meal) return;
+            remove(old);
+            add(meal);
+        }
+
+        /** Items in order of first use. */
+        public List<Item> items() { return acc.items(); }
+    }
+
+    /** How many times each ingredient is used over the week, in order of first use. */
     public static Map<String, Integer> buildShoppingList(Map<String, DayMeals> mealsByDay) {
         Map<String, Integer> counts = new LinkedHashMap<>();
-        for (DayMeals dm : mealsByDay.values()) {
-            addMeal(counts, dm.breakfast());
-            addMeal(counts, dm.lunch());
-            addMeal(counts, dm.dinner());
-            addMeal(counts, dm.snack());
-        }
+        for (Item item : build(mealsByDay.values())) counts.merge(item.ingredient(), item.uses(), Integer::sum);
         return counts;
     }
 
-    private static void addMeal(Map<String, Integer> counts, Meal meal) {
-        for (String ing : meal.ingredients()) {
-            String key = ing.trim().toLowerCase();
-            if (key.isEmpty()) continue;
-            counts.put(key, counts.getOrDefault(key, 0) + 1);
+    private static final class Accumulator {
+        private double[] amounts = new double[256];   // [id * UNITS.length + unit]
+        private int[] uses = new int[256];
+        private boolean[] listed = new boolean[256];
+        private int[] touched = new int[64];          // slots in order of first use
+        private int touchedCount;
+
+        /** {@code sign} is 1 to add the meal's ingredients, -1 to take them off again. */
+        void add(Meal meal, int sign) {
+            for (IngredientAmount a : meal.amounts()) {
+                int slot = a.id() * UNITS.length + a.unit().ordinal();
+                if (slot >= uses.length) grow(slot);
+                if (!listed[slot]) {
+                    if (touchedCount == touched.length) touched = Arrays.copyOf(touched, touchedCount * 2);
+                    touched[touchedCount++] = slot;
+                    listed[slot] = true;
+                }
+                uses[slot] += sign;
+                amounts[slot] = uses[slot] == 0 ? 0 : amounts[slot] + sign * a.amount();
+            }
+        }
+
+        List<Item> items() {
+            List<Item> out = new ArrayList<>(touchedCount);
+            for (int i = 0; i < touchedCount; i++) {
+                int slot = touched[i];
+                if (uses[slot] == 0) continue;
+                out.add(new Item(IngredientAmount.nameOf(slot / UNITS.length), amounts[slot], UNITS[slot % UNITS.length], uses[slot]));
+            }
+            return out;
+        }
+
+        void reset() {
+            for (int i = 0; i < touchedCount; i++) {
+                amounts[touched[i]] = 0;
+                uses[touched[i]] = 0;
+                listed[touched[i]] = false;
+            }
+            touchedCount = 0;
+        }
+
+        private void grow(int slot) {
+            int n = Math.max(slot + 1, uses.length * 2);
+            amounts = Arrays.copyOf(amounts, n);
+            uses = Arrays.copyOf(uses, n);
+            listed = Arrays.copyOf(listed, n);
         }
     }
 }
-